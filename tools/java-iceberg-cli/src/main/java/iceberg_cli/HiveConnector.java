@@ -8,18 +8,35 @@ import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.iceberg.PartitionSpec;
 import org.apache.iceberg.Schema;
 import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.SortOrder;
+import org.apache.iceberg.TableProperties;
 import org.apache.iceberg.catalog.TableIdentifier;
 import org.apache.iceberg.catalog.Namespace;
+import org.apache.iceberg.expressions.Expression;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.data.parquet.GenericParquetReaders;
+import org.apache.iceberg.hadoop.HadoopInputFile;
 import org.apache.iceberg.hive.HiveSchemaUtil;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.mapping.MappingUtil;
+import org.apache.iceberg.mapping.NameMapping;
+import org.apache.iceberg.parquet.Parquet;
+import org.apache.iceberg.parquet.ParquetUtil;
+import org.apache.iceberg.types.Types;
+import org.apache.iceberg.util.PropertyUtil;
+import org.apache.parquet.hadoop.ParquetFileReader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.net.URI;
 import java.net.URISyntaxException;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.FileUtils;
 import org.apache.hadoop.hive.metastore.HiveMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.Database;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
@@ -32,9 +49,14 @@ import org.apache.thrift.TException;
 
 import iceberg_cli.catalog.CustomCatalog;
 import iceberg_cli.utils.Credentials;
+import iceberg_cli.utils.DataConversion;
+import iceberg_cli.utils.FileLister;
+import iceberg_cli.utils.ParallelUtils;
+import iceberg_cli.utils.SplitPlanner;
 
 public class HiveConnector extends MetastoreConnector
 {
+    private static final String HIVE_DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
 
     Configuration conf;
     HiveMetaStoreClient hiveClient;
@@ -99,7 +121,7 @@ public class HiveConnector extends MetastoreConnector
     }
 
     @Override
-    public boolean createTable(Schema schema, PartitionSpec spec, boolean overwrite) throws Exception {
+    public boolean createTable(Schema schema, PartitionSpec spec, SortOrder order, boolean overwrite) throws Exception {
         // TODO Auto-generated method stub
         throw new Exception("Hive functionality not supported yet.");
     }
@@ -117,24 +139,105 @@ public class HiveConnector extends MetastoreConnector
 
     @Override
     public List<List<String>> readTable() throws Exception, UnsupportedEncodingException {
-        // TODO Auto-generated method stub
-        throw new Exception("Hive functionality not supported yet.");
+        if (hiveTable == null)
+            loadTable();
+        
+        String outputFormat = hiveTable.getSd().getOutputFormat();
+        if (outputFormat == null || !outputFormat.toLowerCase().contains("parquet"))
+            throw new Exception("Only Parquet Hive tables can be read, found output format: " + outputFormat);
+        
+        System.out.println("Records in " + database + "." + table + " :");
+        // Hive data files do not carry Iceberg field IDs, resolve columns by name instead
+        Schema schema = getTableSchema();
+        NameMapping nameMapping = MappingUtil.create(schema);
+        String location = hiveTable.getSd().getLocation();
+        
+        // Data files are read as soon as they are listed
+        Map<String, List<List<String>>> recordsPerFile = new ConcurrentHashMap<String, List<List<String>>>();
+        // Hive tables are sampled by whole files
+        fileLister().list(location, file -> {
+            if (m_sampler == null || m_sampler.includeSplit(file.getPath().toString(), 0))
+                recordsPerFile.put(file.getPath().toString(), readDataFile(file, location, schema, nameMapping));
+        });
+        
+        // Return the records ordered by file path
+        List<List<String>> output = new ArrayList<List<String>>();
+        for (List<List<String>> records : new TreeMap<String, List<List<String>>>(recordsPerFile).values())
+            output.addAll(records);
+        return output;
     }
-
-    private List<FileStatus> getFilesListRecursively(String location) throws IOException, URISyntaxException {
-        List<FileStatus> files = new ArrayList<FileStatus>();
-        FileSystem fs = FileSystem.get(new URI(location), conf);
-        FileStatus[] fileStatus = fs.listStatus(new Path(location));
-
-        for(FileStatus status : fileStatus) {
-            if(status.isDirectory())
-                files.addAll(getFilesListRecursively(status.getPath().toString()));
-            else
-                files.add(status);
+    
+    /**
+     * Read all records of a Parquet data file using the table schema
+     * @param file
+     * @param location table location used to find partition values in the file path
+     * @param schema
+     * @param nameMapping
+     * @return records of the data file
+     * @throws Exception
+     */
+    private List<List<String>> readDataFile(FileStatus file, String location, Schema schema, NameMapping nameMapping) throws Exception {
+        // Partition columns are not stored in the data files, get their values from the path
+        Map<String, String> partitionValues = partitionValues(location, file.getPath());
+        
+        BooleanSupplier rowFilter = (m_sampler == null) ? null : m_sampler.rowFilter(file.getPath().toString(), 0);
+        
+        List<List<String>> output = new ArrayList<List<String>>();
+        try (CloseableIterable<Record> records = Parquet.read(HadoopInputFile.fromStatus(file, conf))
+                .project(schema)
+                .withNameMapping(nameMapping)
+                .createReaderFunc(fileSchema -> GenericParquetReaders.buildReader(schema, fileSchema))
+                .build()) {
+            for (Record record : records) {
+                if (rowFilter != null && !rowFilter.getAsBoolean())
+                    continue;
+                for (Map.Entry<String, String> entry : partitionValues.entrySet()) {
+                    Types.NestedField field = schema.caseInsensitiveFindField(entry.getKey());
+                    if (field != null)
+                        record.setField(field.name(), DataConversion.stringToIcebergType(entry.getValue(), field.type()));
+                }
+                output.add(DataConversion.recordAsList(record));
+            }
+        }
+        return output;
+    }
+    
+    /**
+     * Parse partition values from the "key=value" directories of a data file path
+     * @param location
+     * @param path
+     * @return partition values by partition column name
+     */
+    private Map<String, String> partitionValues(String location, Path path) {
+        Map<String, String> values = new HashMap<String, String>();
+        List<String> partitionKeys = hiveTable.getPartitionKeys().stream().map(FieldSchema::getName).toList();
+        if (partitionKeys.isEmpty())
+            return values;
+        
+        String relativePath = path.toUri().getPath();
+        String tablePath = new Path(location).toUri().getPath();
+        if (relativePath.startsWith(tablePath))
+            relativePath = relativePath.substring(tablePath.length());
+        
+        for (String directory : relativePath.split("/")) {
+            int index = directory.indexOf('=');
+            if (index <= 0)
+                continue;
+            String key = FileUtils.unescapePathName(directory.substring(0, index));
+            String value = FileUtils.unescapePathName(directory.substring(index + 1));
+            if (partitionKeys.contains(key))
+                values.put(key, value.equals(HIVE_DEFAULT_PARTITION) ? "null" : value);
         }
-        return files;
+        return values;
+    }
+
+    private FileLister fileLister() {
+        return new FileLister(conf, ParallelUtils.numThreads());
     }
     
+    /**
+     * Returns list of tasks with single data files
+     */
     @Override
     public Map<Integer, List<Map<String, String>>> getPlanFiles() throws IOException, URISyntaxException {
         org.apache.hadoop.hive.metastore.api.Table hiveTable;
@@ -144,36 +247,100 @@ public class HiveConnector extends MetastoreConnector
              System.err.println("Error loading Hive table: " + e.getMessage());
              return null;
          }
-         List<FileStatus> hiveFiles = getFilesListRecursively(hiveTable.getSd().getLocation());
+         String format = fileFormat(hiveTable);
+         Queue<SplitPlanner.FileSplit> hiveFiles = new ConcurrentLinkedQueue<SplitPlanner.FileSplit>();
+         fileLister().list(hiveTable.getSd().getLocation(),
+                 file -> hiveFiles.add(new SplitPlanner.FileSplit(file.getPath().toString(), format, 0, file.getLen())));
          
-         //Hive does not have any sophisticated scan planning, just assign one file per task
          int idx = 0;
          Map<Integer, List<Map<String, String>>> taskMapListList = new HashMap<Integer, List<Map<String, String>>>();
-         List<Map<String, String>> taskMapList = new ArrayList<Map<String, String>>();
-         for (FileStatus file : hiveFiles) {
-             Map<String, String> taskMap = new HashMap<String, String>();
-             taskMap.put("content", "DATA");
-             taskMap.put("file_path", file.getPath().toString());
-             String format = hiveTable.getSd().getOutputFormat().contains("parquet") ? "PARQUET" : "UNKNOWN";
-             taskMap.put("file_format", format);
-             taskMap.put("start", "0");
-             taskMap.put("length", Long.toString(file.getLen()));
-             taskMap.put("spec", "[]"); //not sure this matters..do empty
-             taskMap.put("residual", "true"); //not sure either
-             taskMapList.add(taskMap);
+         for (SplitPlanner.FileSplit file : sorted(hiveFiles)) {
+             List<Map<String, String>> taskMapList = new ArrayList<Map<String, String>>();
+             taskMapList.add(taskMap(file));
+             taskMapListList.put(idx++, taskMapList);
          }
          
-         // FIXME: All files will be part of task 0 for the time being for testing.
-         // Either move this inside the loop or figure out a mechanism to divide
-         // the files into equal sized tasks.
-         taskMapListList.put(idx++, taskMapList);
-         
          return taskMapListList;
     }
     
+    /**
+     * Returns list of balanced tasks which may have partial data files,
+     * multiple data files or both. Parquet files larger than the split
+     * size are split at row group boundaries.
+     */
     @Override
     public Map<Integer, List<Map<String, String>>> getPlanTasks() throws IOException, URISyntaxException {
-        return getPlanFiles();
+        org.apache.hadoop.hive.metastore.api.Table hiveTable;
+        try {
+             hiveTable = hiveClient.getTable(database, table);
+        } catch (TException e) {
+            System.err.println("Error loading Hive table: " + e.getMessage());
+            return null;
+        }
+        String format = fileFormat(hiveTable);
+        SplitPlanner planner = splitPlanner(hiveTable);
+        
+        // Files are split as they are listed. Only files larger than the split
+        // size need their footers to be read.
+        Queue<SplitPlanner.FileSplit> splits = new ConcurrentLinkedQueue<SplitPlanner.FileSplit>();
+        fileLister().list(hiveTable.getSd().getLocation(), file -> {
+            List<Long> offsets = null;
+            if (format.equals("PARQUET") && file.getLen() > planner.targetSplitSize()) {
+                try (ParquetFileReader reader = ParquetFileReader.open(
+                        org.apache.parquet.hadoop.util.HadoopInputFile.fromStatus(file, conf))) {
+                    offsets = ParquetUtil.getSplitOffsets(reader.getFooter());
+                }
+            }
+            splits.addAll(planner.split(file.getPath().toString(), format, file.getLen(), offsets));
+        });
+        
+        int idx = 0;
+        Map<Integer, List<Map<String, String>>> taskMapListList = new HashMap<Integer, List<Map<String, String>>>();
+        for (List<SplitPlanner.FileSplit> task : planner.planTasks(sorted(splits))) {
+            List<Map<String, String>> taskMapList = new ArrayList<Map<String, String>>();
+            for (SplitPlanner.FileSplit split : task)
+                taskMapList.add(taskMap(split));
+            taskMapListList.put(idx++, taskMapList);
+        }
+        
+        return taskMapListList;
+    }
+    
+    /**
+     * Order splits by file path and offset so that planning is deterministic
+     */
+    private List<SplitPlanner.FileSplit> sorted(Collection<SplitPlanner.FileSplit> splits) {
+        List<SplitPlanner.FileSplit> sortedSplits = new ArrayList<SplitPlanner.FileSplit>(splits);
+        sortedSplits.sort(Comparator.comparing(SplitPlanner.FileSplit::path).thenComparingLong(SplitPlanner.FileSplit::start));
+        return sortedSplits;
+    }
+    
+    private String fileFormat(Table hiveTable) {
+        String outputFormat = hiveTable.getSd().getOutputFormat();
+        return (outputFormat != null && outputFormat.toLowerCase().contains("parquet")) ? "PARQUET" : "UNKNOWN";
+    }
+    
+    /**
+     * Create a split planner using the Iceberg read properties set on the Hive table, if any
+     */
+    private SplitPlanner splitPlanner(Table hiveTable) {
+        Map<String, String> parameters = hiveTable.getParameters();
+        long splitSize = PropertyUtil.propertyAsLong(parameters, TableProperties.SPLIT_SIZE, TableProperties.SPLIT_SIZE_DEFAULT);
+        long openFileCost = PropertyUtil.propertyAsLong(parameters, TableProperties.SPLIT_OPEN_FILE_COST, TableProperties.SPLIT_OPEN_FILE_COST_DEFAULT);
+        int lookback = PropertyUtil.propertyAsInt(parameters, TableProperties.SPLIT_LOOKBACK, TableProperties.SPLIT_LOOKBACK_DEFAULT);
+        return new SplitPlanner(splitSize, openFileCost, lookback);
+    }
+    
+    private Map<String, String> taskMap(SplitPlanner.FileSplit split) {
+        Map<String, String> taskMap = new HashMap<String, String>();
+        taskMap.put("content", "DATA");
+        taskMap.put("file_path", split.path());
+        taskMap.put("file_format", split.format());
+        taskMap.put("start", Long.toString(split.start()));
+        taskMap.put("length", Long.toString(split.length()));
+        taskMap.put("spec", "[]"); //not sure this matters..do empty
+        taskMap.put("residual", "true"); //not sure either
+        return taskMap;
     }
 
     @Override
@@ -265,6 +432,57 @@ public class HiveConnector extends MetastoreConnector
         throw new Exception("Hive functionality not supported yet.");
     }
 
+    @Override
+    public String writeTable(BufferedReader records, String outputFile) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean importFiles(List<String> paths) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean sortTable(String sortOrder, List<String> zOrderColumns, Long targetFileSize, Long maxBytes,
+            Expression sampleFilter) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean rewriteManifests() throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean expireSnapshots(Long olderThan, Integer retainLast) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean removeOrphanFiles(Long olderThan, boolean dryRun) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean compactTable(Long minFileSize, Long targetFileSize, Long maxBytes, boolean stitch) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean compactDeletes(Integer deleteFileThreshold, Long targetFileSize, Long maxBytes) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean upsertTable(String records, List<String> keyColumns) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
+    @Override
+    public boolean upsertTable(BufferedReader records, List<String> keyColumns) throws Exception {
+        throw new Exception("Hive functionality not supported yet.");
+    }
+
     @Override
     public boolean commitTable(String dataFileName) throws Exception {
         // TODO Auto-generated method stub
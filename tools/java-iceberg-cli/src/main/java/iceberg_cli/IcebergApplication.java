@@ -4,10 +4,22 @@
 
 package iceberg_cli;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.cli.*;
 import org.apache.iceberg.PartitionSpec;
 import org.apache.iceberg.Schema;
 import org.apache.iceberg.SchemaParser;
+import org.apache.iceberg.SortOrder;
 import org.apache.iceberg.catalog.Namespace;
 import org.apache.iceberg.catalog.TableIdentifier;
 import org.json.JSONObject;
@@ -16,8 +28,12 @@ import iceberg_cli.cli.OptionsParser;
 import iceberg_cli.cli.Parser;
 import iceberg_cli.utils.AwsCredentials;
 import iceberg_cli.utils.CatalogUtils;
+import iceberg_cli.utils.CommitRetry;
 import iceberg_cli.utils.Credentials;
+import iceberg_cli.utils.DataConversion;
 import iceberg_cli.utils.PrintUtils;
+import iceberg_cli.utils.Sampler;
+import iceberg_cli.utils.StringUtils;
 
 public class IcebergApplication {
     private String namespace;
@@ -28,6 +44,16 @@ public class IcebergApplication {
      * @return formatted result
      */
     public String processRequest( String[] args ) throws Exception
+    {
+        return processRequest(args, System.in);
+    }
+    
+    /**
+     * @param args
+     * @param input stream to read records from when the input file is "-"
+     * @return formatted result
+     */
+    public String processRequest( String[] args, InputStream input ) throws Exception
     {
         String output = null;
         
@@ -71,10 +97,26 @@ public class IcebergApplication {
         if (snapshotId != null)
             connector.setSnapshotId(Long.valueOf(snapshotId));
         
+        // Set user specified commit retry settings, if any
+        Map<String, String> commitRetry = parser.commitRetry();
+        if (!commitRetry.isEmpty())
+            connector.setCommitRetry(new CommitRetry(commitRetry));
+        
+        // Set user specified Parquet settings, if any
+        Map<String, String> parquetSettings = parser.parquet();
+        if (!parquetSettings.isEmpty())
+            connector.setParquetOverrides(parquetSettings);
+        
         PrintUtils printUtils = new PrintUtils(connector, outputFormat);
         // Perform action
         switch (action) {
         case "read":
+            if (parser.filter() != null)
+                connector.setFilter(DataConversion.jsonToFilter(parser.filter()));
+            String sample = parser.sample();
+            String rowSample = parser.rowSample();
+            if (sample != null || rowSample != null)
+                connector.setSampler(Sampler.fromOptions(sample, rowSample, parser.seed()));
             output = printUtils.printTable();
             break;
         case "create":
@@ -83,9 +125,13 @@ public class IcebergApplication {
                     throw new ParseException("Missing required argument: schema");
                 Schema schema = SchemaParser.fromJson(schemaJsonString);
                 boolean overwrite = parser.overwrite();
-                // TODO: Get PartitionSpec from user 
-                PartitionSpec spec = PartitionSpec.unpartitioned();
-                output = "Operation successful? " + connector.createTable(schema, spec, overwrite);
+                String specJsonString = parser.getPositionalArg("partition-spec");
+                PartitionSpec spec = (specJsonString == null) ? PartitionSpec.unpartitioned()
+                        : DataConversion.jsonToPartitionSpec(specJsonString, schema);
+                String orderJsonString = parser.sortOrder();
+                SortOrder order = (orderJsonString == null) ? SortOrder.unsorted()
+                        : DataConversion.jsonToSortOrder(orderJsonString, schema);
+                output = "Operation successful? " + connector.createTable(schema, spec, order, overwrite);
             } else if (namespace != null) {
                 // Set default warehouse if no warehouse argument passed in
                 if (warehouse == null) {
@@ -152,16 +198,72 @@ public class IcebergApplication {
         case "write":
             String record = parser.getPositionalArg("records");
             String outputFile = parser.outputFile();
-            String dataFiles = connector.writeTable(record, outputFile);
-            output = "Operation successful? " + connector.commitTable(dataFiles);
+            String inputFile = parser.inputFile();
+            if (parser.fileFormat() != null)
+                connector.setFileFormat(parser.fileFormat());
+            String dataFiles;
+            if (inputFile != null) {
+                dataFiles = writeRecords(connector, inputFile, input, outputFile);
+            } else {
+                if (record == null)
+                    throw new ParseException("Missing required argument: records");
+                dataFiles = connector.writeTable(record, outputFile);
+            }
+            output = commitOutput(connector, connector.commitTable(dataFiles));
+            break;
+        case "upsert":
+            String upsertRecords = parser.getPositionalArg("records");
+            String upsertInput = parser.inputFile();
+            List<String> keyColumns = (parser.keyColumns() == null) ? null : Arrays.asList(parser.keyColumns().split(","));
+            if (parser.fileFormat() != null)
+                connector.setFileFormat(parser.fileFormat());
+            boolean upserted;
+            if (upsertInput != null) {
+                upserted = upsertRecords(connector, upsertInput, input, keyColumns);
+            } else {
+                if (upsertRecords == null)
+                    throw new ParseException("Missing required argument: records");
+                upserted = connector.upsertTable(upsertRecords, keyColumns);
+            }
+            output = commitOutput(connector, upserted);
             break;
         case "commit":
             String dataFile = parser.getPositionalArg("data-files");
-            output = "Operation successful? " + connector.commitTable(dataFile);
+            output = commitOutput(connector, connector.commitTable(dataFile));
+            break;
+        case "import":
+            String importFiles = parser.getPositionalArg("files");
+            output = commitOutput(connector, connector.importFiles(StringUtils.splitPaths(importFiles, path -> new File(path.trim()).exists())));
             break;
         case "rewrite":
             String rwDataFiles = parser.getPositionalArg("data-files");
-            output = "Operation successful? " + connector.rewriteFiles(rwDataFiles);
+            output = commitOutput(connector, connector.rewriteFiles(rwDataFiles));
+            break;
+        case "sort":
+            if (parser.filter() != null)
+                connector.setFilter(DataConversion.jsonToFilter(parser.filter()));
+            output = commitOutput(connector, connector.sortTable(parser.sortOrder(), parser.zOrderColumns(),
+                    parser.targetFileSize(), parser.maxBytes(),
+                    parser.sampleFilter() == null ? null : DataConversion.jsonToFilter(parser.sampleFilter())));
+            break;
+        case "rewrite-manifests":
+            output = commitOutput(connector, connector.rewriteManifests());
+            break;
+        case "compact":
+            if (parser.filter() != null)
+                connector.setFilter(DataConversion.jsonToFilter(parser.filter()));
+            output = commitOutput(connector, connector.compactTable(parser.minFileSize(), parser.targetFileSize(), parser.maxBytes(), parser.stitch()));
+            break;
+        case "compact-deletes":
+            if (parser.filter() != null)
+                connector.setFilter(DataConversion.jsonToFilter(parser.filter()));
+            output = commitOutput(connector, connector.compactDeletes(parser.deleteFileThreshold(), parser.targetFileSize(), parser.maxBytes()));
+            break;
+        case "expire-snapshots":
+            output = commitOutput(connector, connector.expireSnapshots(parser.olderThan(), parser.retainLast()));
+            break;
+        case "remove-orphans":
+            output = "Operation successful? " + connector.removeOrphanFiles(parser.olderThan(), parser.dryRun());
             break;
         case "drop":
             if (tableName != null)
@@ -182,6 +284,49 @@ public class IcebergApplication {
         return output;
     }
     
+    /**
+     * Result of a command that commits to a table, with the ID of the snapshot that
+     * was created, which is shared with other requests when commits are grouped,
+     * and the attempts it took
+     */
+    private String commitOutput(MetastoreConnector connector, boolean status) {
+        String output = "Operation successful? " + status;
+        CommitRetry.Stats stats = connector.getCommitStats();
+        if (stats != null) {
+            if (stats.snapshotId() != null)
+                output += "\nSnapshot ID: " + stats.snapshotId();
+            output += "\n" + stats;
+        }
+        return output;
+    }
+    
+    /**
+     * Write newline-delimited JSON records from a local file or the input stream
+     */
+    private String writeRecords(MetastoreConnector connector, String inputFile, InputStream input, String outputFile) throws Exception {
+        if (inputFile.equals("-")) {
+            // The input stream is owned by the caller and is not closed
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            return connector.writeTable(reader, outputFile);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(inputFile), StandardCharsets.UTF_8)) {
+            return connector.writeTable(reader, outputFile);
+        }
+    }
+    
+    /**
+     * Upsert newline-delimited JSON records from a local file or the input stream
+     */
+    private boolean upsertRecords(MetastoreConnector connector, String inputFile, InputStream input, List<String> keyColumns) throws Exception {
+        if (inputFile.equals("-")) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            return connector.upsertTable(reader, keyColumns);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(inputFile), StandardCharsets.UTF_8)) {
+            return connector.upsertTable(reader, keyColumns);
+        }
+    }
+    
     private void validateIdentifier() throws ParseException {
         switch (action) {
             case "list":
@@ -199,7 +344,15 @@ public class IcebergApplication {
             case "uuid":
             case "rename":
             case "commit":
+            case "import":
             case "write":
+            case "upsert":
+            case "compact":
+            case "compact-deletes":
+            case "sort":
+            case "rewrite-manifests":
+            case "expire-snapshots":
+            case "remove-orphans":
             case "location":
             case "metadata":
             case "tasks":
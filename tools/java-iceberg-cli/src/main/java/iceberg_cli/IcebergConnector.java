@@ -5,16 +5,24 @@
 package iceberg_cli;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 import org.apache.iceberg.exceptions.NoSuchNamespaceException;
 import org.apache.iceberg.exceptions.NoSuchTableException;
+import org.apache.iceberg.exceptions.CommitStateUnknownException;
 import org.apache.iceberg.hadoop.HadoopInputFile;
 import org.apache.iceberg.exceptions.NamespaceNotEmptyException;
 
@@ -22,31 +30,35 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import com.google.common.collect.ImmutableList;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.iceberg.AppendFiles;
 import org.apache.iceberg.CombinedScanTask;
 import org.apache.iceberg.DataFile;
 import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.DeleteFile;
 import org.apache.iceberg.FileFormat;
 import org.apache.iceberg.FileScanTask;
 import org.apache.iceberg.HasTableOperations;
 import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.ExpireSnapshots;
 import org.apache.iceberg.RewriteFiles;
+import org.apache.iceberg.RowDelta;
+import org.apache.iceberg.expressions.Expression;
+import org.apache.iceberg.expressions.Expressions;
 import org.apache.iceberg.io.CloseableIterable;
-import org.apache.iceberg.io.FileAppender;
+import org.apache.iceberg.io.FileIO;
 import org.apache.iceberg.io.LocationProvider;
 import org.apache.iceberg.io.OutputFile;
+import org.apache.iceberg.io.InputFile;
 import org.apache.iceberg.parquet.Parquet;
 import org.apache.iceberg.hive.HiveCatalog;
 import org.apache.iceberg.data.parquet.GenericParquetReaders;
-import org.apache.iceberg.data.parquet.GenericParquetWriter;
 import org.apache.iceberg.exceptions.AlreadyExistsException;
 import org.apache.iceberg.data.Record;
 import org.apache.iceberg.data.GenericRecord;
-import org.apache.iceberg.data.IcebergGenerics;
 import org.apache.iceberg.Schema;
 import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.SortOrder;
 import org.apache.iceberg.Table;
 import org.apache.iceberg.TableScan;
 import org.apache.iceberg.Transaction;
@@ -61,21 +73,50 @@ import org.apache.parquet.ParquetReadOptions;
 import org.apache.parquet.avro.AvroParquetReader;
 import org.apache.parquet.column.ParquetProperties;
 import org.apache.parquet.hadoop.Footer;
-import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.hadoop.security.UserGroupInformation;
-import org.apache.parquet.io.InputFile;
 import org.apache.iceberg.TableMetadata;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.util.PropertyUtil;
+import org.apache.iceberg.mapping.NameMapping;
+import org.apache.iceberg.mapping.NameMappingParser;
+import org.apache.iceberg.Metrics;
+import org.apache.iceberg.MetricsConfig;
+import org.apache.iceberg.parquet.ParquetUtil;
+import org.apache.iceberg.avro.Avro;
+import org.apache.iceberg.orc.OrcMetrics;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
 
 import iceberg_cli.catalog.CustomCatalog;
+import iceberg_cli.utils.BulkDeleter;
+import iceberg_cli.utils.CachingFileIO;
+import iceberg_cli.utils.Compactor;
 import iceberg_cli.utils.Credentials;
 import iceberg_cli.utils.DataConversion;
+import iceberg_cli.utils.GroupCommitter;
+import iceberg_cli.utils.JsonRecords;
+import iceberg_cli.utils.LocalFileCache;
+import iceberg_cli.utils.ManifestRewriter;
+import iceberg_cli.utils.OrphanFiles;
+import iceberg_cli.utils.ParallelUtils;
+import iceberg_cli.utils.ParquetFooters;
+import iceberg_cli.utils.reader.TableReader;
+import iceberg_cli.utils.writer.DataWriter;
+import iceberg_cli.utils.writer.FanoutDataWriter;
+import iceberg_cli.utils.writer.LocalFileImporter;
+import iceberg_cli.utils.writer.ParallelDataWriter;
+import iceberg_cli.utils.writer.ParquetSettings;
+import iceberg_cli.utils.writer.SortOrderComparator;
+import iceberg_cli.utils.writer.SortingDataWriter;
+import iceberg_cli.utils.writer.UpsertWriter;
+import iceberg_cli.utils.writer.ZOrderComparator;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.http.SdkHttpClient;
@@ -159,7 +200,7 @@ public class IcebergConnector extends MetastoreConnector
         }
     }
     
-    public boolean createTable(Schema schema, PartitionSpec spec, boolean overwrite) {
+    public boolean createTable(Schema schema, PartitionSpec spec, SortOrder order, boolean overwrite) {
         if (m_catalog.tableExists(m_tableIdentifier)) {
             if (overwrite) {
                 // To overwrite an existing table, drop it first
@@ -170,7 +211,10 @@ public class IcebergConnector extends MetastoreConnector
         }
         
         System.out.println("Creating the table " + m_tableIdentifier);
-        m_catalog.createTable(m_tableIdentifier, schema, spec);
+        m_catalog.buildTable(m_tableIdentifier, schema)
+            .withPartitionSpec(spec)
+            .withSortOrder(order)
+            .create();
         System.out.println("Table created successfully");
         
         return true;
@@ -294,7 +338,7 @@ public class IcebergConnector extends MetastoreConnector
         return false;
     }
     
-    public List<List<String>> readTable() throws UnsupportedEncodingException {
+    public List<List<String>> readTable() throws Exception, UnsupportedEncodingException {
         if (iceberg_table == null)
             loadTable();
         
@@ -304,20 +348,22 @@ public class IcebergConnector extends MetastoreConnector
         Long snapshotId = getCurrentSnapshotId();
         if (snapshotId == null)
             return new ArrayList<List<String>>();
-        IcebergGenerics.ScanBuilder scanBuilder = IcebergGenerics.read(iceberg_table);
-        CloseableIterable<Record> records = scanBuilder.useSnapshot(snapshotId).build();
-        List<List<String>> output = new ArrayList<List<String>>();
-        for (Record record : records) {
-            int numFields = record.size();
-            List<String> rec = new ArrayList<String>(numFields);
-            for(int x = 0; x < numFields; x++) {
-                // A field can be optional, add a check for null values
-                Object value = record.get(x);
-                rec.add(value == null ? "null" : value.toString());
-            }
-            output.add(rec);
+        // Serve data and manifest files from the local cache, if enabled
+        LocalFileCache cache = LocalFileCache.fromEnvironment();
+        Table table = (cache == null) ? iceberg_table : CachingFileIO.wrap(iceberg_table, cache);
+        TableScan scan = table.newScan().useSnapshot(snapshotId);
+        if (m_filter != null)
+            scan = scan.filter(m_filter);
+        List<FileScanTask> tasks = new ArrayList<FileScanTask>();
+        try (CloseableIterable<FileScanTask> fileTasks = scan.planFiles()) {
+            if (m_sampler != null)
+                tasks = m_sampler.sampleTasks(fileTasks);
+            else
+                fileTasks.forEach(tasks::add);
         }
-        return output;
+        TableReader reader = new TableReader(table, scan.schema());
+        reader.setSampler(m_sampler);
+        return reader.read(tasks, ParallelUtils.numThreads());
     }
 
     /**
@@ -507,80 +553,329 @@ public class IcebergConnector extends MetastoreConnector
     }
     
     public String writeTable(String records, String outputFile) throws Exception {
+        JSONArray listOfRecords = new JSONObject(records).getJSONArray("records");
+        return writeRecords(JsonRecords.fromArray(listOfRecords), outputFile);
+    }
+    
+    /**
+     * Write newline-delimited JSON records to a new data file. Records are
+     * written as they are read, so memory does not grow with the input size.
+     * @param records
+     * @param outputFile
+     * @return JSON string of the written files
+     * @throws Exception
+     */
+    public String writeTable(BufferedReader records, String outputFile) throws Exception {
+        return writeRecords(JsonRecords.fromLines(records), outputFile);
+    }
+    
+    private String writeRecords(Iterator<JSONObject> records, String outputFile) throws Exception {
         if (iceberg_table == null)
             loadTable();
         
         System.out.println("Writing to the table " + m_tableIdentifier);
         
-        // Check if outFilePath or name is passed by the user
-        if (outputFile == null) {
-            outputFile = String.format("%s/icebergdata-%s.parquet", getTableDataLocation(), UUID.randomUUID());
+        Schema schema = iceberg_table.schema();
+        long targetFileSize = PropertyUtil.propertyAsLong(iceberg_table.properties(),
+                TableProperties.WRITE_TARGET_FILE_SIZE_BYTES, TableProperties.WRITE_TARGET_FILE_SIZE_BYTES_DEFAULT);
+        S3FileIO io = initS3FileIO();
+        PartitionSpec spec = iceberg_table.spec();
+        FileFormat format = writeFormat();
+        Function<String, String> newFilePath = newFilePath(outputFile, format);
+        ParquetSettings settings = new ParquetSettings(iceberg_table.properties(), m_parquetOverrides);
+        if (format == FileFormat.PARQUET)
+            System.out.println("Parquet settings: " + settings);
+        else
+            System.out.println("Writing " + format + " files");
+        SortOrder order = iceberg_table.sortOrder();
+        if (order.isSorted())
+            System.out.println("Sorting records by " + order);
+        int numThreads = ParallelDataWriter.writeThreads();
+        DataWriter writer;
+        if (numThreads > 1) {
+            // Workers share the open writer limit and the sort buffer
+            int maxOpenWriters = Math.max(1, FanoutDataWriter.maxOpenWriters() / numThreads);
+            int bufferRows = Math.max(1, SortingDataWriter.bufferRows() / numThreads);
+            System.out.println("Writing with " + numThreads + " threads");
+            writer = new ParallelDataWriter(numThreads, schema, spec, () -> sorted(order, bufferRows,
+                    new FanoutDataWriter(io, schema, spec, targetFileSize, format, settings, maxOpenWriters, newFilePath)));
+        } else {
+            writer = sorted(order, SortingDataWriter.bufferRows(),
+                    new FanoutDataWriter(io, schema, spec, targetFileSize, format, settings, FanoutDataWriter.maxOpenWriters(), newFilePath));
+        }
+        try {
+            while (records.hasNext())
+                writer.write(DataConversion.jsonToRecord(records.next(), schema));
+            writer.close();
+            if (format == FileFormat.PARQUET)
+                printCompression(io, writer.dataFiles());
+        } catch (Exception e) {
+            // Don't leave partially written files behind
+            writer.abort();
+            throw e;
+        } finally {
+            io.close();
         }
         
-        JSONObject result = new JSONObject();
-        JSONArray files = new JSONArray();
+        return dataFilesToJson(writer.dataFiles());
+    }
+    
+    /**
+     * @param order sort order of the table
+     * @param bufferRows
+     * @param writer
+     * @return writer sorting records by the order, or the given writer if the table is unsorted
+     */
+    private DataWriter sorted(SortOrder order, int bufferRows, DataWriter writer) {
+        if (order.isUnsorted())
+            return writer;
+        return new SortingDataWriter(iceberg_table.schema(), iceberg_table.spec(), order, bufferRows, writer);
+    }
+    
+    /**
+     * @return format of the data files to write, chosen by the user or the table default
+     * @throws Exception
+     */
+    private FileFormat writeFormat() throws Exception {
+        String format = (m_fileFormat != null) ? m_fileFormat : iceberg_table.properties().getOrDefault(
+                TableProperties.DEFAULT_FILE_FORMAT, TableProperties.DEFAULT_FILE_FORMAT_DEFAULT);
+        switch (format.toLowerCase()) {
+        case "parquet":
+            return FileFormat.PARQUET;
+        case "orc":
+            return FileFormat.ORC;
+        case "avro":
+            return FileFormat.AVRO;
+        default:
+            throw new Exception("Unsupported file format " + format + " cannot be written, expected parquet, orc or avro");
+        }
+    }
+    
+    /**
+     * Print the compression ratio of the written files, from the sizes of their row groups
+     * @param io
+     * @param dataFiles
+     * @throws Exception
+     */
+    private void printCompression(FileIO io, List<DataFile> dataFiles) throws Exception {
+        List<long[]> sizes = ParallelUtils.map(dataFiles, ParallelUtils.numThreads(), dataFile -> {
+            long[] fileSizes = new long[2];
+            for (BlockMetaData rowGroup : ParquetFooters.read(io.newInputFile(dataFile.path().toString())).getBlocks()) {
+                fileSizes[0] += rowGroup.getTotalByteSize();
+                fileSizes[1] += rowGroup.getCompressedSize();
+            }
+            return fileSizes;
+        });
+        long uncompressed = sizes.stream().mapToLong(fileSizes -> fileSizes[0]).sum();
+        long compressed = sizes.stream().mapToLong(fileSizes -> fileSizes[1]).sum();
+        if (compressed > 0)
+            System.out.println(String.format("Compression ratio: %.2f (%d bytes uncompressed, %d bytes compressed)",
+                    (double) uncompressed / compressed, uncompressed, compressed));
+    }
+    
+    /**
+     * Import local CSV and Parquet files into the table in one snapshot. Directories
+     * are expanded to the CSV and Parquet files they contain. Files are imported in
+     * parallel; if any import fails, no files are committed.
+     * @param paths
+     * @return true if the files were committed
+     * @throws Exception
+     */
+    public boolean importFiles(List<String> paths) throws Exception {
+        if (iceberg_table == null)
+            loadTable();
         
-        Schema schema = iceberg_table.schema();
-        ImmutableList.Builder<Record> builder = ImmutableList.builder();
+        List<File> files = new ArrayList<File>();
+        for (String path : paths) {
+            File file = new File(path.trim());
+            if (file.isDirectory()) {
+                File[] children = file.listFiles((dir, name) -> name.toLowerCase().endsWith(".csv") || name.toLowerCase().endsWith(".parquet"));
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            } else if (file.isFile()) {
+                files.add(file);
+            } else {
+                throw new Exception("File not found: " + path);
+            }
+        }
+        if (files.isEmpty())
+            throw new Exception("No CSV or Parquet files to import");
         
-        JSONArray listOfRecords = new JSONObject(records).getJSONArray("records");
-        for (int index = 0; index < listOfRecords.length(); ++index) {
-            JSONObject fields = listOfRecords.getJSONObject(index);
-            List<Types.NestedField> columns = schema.columns();
-            String[] fieldNames = JSONObject.getNames(fields);
-            // Verify if input columns are the same number as the required fields
-            // Optional fields shouldn't be part of the check
-            if (fieldNames.length > columns.size()) 
-                throw new IllegalArgumentException("Number of fields in the record doesn't match the number of required columns in schema.\n");
+        System.out.println("Importing " + files.size() + " files to the table " + m_tableIdentifier);
+        
+        long targetFileSize = PropertyUtil.propertyAsLong(iceberg_table.properties(),
+                TableProperties.WRITE_TARGET_FILE_SIZE_BYTES, TableProperties.WRITE_TARGET_FILE_SIZE_BYTES_DEFAULT);
+        int numThreads = ParallelUtils.numThreads();
+        // Imports running at once share the open writer limit
+        int maxOpenWriters = Math.max(1, FanoutDataWriter.maxOpenWriters() / Math.min(numThreads, files.size()));
+        S3FileIO io = initS3FileIO();
+        ParquetSettings settings = new ParquetSettings(iceberg_table.properties(), m_parquetOverrides);
+        LocalFileImporter importer = new LocalFileImporter(iceberg_table, io, targetFileSize, settings, maxOpenWriters, newFilePath(null, FileFormat.PARQUET));
+        try {
+            List<DataFile> dataFiles = new ArrayList<DataFile>();
+            for (List<DataFile> importedFiles : ParallelUtils.map(files, numThreads, importer::importFile))
+                dataFiles.addAll(importedFiles);
             
-            Record genericRecord = GenericRecord.create(schema);
-            for (Types.NestedField col : columns) {
-                String colName = col.name();
-                Type colType = col.type();
-                // Validate that a required field is present in the record
-                if (!fields.has(colName)) {
-                    if (col.isRequired())
-                        throw new IllegalArgumentException("Record is missing a required field: " + colName);
-                    else
-                        continue;
+            m_commitStats = m_commitRetry.run(iceberg_table, table -> {
+                Transaction transaction = table.newTransaction();
+                // Parquet files without field IDs are read by column name
+                if (importer.needsNameMapping()) {
+                    transaction.updateProperties()
+                        .set(TableProperties.DEFAULT_NAME_MAPPING, NameMappingParser.toJson(importer.nameMapping()))
+                        .commit();
                 }
-                
-                // Trim the input value
-                String value = fields.get(colName).toString().trim();
-
-                // Check for null values
-                if (col.isRequired() && value.equalsIgnoreCase("null"))
-                    throw new IllegalArgumentException("Required field cannot be null: " + colName);
-
-                // Store the value as an iceberg data type
-                genericRecord.setField(colName, DataConversion.stringToIcebergType(value, colType));
-            }
-            builder.add(genericRecord.copy());
+                AppendFiles append = transaction.newAppend();
+                for (DataFile dataFile : dataFiles)
+                    append.appendFile(dataFile);
+                append.commit();
+                transaction.commitTransaction();
+            });
+            long numRecords = dataFiles.stream().mapToLong(DataFile::recordCount).sum();
+            int numDataFiles = dataFiles.size();
+            System.out.println(String.format("Imported %d files as %d data files with %d records", files.size(), numDataFiles, numRecords));
+        } catch (CommitStateUnknownException e) {
+            // The commit may have succeeded, so the files may be part of the table
+            throw e;
+        } catch (Exception e) {
+            // Don't leave uploaded or partially written files behind
+            importer.abort();
+            throw e;
+        } finally {
+            io.close();
         }
-
+        
+        return true;
+    }
+    
+    public boolean upsertTable(String records, List<String> keyColumns) throws Exception {
+        JSONArray listOfRecords = new JSONObject(records).getJSONArray("records");
+        return upsertRecords(JsonRecords.fromArray(listOfRecords), keyColumns);
+    }
+    
+    /**
+     * Upsert newline-delimited JSON records
+     * @param records
+     * @param keyColumns
+     * @return true if the changes were committed
+     * @throws Exception
+     */
+    public boolean upsertTable(BufferedReader records, List<String> keyColumns) throws Exception {
+        return upsertRecords(JsonRecords.fromLines(records), keyColumns);
+    }
+    
+    /**
+     * Replace the rows with the keys of the records, or add them if there are none.
+     * The records are written to data files and their keys to equality delete files,
+     * committed in one row delta. Deletes only apply to rows committed before them,
+     * so the new rows are kept.
+     * @param records
+     * @param keyColumns columns identifying a row, the identifier fields of the table if null
+     * @return true if the changes were committed
+     * @throws Exception
+     */
+    private boolean upsertRecords(Iterator<JSONObject> records, List<String> keyColumns) throws Exception {
+        if (iceberg_table == null)
+            loadTable();
+        
+        int formatVersion = ((HasTableOperations) iceberg_table).operations().current().formatVersion();
+        if (formatVersion < 2)
+            throw new Exception("Upsert needs row-level deletes of format version 2, the table " + m_tableIdentifier
+                    + " is format version " + formatVersion);
+        Schema schema = iceberg_table.schema();
+        if (keyColumns == null)
+            keyColumns = new ArrayList<String>(schema.identifierFieldNames());
+        if (keyColumns.isEmpty())
+            throw new Exception("The table " + m_tableIdentifier + " has no identifier fields, pass the key columns to upsert by");
+        
+        System.out.println("Upserting to the table " + m_tableIdentifier + " by " + String.join(", ", keyColumns));
+        
+        long targetFileSize = PropertyUtil.propertyAsLong(iceberg_table.properties(),
+                TableProperties.WRITE_TARGET_FILE_SIZE_BYTES, TableProperties.WRITE_TARGET_FILE_SIZE_BYTES_DEFAULT);
         S3FileIO io = initS3FileIO();
-        OutputFile location = io.newOutputFile(outputFile);
-        System.out.println("New file created at: " + location);
-                    
-        FileAppender<Record> appender;
-        appender = Parquet.write(location)
-                        .schema(schema)
-                        .createWriterFunc(GenericParquetWriter::buildWriter)
-                        .build();
-        appender.addAll(builder.build());
-        io.close();
-        appender.close();
+        FileFormat format = writeFormat();
+        ParquetSettings settings = new ParquetSettings(iceberg_table.properties(), m_parquetOverrides);
+        UpsertWriter writer = new UpsertWriter(io, schema, iceberg_table.spec(), keyColumns, targetFileSize,
+                format, settings, FanoutDataWriter.maxOpenWriters(), newFilePath(null, format));
+        try {
+            while (records.hasNext())
+                writer.write(DataConversion.jsonToRecord(records.next(), schema));
+            writer.close();
+            if (writer.duplicates() > 0)
+                System.out.println(String.format("Kept the last of the records with the same key, %d replaced in the batch", writer.duplicates()));
+            
+            m_commitStats = m_commitRetry.run(iceberg_table, table -> {
+                Transaction transaction = table.newTransaction();
+                RowDelta rowDelta = transaction.newRowDelta();
+                for (DataFile dataFile : writer.dataFiles())
+                    rowDelta.addRows(dataFile);
+                for (DeleteFile deleteFile : writer.deleteFiles())
+                    rowDelta.addDeletes(deleteFile);
+                rowDelta.commit();
+                transaction.commitTransaction();
+            });
+            long numRecords = writer.dataFiles().stream().mapToLong(DataFile::recordCount).sum();
+            System.out.println(String.format("Upserted %d records in %d data files and %d delete files",
+                    numRecords, writer.dataFiles().size(), writer.deleteFiles().size()));
+        } catch (CommitStateUnknownException e) {
+            // The commit may have succeeded, so the files may be part of the table
+            throw e;
+        } catch (Exception e) {
+            // Don't leave partially written files behind
+            writer.abort();
+            throw e;
+        } finally {
+            io.close();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Get the locations of new data files. If the user passed an output file, it is
+     * used for the first file and the following files get a numbered suffix.
+     * @param outputFile
+     * @param format format of the files, which gives the extension of generated locations
+     * @return supplier of data file locations
+     * @throws Exception
+     */
+    private Function<String, String> newFilePath(String outputFile, FileFormat format) throws Exception {
+        if (outputFile == null) {
+            String dataLocation = getTableDataLocation();
+            return partitionPath -> partitionPath.isEmpty()
+                    ? String.format("%s/%s", dataLocation, format.addExtension("icebergdata-" + UUID.randomUUID()))
+                    : String.format("%s/%s/%s", dataLocation, partitionPath, format.addExtension("icebergdata-" + UUID.randomUUID()));
+        }
         
-        // Add file info to the JSON object
-        JSONObject file = new JSONObject();
-        file.put("file_path", outputFile);
-        file.put("file_format", FileFormat.fromFileName(outputFile));
-        file.put("file_size_in_bytes", appender.length());
-        file.put("record_count", listOfRecords.length());
-        files.put(file);
+        // Files of all partitions share the numbering of the given file
+        int extension = outputFile.lastIndexOf('.');
+        String prefix = (extension > outputFile.lastIndexOf('/')) ? outputFile.substring(0, extension) : outputFile;
+        String suffix = outputFile.substring(prefix.length());
+        AtomicInteger count = new AtomicInteger();
+        return partitionPath -> {
+            int index = count.getAndIncrement();
+            return (index == 0) ? outputFile : String.format("%s-%05d%s", prefix, index, suffix);
+        };
+    }
+    
+    /**
+     * @param dataFiles
+     * @return JSON string of the files in the format expected by commitTable
+     */
+    private String dataFilesToJson(List<DataFile> dataFiles) {
+        JSONArray files = new JSONArray();
+        for (DataFile dataFile : dataFiles) {
+            JSONObject file = new JSONObject();
+            file.put("file_path", dataFile.path().toString());
+            file.put("file_format", dataFile.format());
+            file.put("file_size_in_bytes", dataFile.fileSizeInBytes());
+            file.put("record_count", dataFile.recordCount());
+            if (iceberg_table.spec().isPartitioned())
+                file.put("partition", DataConversion.partitionToJson(iceberg_table.spec(), dataFile.partition()));
+            files.put(file);
+        }
         
+        JSONObject result = new JSONObject();
         result.put("files", files);
-                
         return result.toString();
     }
     
@@ -600,7 +895,24 @@ public class IcebergConnector extends MetastoreConnector
     	}
     }
     
-    DataFile getDataFile(S3FileIO io, String filePath, String fileFormatStr, Long fileSize, Long numRecords) throws Exception {
+    /**
+     * Build the DataFile of a Parquet, ORC or Avro file to commit. If metricsConfig is
+     * given, the footer is read to collect column metrics and split offsets, otherwise
+     * it is only read when the record count is missing. Avro files have no column
+     * statistics, so only their record count is read.
+     * @param io
+     * @param filePath
+     * @param fileFormatStr inferred from the file extension if null
+     * @param fileSize read from the file system if null
+     * @param numRecords read from the footer if null
+     * @param partition partition values, required for partitioned tables
+     * @param metricsConfig
+     * @param nameMapping used to collect metrics of files without field IDs, may be null
+     * @return DataFile to commit
+     * @throws Exception
+     */
+    DataFile getDataFile(S3FileIO io, String filePath, String fileFormatStr, Long fileSize, Long numRecords,
+            JSONObject partition, MetricsConfig metricsConfig, NameMapping nameMapping) throws Exception {
         PartitionSpec ps = iceberg_table.spec();
         OutputFile outputFile = io.newOutputFile(filePath);
 
@@ -618,9 +930,48 @@ public class IcebergConnector extends MetastoreConnector
             throw new Exception("Unable to infer the file format of the file to be committed: " + outputFile.location());
         else if(fileFormatStr.toLowerCase().equals("parquet"))
             fileFormat = FileFormat.PARQUET;
+        else if(fileFormatStr.toLowerCase().equals("orc"))
+            fileFormat = FileFormat.ORC;
+        else if(fileFormatStr.toLowerCase().equals("avro"))
+            fileFormat = FileFormat.AVRO;
         else
             throw new Exception("Unsupported file format " + fileFormatStr + " cannot be committed: " + outputFile.location());
         
+        Metrics metrics = null;
+        List<Long> splitOffsets = null;
+        if ((metricsConfig != null && fileFormat != FileFormat.AVRO) || numRecords == null) {
+            try {
+                InputFile inputFile = (fileSize == null) ? io.newInputFile(outputFile.location())
+                        : io.newInputFile(outputFile.location(), fileSize);
+                switch (fileFormat) {
+                case PARQUET:
+                    ParquetMetadata footer = ParquetFooters.read(inputFile);
+                    if (metricsConfig != null) {
+                        metrics = ParquetUtil.footerMetrics(footer, Stream.empty(), metricsConfig, nameMapping);
+                        splitOffsets = ParquetUtil.getSplitOffsets(footer);
+                    } else {
+                        numRecords = footer.getBlocks().stream().mapToLong(b -> b.getRowCount()).sum();
+                    }
+                    break;
+                case ORC:
+                    // Column statistics are in the file footer
+                    if (metricsConfig != null)
+                        metrics = OrcMetrics.fromInputFile(inputFile, metricsConfig, nameMapping);
+                    else
+                        numRecords = OrcMetrics.fromInputFile(inputFile).recordCount();
+                    break;
+                default:
+                    // Counted from the headers of the data blocks
+                    numRecords = Avro.rowCount(inputFile);
+                }
+                if (fileSize == null)
+                    fileSize = inputFile.getLength();
+            } catch (Exception e) {
+                throw new Exception("Unable to read the footer of the file to be committed: " + outputFile.location()
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        
         if(fileSize == null) {
             try {
                 FileSystem fs = FileSystem.get(new URI(outputFile.location()), m_catalog.getConf());
@@ -630,69 +981,56 @@ public class IcebergConnector extends MetastoreConnector
                 throw new Exception("Unable to infer the filesize of the file to be committed: " + outputFile.location());
             }
         }
-            
-        if (numRecords == null) {
-            try {
-                /* The apache parquet reader code wants a type of apache.parquet.io.InputFile, however the iceberg apis have no way
-                    * to provide that object and the apache.iceberg.io.InputFile may not be passed to the parquet read functions directly.
-                    * the iceberg apis want to prevent you from reading the parquet files directly and instead push you to go through
-                    * it's own built in reader classes...but we cannot use those builtin reader classes because they require a scan of
-                    * the iceberg table...which we haven't committed these files to yet. Internally iceberg provides a ParquetIO
-                    * class which accepts an apache.iceberg.io.InputFile and implements the apache.parquet.io.InputFile interface, and this
-                    * is what is then used to read the parquet files within their tablescan code. Since this class is private, it can only be
-                    * instantiated using reflection, but we can make use of it to directly open the parquet file to collect the row count.
-                    */
-                Class<?> pifClass = Class.forName("org.apache.iceberg.parquet.ParquetIO");
-                Constructor<?> pifCstr =pifClass.getDeclaredConstructor();
-                pifCstr.setAccessible(true);
-                Object pifInst = pifCstr.newInstance();
-                Method pifMthd = pifClass.getDeclaredMethod("file", org.apache.iceberg.io.InputFile.class);
-                pifMthd.setAccessible(true);
-                org.apache.iceberg.io.InputFile pif = io.newInputFile(outputFile.location());
-                Object parquetInputFile = pifMthd.invoke(pifInst, pif);
-            
-                ParquetFileReader reader = ParquetFileReader.open((InputFile) parquetInputFile);
-                numRecords = reader.getRecordCount();
-            } catch (Exception e) {
-                throw new Exception("Unable to infer the number of records of the file to be committed: " + outputFile.location());
-            }
-        }
 
-        DataFile data = DataFiles.builder(ps)
+        DataFiles.Builder builder = DataFiles.builder(ps)
                 .withPath(outputFile.location())
                 .withFormat(fileFormat)
-                .withFileSizeInBytes(fileSize)
-                .withRecordCount(numRecords)
-                .build();
+                .withFileSizeInBytes(fileSize);
+        if (metrics != null)
+            builder.withMetrics(metrics).withSplitOffsets(splitOffsets);
+        else
+            builder.withRecordCount(numRecords);
+        if (partition != null)
+            builder.withPartition(DataConversion.jsonToPartition(ps, partition));
+        else if (ps.isPartitioned())
+            throw new Exception("Missing partition of the file to be committed to a partitioned table: " + outputFile.location());
 
-        return data;
+        return builder.build();
     }
 
-    Set<DataFile> getDataFileSet(S3FileIO io, JSONArray files) throws Exception {
-        Set<DataFile> dataFiles = new HashSet<DataFile>();
-
-        for (int index = 0; index < files.length(); ++index) {
-            JSONObject file = files.getJSONObject(index);
-            // Required
-            String filePath = file.getString("file_path");
+    /**
+     * Build the DataFiles of the files in a JSON array. Footers are read in parallel.
+     * @param io
+     * @param files
+     * @param withMetrics collect column metrics and split offsets from the footers
+     * @return DataFiles in the order of the array
+     * @throws Exception
+     */
+    List<DataFile> getDataFiles(S3FileIO io, JSONArray files, boolean withMetrics) throws Exception {
+        MetricsConfig metricsConfig = withMetrics ? MetricsConfig.forTable(iceberg_table) : null;
+        String mapping = iceberg_table.properties().get(TableProperties.DEFAULT_NAME_MAPPING);
+        NameMapping nameMapping = (mapping == null) ? null : NameMappingParser.fromJson(mapping);
+        
+        List<JSONObject> fileList = new ArrayList<JSONObject>(files.length());
+        for (int index = 0; index < files.length(); ++index)
+            fileList.add(files.getJSONObject(index));
+        
+        return ParallelUtils.map(fileList, ParallelUtils.numThreads(), file -> getDataFile(
+                io,
+                // Required
+                file.getString("file_path"),
+                // Optional (but slower if not given)
+                getJsonStringOrDefault(file, "file_format", null),
+                getJsonLongOrDefault(file, "file_size_in_bytes", null),
+                getJsonLongOrDefault(file, "record_count", null),
+                // Required for partitioned tables
+                file.optJSONObject("partition"),
+                metricsConfig,
+                nameMapping));
+    }
 
-            // Optional (but slower if not given)
-            String fileFormatStr = getJsonStringOrDefault(file, "file_format", null);
-            Long fileSize = getJsonLongOrDefault(file, "file_size_in_bytes", null);
-            Long numRecords = getJsonLongOrDefault(file, "record_count", null);
-            
-            try {
-                dataFiles.add(getDataFile(
-                    io,
-                    filePath,
-                    fileFormatStr,
-                    fileSize,
-                    numRecords));
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            } 
-        }
-        return dataFiles;
+    Set<DataFile> getDataFileSet(S3FileIO io, JSONArray files, boolean withMetrics) throws Exception {
+        return new HashSet<DataFile>(getDataFiles(io, files, withMetrics));
     }
 
     public boolean commitTable(String dataFiles) throws Exception {
@@ -704,34 +1042,26 @@ public class IcebergConnector extends MetastoreConnector
         S3FileIO io = initS3FileIO();
         
         JSONArray files = new JSONObject(dataFiles).getJSONArray("files");
-        Transaction transaction = iceberg_table.newTransaction();
-        AppendFiles append = transaction.newAppend();
+        List<DataFile> filesToAdd = getDataFiles(io, files, true);
+        io.close();
+        if (GroupCommitter.isEnabled()) {
+            // Share a snapshot with concurrent commits to the same table
+            System.out.println("Starting group commit");
+            m_commitStats = GroupCommitter.forTable(iceberg_table).commit(iceberg_table, filesToAdd, m_commitRetry);
+            System.out.println("Group commit complete!");
+            return true;
+        }
+        
         // Commit data files
         System.out.println("Starting Txn");
-        for (int index = 0; index < files.length(); ++index) {
-            JSONObject file = files.getJSONObject(index);
-            // Required
-            String filePath = file.getString("file_path");
-
-            // Optional (but slower if not given)
-            String fileFormatStr = getJsonStringOrDefault(file, "file_format", null);
-            Long fileSize = getJsonLongOrDefault(file, "file_size_in_bytes", null);
-            Long numRecords = getJsonLongOrDefault(file, "record_count", null);
-            
-            try {
-                append.appendFile(getDataFile(
-                    io,
-                    filePath,
-                    fileFormatStr,
-                    fileSize,
-                    numRecords));
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            } 
-        }
-        append.commit();
-        transaction.commitTransaction();
-        io.close();
+        m_commitStats = m_commitRetry.run(iceberg_table, table -> {
+            Transaction transaction = table.newTransaction();
+            AppendFiles append = transaction.newAppend();
+            for (DataFile file : filesToAdd)
+                append.appendFile(file);
+            append.commit();
+            transaction.commitTransaction();
+        });
         System.out.println("Txn Complete!");
         
         return true;
@@ -749,20 +1079,24 @@ public class IcebergConnector extends MetastoreConnector
         Set<DataFile> newDataFiles = new HashSet<DataFile>();
 
         try {
-            oldDataFiles = getDataFileSet(io, new JSONObject(dataFiles).getJSONArray("files_to_del"));
-            newDataFiles = getDataFileSet(io, new JSONObject(dataFiles).getJSONArray("files_to_add"));
+            // Files to delete are matched by path, their metrics aren't needed
+            oldDataFiles = getDataFileSet(io, new JSONObject(dataFiles).getJSONArray("files_to_del"), false);
+            newDataFiles = getDataFileSet(io, new JSONObject(dataFiles).getJSONArray("files_to_add"), true);
         } catch (Exception e) {
                 throw new RuntimeException(e);
         } 
 
-        Transaction transaction = iceberg_table.newTransaction();
-        RewriteFiles rewrite = transaction.newRewrite();
-
         // Rewrite data files
         System.out.println("Starting Txn");
-        rewrite.rewriteFiles(oldDataFiles, newDataFiles);
-        rewrite.commit();
-        transaction.commitTransaction();
+        Set<DataFile> filesToDelete = oldDataFiles;
+        Set<DataFile> filesToAdd = newDataFiles;
+        m_commitStats = m_commitRetry.run(iceberg_table, table -> {
+            Transaction transaction = table.newTransaction();
+            RewriteFiles rewrite = transaction.newRewrite();
+            rewrite.rewriteFiles(filesToDelete, filesToAdd);
+            rewrite.commit();
+            transaction.commitTransaction();
+        });
         io.close();
         System.out.println("Txn Complete!");
 
@@ -770,6 +1104,245 @@ public class IcebergConnector extends MetastoreConnector
     }
 
 
+    /**
+     * Compact the small data files of the table, in the partitions matching the
+     * filter if one was set. Each partition is committed on its own.
+     * @param minFileSize files smaller than this are compacted, 3/4 of the target file size if null
+     * @param targetFileSize size of the new files, write.target-file-size-bytes of the table if null
+     * @param maxBytes maximum size of the files rewritten in this run, unlimited if null
+     * @param stitch copy the row groups of Parquet files instead of rewriting the rows
+     * @return true if the small files were compacted
+     * @throws Exception
+     */
+    public boolean compactTable(Long minFileSize, Long targetFileSize, Long maxBytes, boolean stitch) throws Exception {
+        if (iceberg_table == null)
+            loadTable();
+        
+        System.out.println("Compacting the table " + m_tableIdentifier);
+        
+        if (targetFileSize == null)
+            targetFileSize = PropertyUtil.propertyAsLong(iceberg_table.properties(),
+                    TableProperties.WRITE_TARGET_FILE_SIZE_BYTES, TableProperties.WRITE_TARGET_FILE_SIZE_BYTES_DEFAULT);
+        if (minFileSize == null)
+            minFileSize = targetFileSize * 3 / 4;
+        S3FileIO io = initS3FileIO();
+        FileFormat format = writeFormat();
+        ParquetSettings settings = new ParquetSettings(iceberg_table.properties(), m_parquetOverrides);
+        try {
+            Compactor compactor = new Compactor(iceberg_table, io, minFileSize, targetFileSize,
+                    (maxBytes == null) ? Long.MAX_VALUE : maxBytes);
+            m_commitStats = compactor.compact((m_filter == null) ? Expressions.alwaysTrue() : m_filter, format, settings,
+                    newFilePath(null, format), m_commitRetry, ParallelUtils.numThreads(), stitch);
+        } finally {
+            io.close();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Rewrite the data files of the table with deletes attached, in the partitions
+     * matching the filter if one was set, with the deletes applied, and remove the
+     * delete files no data file needs anymore in one commit.
+     * @param deleteFileThreshold data files with at least this many delete files are rewritten, 1 if null
+     * @param targetFileSize size of the new files, write.target-file-size-bytes of the table if null
+     * @param maxBytes maximum size of the files rewritten in this run, unlimited if null
+     * @return true if the deletes were applied
+     * @throws Exception
+     */
+    public boolean compactDeletes(Integer deleteFileThreshold, Long targetFileSize, Long maxBytes) throws Exception {
+        if (iceberg_table == null)
+            loadTable();
+        
+        System.out.println("Applying the deletes of the table " + m_tableIdentifier);
+        
+        if (targetFileSize == null)
+            targetFileSize = PropertyUtil.propertyAsLong(iceberg_table.properties(),
+                    TableProperties.WRITE_TARGET_FILE_SIZE_BYTES, TableProperties.WRITE_TARGET_FILE_SIZE_BYTES_DEFAULT);
+        S3FileIO io = initS3FileIO();
+        FileFormat format = writeFormat();
+        ParquetSettings settings = new ParquetSettings(iceberg_table.properties(), m_parquetOverrides);
+        try {
+            Compactor compactor = new Compactor(iceberg_table, io, targetFileSize, targetFileSize,
+                    (maxBytes == null) ? Long.MAX_VALUE : maxBytes);
+            compactor.applyDeletes((deleteFileThreshold == null) ? 1 : deleteFileThreshold);
+            m_commitStats = compactor.compact((m_filter == null) ? Expressions.alwaysTrue() : m_filter, format, settings,
+                    newFilePath(null, format), m_commitRetry, ParallelUtils.numThreads(), false);
+        } finally {
+            io.close();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Rewrite all data files of the table, in the partitions matching the filter
+     * if one was set, with their rows sorted. Each partition is sorted by one
+     * thread, spilling to local disk, and committed on its own.
+     * @param sortOrder JSON sort order, the table's sort order if null and no Z-order columns are given
+     * @param zOrderColumns columns of a Z-order
+     * @param targetFileSize size of the new files, write.target-file-size-bytes of the table if null
+     * @param maxBytes maximum size of the files rewritten in this run, unlimited if null
+     * @param sampleFilter predicate to report the files skipped by before and after the rewrite, none if null
+     * @return true if the files were sorted
+     * @throws Exception
+     */
+    public boolean sortTable(String sortOrder, List<String> zOrderColumns, Long targetFileSize, Long maxBytes,
+            Expression sampleFilter) throws Exception {
+        if (iceberg_table == null)
+            loadTable();
+        
+        Schema schema = iceberg_table.schema();
+        Supplier<Comparator<Record>> comparators;
+        if (zOrderColumns != null) {
+            if (sortOrder != null)
+                throw new IllegalArgumentException("Either a sort order or Z-order columns can be given, not both");
+            // Check the columns before reading any file
+            new ZOrderComparator(schema, zOrderColumns);
+            comparators = () -> new ZOrderComparator(schema, zOrderColumns);
+            System.out.println("Sorting the table " + m_tableIdentifier + " by the Z-order of " + String.join(", ", zOrderColumns));
+        } else {
+            SortOrder order = (sortOrder == null) ? iceberg_table.sortOrder() : DataConversion.jsonToSortOrder(sortOrder, schema);
+            if (order.isUnsorted())
+                throw new Exception("The table has no sort order, give a sort order or Z-order columns");
+            comparators = () -> new SortOrderComparator(schema, order);
+            System.out.println("Sorting the table " + m_tableIdentifier + " by " + order);
+        }
+        
+        if (targetFileSize == null)
+            targetFileSize = PropertyUtil.propertyAsLong(iceberg_table.properties(),
+                    TableProperties.WRITE_TARGET_FILE_SIZE_BYTES, TableProperties.WRITE_TARGET_FILE_SIZE_BYTES_DEFAULT);
+        Expression filter = (m_filter == null) ? Expressions.alwaysTrue() : m_filter;
+        int numThreads = ParallelUtils.numThreads();
+        S3FileIO io = initS3FileIO();
+        FileFormat format = writeFormat();
+        ParquetSettings settings = new ParquetSettings(iceberg_table.properties(), m_parquetOverrides);
+        try {
+            Compactor compactor = new Compactor(iceberg_table, io, targetFileSize, targetFileSize,
+                    (maxBytes == null) ? Long.MAX_VALUE : maxBytes);
+            // The sort buffer is shared by the threads, like for writes
+            compactor.sortBy(comparators, Math.max(1, SortingDataWriter.bufferRows() / numThreads));
+            String before = (sampleFilter == null) ? null : compactor.fileSkipping(filter, sampleFilter);
+            m_commitStats = compactor.compact(filter, format, settings, newFilePath(null, format), m_commitRetry, numThreads, false);
+            if (sampleFilter != null) {
+                System.out.println("Before sorting, the sample filter reads " + before);
+                System.out.println("After sorting, the sample filter reads " + compactor.fileSkipping(filter, sampleFilter));
+            }
+        } finally {
+            io.close();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Rewrite the small data manifests of the table into manifests of
+     * commit.manifest.target-size-bytes, clustered by partition
+     * @return true if the manifests were rewritten
+     * @throws Exception
+     */
+    public boolean rewriteManifests() throws Exception {
+        if (iceberg_table == null)
+            loadTable();
+        
+        System.out.println("Rewriting manifests of the table " + m_tableIdentifier);
+        
+        m_commitStats = new ManifestRewriter(iceberg_table).rewrite(m_commitRetry, ParallelUtils.numThreads());
+        
+        return true;
+    }
+    
+    /**
+     * Expire old snapshots of the table and delete the files only they refer to.
+     * Without both settings the history.expire.* properties of the table apply.
+     * The commit is retried with the commit retry settings, like other commits.
+     * @param olderThan expire snapshots older than this time in milliseconds
+     * @param retainLast number of the latest snapshots to keep, on their own all older snapshots are expired
+     * @return true if the snapshots were expired
+     * @throws Exception
+     */
+    public boolean expireSnapshots(Long olderThan, Integer retainLast) throws Exception {
+        if (iceberg_table == null)
+            loadTable();
+        
+        System.out.println("Expiring snapshots of the table " + m_tableIdentifier);
+        
+        int numSnapshots = Iterables.size(iceberg_table.snapshots());
+        S3FileIO io = initS3FileIO();
+        int numThreads = ParallelUtils.numThreads();
+        ExecutorService planPool = Executors.newFixedThreadPool(numThreads);
+        BulkDeleter deleter = new BulkDeleter(io, numThreads);
+        try {
+            // Files are only deleted once the commit succeeded, so the deleter is shared by all attempts
+            m_commitStats = m_commitRetry.run(iceberg_table, retryTable -> {
+                ExpireSnapshots expire = retryTable.expireSnapshots().planWith(planPool).deleteWith(deleter);
+                if (olderThan != null)
+                    expire.expireOlderThan(olderThan);
+                else if (retainLast != null)
+                    expire.expireOlderThan(System.currentTimeMillis());
+                if (retainLast != null)
+                    expire.retainLast(retainLast);
+                expire.commit();
+            });
+        } finally {
+            deleter.close();
+            planPool.shutdownNow();
+            io.close();
+        }
+        
+        numSnapshots -= Iterables.size(iceberg_table.snapshots());
+        System.out.println(String.format("Expired %d snapshots, deleted %d files", numSnapshots, deleter.numDeleted()));
+        if (deleter.numFailed() > 0)
+            System.out.println(String.format("Could not delete %d files, remove-orphans will find them", deleter.numFailed()));
+        
+        return true;
+    }
+    
+    /**
+     * Delete the files under the table location that the table doesn't refer to
+     * @param olderThan only delete files created before this time in milliseconds, 3 days ago if null
+     * @param dryRun list the orphan files instead of deleting them
+     * @return true if the orphan files were removed or listed
+     * @throws Exception
+     */
+    public boolean removeOrphanFiles(Long olderThan, boolean dryRun) throws Exception {
+        if (iceberg_table == null)
+            loadTable();
+        
+        System.out.println("Removing orphan files of the table " + m_tableIdentifier);
+        
+        // Files of writes still in progress aren't referenced yet
+        long cutoff = (olderThan != null) ? olderThan : System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3);
+        S3FileIO io = initS3FileIO();
+        int numThreads = ParallelUtils.numThreads();
+        try {
+            OrphanFiles orphanFiles = new OrphanFiles(iceberg_table, io);
+            if (dryRun) {
+                AtomicLong numOrphans = new AtomicLong();
+                long numFiles = orphanFiles.find(cutoff, numThreads, location -> {
+                    System.out.println(location);
+                    numOrphans.incrementAndGet();
+                });
+                System.out.println(String.format("Found %d orphan files of %d files listed", numOrphans.get(), numFiles));
+            } else {
+                BulkDeleter deleter = new BulkDeleter(io, numThreads);
+                long numFiles;
+                try {
+                    numFiles = orphanFiles.find(cutoff, numThreads, deleter);
+                } finally {
+                    deleter.close();
+                }
+                System.out.println(String.format("Deleted %d orphan files of %d files listed", deleter.numDeleted(), numFiles));
+                if (deleter.numFailed() > 0)
+                    System.out.println(String.format("Could not delete %d files", deleter.numFailed()));
+            }
+        } finally {
+            io.close();
+        }
+        
+        return true;
+    }
+    
     public Schema getTableSchema() {
         if (iceberg_table == null)
             loadTable();
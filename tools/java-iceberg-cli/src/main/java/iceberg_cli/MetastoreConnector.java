@@ -5,6 +5,7 @@
 package iceberg_cli;
 
 import java.util.*;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
@@ -17,8 +18,10 @@ import org.apache.iceberg.FileScanTask;
 import org.apache.iceberg.PartitionSpec;
 import org.apache.iceberg.io.CloseableIterable;
 import org.apache.iceberg.data.Record;
+import org.apache.iceberg.expressions.Expression;
 import org.apache.iceberg.Schema;
 import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.SortOrder;
 import org.apache.iceberg.catalog.Namespace;
 import org.apache.iceberg.Table;
 import org.apache.iceberg.TableMetadata;
@@ -28,13 +31,21 @@ import org.apache.iceberg.types.Types.UUIDType;
 import org.apache.thrift.TException;
 
 import iceberg_cli.catalog.CustomCatalog;
+import iceberg_cli.utils.CommitRetry;
 import iceberg_cli.utils.Credentials;
+import iceberg_cli.utils.Sampler;
 
 import org.apache.iceberg.PartitionField;
 
 public abstract class MetastoreConnector 
 {
     protected Long m_snapshotId = null;
+    protected Sampler m_sampler = null;
+    protected Expression m_filter = null;
+    protected CommitRetry m_commitRetry = new CommitRetry();
+    protected CommitRetry.Stats m_commitStats = null;
+    protected Map<String, String> m_parquetOverrides = Collections.emptyMap();
+    protected String m_fileFormat = null;
 
     public MetastoreConnector(CustomCatalog catalog, String namespace, String tableName, Credentials creds) {
     }
@@ -49,7 +60,11 @@ public abstract class MetastoreConnector
     
     public abstract List<String> listTables(String namespace) throws Exception;
         
-    public abstract boolean createTable(Schema schema, PartitionSpec spec, boolean overwrite) throws Exception;
+    public boolean createTable(Schema schema, PartitionSpec spec, boolean overwrite) throws Exception {
+        return createTable(schema, spec, null, overwrite);
+    }
+    
+    public abstract boolean createTable(Schema schema, PartitionSpec spec, SortOrder order, boolean overwrite) throws Exception;
 
     public abstract boolean alterTable(String newSchema) throws Exception;
 
@@ -73,9 +88,30 @@ public abstract class MetastoreConnector
     
     public abstract String writeTable(String record, String outputFile) throws Exception, UnsupportedEncodingException;
     
+    public abstract String writeTable(BufferedReader records, String outputFile) throws Exception;
+    
     public abstract boolean commitTable(String dataFileName) throws Exception;
+    
+    public abstract boolean importFiles(List<String> paths) throws Exception;
+    
+    public abstract boolean upsertTable(String records, List<String> keyColumns) throws Exception;
+    
+    public abstract boolean upsertTable(BufferedReader records, List<String> keyColumns) throws Exception;
 
     public abstract boolean rewriteFiles(String dataFileName) throws Exception;
+    
+    public abstract boolean compactTable(Long minFileSize, Long targetFileSize, Long maxBytes, boolean stitch) throws Exception;
+    
+    public abstract boolean compactDeletes(Integer deleteFileThreshold, Long targetFileSize, Long maxBytes) throws Exception;
+    
+    public abstract boolean sortTable(String sortOrder, List<String> zOrderColumns, Long targetFileSize, Long maxBytes,
+            Expression sampleFilter) throws Exception;
+    
+    public abstract boolean rewriteManifests() throws Exception;
+    
+    public abstract boolean expireSnapshots(Long olderThan, Integer retainLast) throws Exception;
+    
+    public abstract boolean removeOrphanFiles(Long olderThan, boolean dryRun) throws Exception;
 
     public abstract Schema getTableSchema();
     
@@ -97,6 +133,54 @@ public abstract class MetastoreConnector
         this.m_snapshotId = snapshotId;
     }
     
+    /**
+     * Read only a sample of the table
+     * @param sampler
+     */
+    public void setSampler(Sampler sampler) {
+        this.m_sampler = sampler;
+    }
+    
+    /**
+     * Read only rows matching the filter. Files and row groups that cannot hold
+     * matching rows, going by their stats, dictionaries and bloom filters, are skipped.
+     * @param filter
+     */
+    public void setFilter(Expression filter) {
+        this.m_filter = filter;
+    }
+    
+    /**
+     * Retry conflicting commits with these settings instead of the table's
+     * @param retry
+     */
+    public void setCommitRetry(CommitRetry retry) {
+        this.m_commitRetry = retry;
+    }
+    
+    /**
+     * Write Parquet files with these write.parquet.* settings instead of the table's
+     * @param overrides
+     */
+    public void setParquetOverrides(Map<String, String> overrides) {
+        this.m_parquetOverrides = overrides;
+    }
+    
+    /**
+     * Write data files in this format instead of the table default
+     * @param fileFormat parquet, orc or avro
+     */
+    public void setFileFormat(String fileFormat) {
+        this.m_fileFormat = fileFormat;
+    }
+    
+    /**
+     * @return stats of the last commit, including the snapshot it created, null if none
+     */
+    public CommitRetry.Stats getCommitStats() {
+        return m_commitStats;
+    }
+    
     @SuppressWarnings("serial")
     class TableNotFoundException extends RuntimeException {
         public TableNotFoundException(String message) {
@@ -7,6 +7,7 @@ package iceberg_cli.cli;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.List;
 
 import org.apache.commons.cli.ParseException;
 
@@ -50,8 +51,28 @@ public class Parser {
 
     // Get arguments
     public String outputFile() { return cmdParser.outputFile(); }
+    public String inputFile() { return cmdParser.inputFile(); }
     public boolean overwrite() { return cmdParser.overwrite(); }
     public boolean fetchAll() { return cmdParser.fetchAll(); }
+    public String sample() { return cmdParser.sample(); }
+    public String rowSample() { return cmdParser.rowSample(); }
+    public String seed() { return cmdParser.seed(); }
+    public String fileFormat() { return cmdParser.fileFormat(); }
+    public String keyColumns() { return cmdParser.keyColumns(); }
+    public String sortOrder() { return cmdParser.sortOrder(); }
+    public String filter() { return cmdParser.filter(); }
+    public Long minFileSize() { return cmdParser.minFileSize(); }
+    public Long targetFileSize() { return cmdParser.targetFileSize(); }
+    public Long maxBytes() { return cmdParser.maxBytes(); }
+    public boolean stitch() { return cmdParser.stitch(); }
+    public Integer deleteFileThreshold() { return cmdParser.deleteFileThreshold(); }
+    public List<String> zOrderColumns() { return cmdParser.zOrderColumns(); }
+    public String sampleFilter() { return cmdParser.sampleFilter(); }
+    public Long olderThan() { return cmdParser.olderThan(); }
+    public Integer retainLast() { return cmdParser.retainLast(); }
+    public boolean dryRun() { return cmdParser.dryRun(); }
+    public Map<String, String> commitRetry() { return cmdParser.commitRetry(); }
+    public Map<String, String> parquet() { return cmdParser.parquet(); }
     public String namespace() { return cmdParser.namespace(); }
     public String table() { return cmdParser.table(); }
     public String getPositionalArg(String name) { return cmdParser.getPositionalArg(name); }
@@ -66,20 +87,55 @@ public class Parser {
         return i;
     }
     
+    /**
+     * Add the options overriding the commit.retry.* properties of the table
+     * @param command
+     */
+    private static void addCommitRetryOptions(Command command) {
+        command.addOption("--commit-retries", "Times to retry a conflicting commit, commit.retry.num-retries of the table by default");
+        command.addOption("--commit-min-wait-ms", "Minimum wait before retrying a commit, commit.retry.min-wait-ms of the table by default");
+        command.addOption("--commit-max-wait-ms", "Maximum wait before retrying a commit, commit.retry.max-wait-ms of the table by default");
+        command.addOption("--commit-timeout-ms", "Total time to retry a commit, commit.retry.total-timeout-ms of the table by default");
+    }
+    
     private void initializeCommands() {
         m_commands = new HashMap<String, Command>();
         
         Command commit = new Command("commit", "Commit file(s) to a table");
         commit.addOption("--help", "Show this help message and exit");
+        addCommitRetryOptions(commit);
         commit.addArgument("identifier", "Table identifier", true);
         commit.addArgument("data-files", "Data file(s) to commit", true);
         m_commands.put("commit", commit);
         
+        Command compact = new Command("compact", "Compact small data files of a table");
+        compact.addOption("--help", "Show this help message and exit");
+        compact.addOption("--min-file-size", "Compact files smaller than this many bytes, 3/4 of the target file size by default");
+        compact.addOption("--target-file-size", "Size of the compacted files in bytes, write.target-file-size-bytes of the table by default");
+        compact.addOption("--max-bytes", "Compact at most this many bytes of files in one run, run again to continue");
+        compact.addOption("--stitch", "Copy the row groups of Parquet files without decoding them, for files without deletes and of the same schema");
+        compact.addOption("--filter", "Compact only files of the partitions with these column values, as a JSON object of column names and values");
+        addCommitRetryOptions(compact);
+        compact.addArgument("identifier", "Table identifier", true);
+        m_commands.put("compact", compact);
+        
+        Command compactDeletes = new Command("compact-deletes", "Apply delete files to the data files of a table and remove them");
+        compactDeletes.addOption("--help", "Show this help message and exit");
+        compactDeletes.addOption("--delete-file-threshold", "Rewrite data files with at least this many delete files, 1 by default");
+        compactDeletes.addOption("--target-file-size", "Size of the rewritten files in bytes, write.target-file-size-bytes of the table by default");
+        compactDeletes.addOption("--max-bytes", "Rewrite at most this many bytes of files in one run, run again to continue");
+        compactDeletes.addOption("--filter", "Rewrite only files of the partitions with these column values, as a JSON object of column names and values");
+        addCommitRetryOptions(compactDeletes);
+        compactDeletes.addArgument("identifier", "Table identifier", true);
+        m_commands.put("compact-deletes", compactDeletes);
+        
         Command create = new Command("create", "Create a table or a namespace");
         create.addOption("--help", "Show this help message and exit");
         create.addOption("--force", "If table exists, recreate an empty table");
+        create.addOption("--sort-order", "Sort the rows of each data file written by this order");
         create.addArgument("identifier", "Table or namespace identifier", true);
         create.addArgument("schema", "Create a table using this schema");
+        create.addArgument("partition-spec", "Partition the table using this spec");
         m_commands.put("create", create);
         
         Command describe = new Command("describe", "Get details of a table or a namespace");
@@ -90,7 +146,7 @@ public class Parser {
         Command alter = new Command("alter", "Alter a table");
         alter.addOption("--help", "Show this help message and exit");
         alter.addArgument("identifier", "Table or namespace identifier", true);
-        create.addArgument("schema", "Alter a table using this schema");
+        alter.addArgument("schema", "Alter a table using this schema");
         m_commands.put("alter", alter);
 
         Command drop = new Command("drop", "Drop a table or a namespace");
@@ -98,11 +154,33 @@ public class Parser {
         drop.addArgument("identifier", "Table or namespace identifier", true);
         m_commands.put("drop", drop);
         
+        Command expire = new Command("expire-snapshots", "Expire old snapshots of a table and delete their files");
+        expire.addOption("--help", "Show this help message and exit");
+        expire.addOption("--older-than", "Expire snapshots older than this time in milliseconds since the epoch");
+        expire.addOption("--retain-last", "Keep this many of the latest snapshots, expiring all older ones unless --older-than is given");
+        addCommitRetryOptions(expire);
+        expire.addArgument("identifier", "Table identifier", true);
+        m_commands.put("expire-snapshots", expire);
+        
         Command files = new Command("files", "List data files of a table");
         files.addOption("--help", "Show this help message and exit");
         files.addArgument("identifier", "Table identifier", true);
         m_commands.put("files", files);
         
+        Command importFiles = new Command("import", "Import local CSV or Parquet file(s) to a table");
+        importFiles.addOption("--help", "Show this help message and exit");
+        addCommitRetryOptions(importFiles);
+        importFiles.addOption("--compression-codec", "Compression codec of Parquet files (zstd, snappy, gzip, uncompressed), write.parquet.compression-codec of the table by default");
+        importFiles.addOption("--compression-level", "Compression level of the codec, write.parquet.compression-level of the table by default");
+        importFiles.addOption("--row-group-size", "Row group size in bytes, write.parquet.row-group-size-bytes of the table by default");
+        importFiles.addOption("--page-size", "Page size in bytes, write.parquet.page-size-bytes of the table by default");
+        importFiles.addOption("--dict-size", "Dictionary page size in bytes, write.parquet.dict-size-bytes of the table by default");
+        importFiles.addOption("--bloom-filter-columns", "Comma-separated list of columns to write Parquet bloom filters for, write.parquet.bloom-filter-enabled.column.* of the table by default");
+        importFiles.addOption("--bloom-filter-max-bytes", "Maximum size of a bloom filter in bytes, write.parquet.bloom-filter-max-bytes of the table by default");
+        importFiles.addArgument("identifier", "Table identifier", true);
+        importFiles.addArgument("files", "Comma-separated list of files or directories to import, commas in existing paths are kept", true);
+        m_commands.put("import", importFiles);
+        
         Command list = new Command("list", "List tables or namespaces");
         list.addOption("--help", "Show this help message and exit");
         list.addOption("--all", "Show tables in all namespaces");
@@ -121,9 +199,20 @@ public class Parser {
         
         Command read = new Command("read", "Read from a table");
         read.addOption("--help", "Show this help message and exit");
+        read.addOption("--sample", "Read a deterministic fraction (0, 1] of the row groups");
+        read.addOption("--row-sample", "Keep a random fraction (0, 1] of the rows read");
+        read.addOption("--seed", "Seed of the sample, 0 by default");
+        read.addOption("--filter", "Read only rows with these column values, as a JSON object of column names and values");
         read.addArgument("identifier", "Table identifier", true);
         m_commands.put("read", read);
         
+        Command removeOrphans = new Command("remove-orphans", "Delete files of a table that no snapshot refers to");
+        removeOrphans.addOption("--help", "Show this help message and exit");
+        removeOrphans.addOption("--older-than", "Only delete files created before this time in milliseconds since the epoch, 3 days ago by default");
+        removeOrphans.addOption("--dry-run", "List the orphan files without deleting them");
+        removeOrphans.addArgument("identifier", "Table identifier", true);
+        m_commands.put("remove-orphans", removeOrphans);
+        
         Command rename = new Command("rename", "Rename a table a table");
         rename.addOption("--help", "Show this help message and exit");
         rename.addArgument("identifier", "Table identifier", true);
@@ -132,10 +221,17 @@ public class Parser {
         
         Command rewrite = new Command("rewrite", "Rewrite (replace) file(s) in a table");
         rewrite.addOption("--help", "Show this help message and exit");
+        addCommitRetryOptions(rewrite);
         rewrite.addArgument("identifier", "Table identifier", true);
         rewrite.addArgument("data-files", "Data file(s) to delete and data file(s) to add", true);
         m_commands.put("rewrite", rewrite);
 
+        Command rewriteManifests = new Command("rewrite-manifests", "Rewrite small manifests of a table clustered by partition");
+        rewriteManifests.addOption("--help", "Show this help message and exit");
+        addCommitRetryOptions(rewriteManifests);
+        rewriteManifests.addArgument("identifier", "Table identifier", true);
+        m_commands.put("rewrite-manifests", rewriteManifests);
+
         Command schema = new Command("schema", "Fetch schema of a table");
         schema.addOption("--help", "Show this help message and exit");
         schema.addArgument("identifier", "Table identifier", true);
@@ -147,6 +243,18 @@ public class Parser {
         snapshot.addArgument("identifier", "Table identifier", true);
         m_commands.put("snapshot", snapshot);
         
+        Command sort = new Command("sort", "Rewrite data files of a table with their rows sorted or Z-ordered");
+        sort.addOption("--help", "Show this help message and exit");
+        sort.addOption("--sort-order", "Sort the rows by this order, the sort order of the table by default");
+        sort.addOption("--zorder", "Sort the rows by the Z-order of these columns, as a comma-separated list");
+        sort.addOption("--target-file-size", "Size of the sorted files in bytes, write.target-file-size-bytes of the table by default");
+        sort.addOption("--max-bytes", "Sort at most this many bytes of files in one run, at least one partition");
+        sort.addOption("--filter", "Sort only files of the partitions with these column values, as a JSON object of column names and values");
+        sort.addOption("--sample-filter", "Report the files a query with this filter skips before and after sorting, as a JSON object of column names and values");
+        addCommitRetryOptions(sort);
+        sort.addArgument("identifier", "Table identifier", true);
+        m_commands.put("sort", sort);
+        
         Command spec = new Command("spec", "Fetch partition spec of a table");
         spec.addOption("--help", "Show this help message and exit");
         spec.addArgument("identifier", "Table identifier", true);
@@ -162,6 +270,23 @@ public class Parser {
         type.addArgument("identifier", "Table identifier", true);
         m_commands.put("type", type);
         
+        Command upsert = new Command("upsert", "Insert or replace rows of a format version 2 table by key");
+        upsert.addOption("--help", "Show this help message and exit");
+        upsert.addOption("--key", "Comma-separated list of key columns, the identifier fields of the table by default");
+        addCommitRetryOptions(upsert);
+        upsert.addOption("--compression-codec", "Compression codec of Parquet files (zstd, snappy, gzip, uncompressed), write.parquet.compression-codec of the table by default");
+        upsert.addOption("--compression-level", "Compression level of the codec, write.parquet.compression-level of the table by default");
+        upsert.addOption("--row-group-size", "Row group size in bytes, write.parquet.row-group-size-bytes of the table by default");
+        upsert.addOption("--page-size", "Page size in bytes, write.parquet.page-size-bytes of the table by default");
+        upsert.addOption("--dict-size", "Dictionary page size in bytes, write.parquet.dict-size-bytes of the table by default");
+        upsert.addOption("--bloom-filter-columns", "Comma-separated list of columns to write Parquet bloom filters for, write.parquet.bloom-filter-enabled.column.* of the table by default");
+        upsert.addOption("--bloom-filter-max-bytes", "Maximum size of a bloom filter in bytes, write.parquet.bloom-filter-max-bytes of the table by default");
+        upsert.addOption("--input-file", "Read newline-delimited JSON records from this file, - for standard input");
+        upsert.addOption("--file-format", "Format of the data and delete files (parquet, orc, avro), write.format.default of the table by default");
+        upsert.addArgument("identifier", "Table identifier", true);
+        upsert.addArgument("records", "Json string of records to upsert, if no input file is given");
+        m_commands.put("upsert", upsert);
+        
         Command uuid = new Command("uuid", "Fetch uuid of a table");
         uuid.addOption("--help", "Show this help message and exit");
         uuid.addArgument("identifier", "Table identifier", true);
@@ -169,9 +294,19 @@ public class Parser {
         
         Command write = new Command("write", "Write to a table");
         write.addOption("--help", "Show this help message and exit");
+        addCommitRetryOptions(write);
+        write.addOption("--compression-codec", "Compression codec of Parquet files (zstd, snappy, gzip, uncompressed), write.parquet.compression-codec of the table by default");
+        write.addOption("--compression-level", "Compression level of the codec, write.parquet.compression-level of the table by default");
+        write.addOption("--row-group-size", "Row group size in bytes, write.parquet.row-group-size-bytes of the table by default");
+        write.addOption("--page-size", "Page size in bytes, write.parquet.page-size-bytes of the table by default");
+        write.addOption("--dict-size", "Dictionary page size in bytes, write.parquet.dict-size-bytes of the table by default");
+        write.addOption("--bloom-filter-columns", "Comma-separated list of columns to write Parquet bloom filters for, write.parquet.bloom-filter-enabled.column.* of the table by default");
+        write.addOption("--bloom-filter-max-bytes", "Maximum size of a bloom filter in bytes, write.parquet.bloom-filter-max-bytes of the table by default");
         write.addOption("--output-file", "Output file location");
+        write.addOption("--input-file", "Read newline-delimited JSON records from this file, - for standard input");
+        write.addOption("--file-format", "Format of the data files (parquet, orc, avro), write.format.default of the table by default");
         write.addArgument("identifier", "Table identifier", true);
-        write.addArgument("records", "Json string of records to write to a table", true);
+        write.addArgument("records", "Json string of records to write to a table, if no input file is given");
         m_commands.put("write", write);
     }
 }
@@ -4,11 +4,14 @@
 
 package iceberg_cli.cli;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.cli.*;
+import org.apache.iceberg.TableProperties;
 
 import iceberg_cli.cli.commands.Command;
 import iceberg_cli.cli.commands.Parameter;
@@ -18,8 +21,28 @@ public class SubcommandParser {
     private String m_namespace;
     private String m_table;
     private String m_outputFile;
+    private String m_inputFile;
     private boolean m_force;
     private boolean m_allFlag;
+    private String m_sample;
+    private String m_rowSample;
+    private String m_seed;
+    private String m_fileFormat;
+    private String m_keyColumns;
+    private String m_sortOrder;
+    private String m_filter;
+    private Long m_minFileSize;
+    private Long m_targetFileSize;
+    private Long m_maxBytes;
+    private boolean m_stitch;
+    private Integer m_deleteFileThreshold;
+    private List<String> m_zOrderColumns;
+    private String m_sampleFilter;
+    private Long m_olderThan;
+    private Integer m_retainLast;
+    private boolean m_dryRun;
+    private Map<String, String> m_commitRetry = new HashMap<String, String>();
+    private Map<String, String> m_parquet = new HashMap<String, String>();
 
     protected String[] parseOptions(Command command, String[] subCommand) {
         CommandLineParser parser = new DefaultParser();
@@ -27,7 +50,36 @@ public class SubcommandParser {
         options.addOption(Option.builder("h").longOpt("help").desc("Show this help message").build());
         options.addOption(Option.builder("f").longOpt("force").desc("Overwrite an existing table").build());
         options.addOption(Option.builder("o").longOpt("output-file").argName("value").hasArg().desc("File location").build());
+        options.addOption(Option.builder("i").longOpt("input-file").argName("value").hasArg().desc("Input file location, - for standard input").build());
         options.addOption(Option.builder("a").longOpt("all").desc("Show all").build());
+        options.addOption(Option.builder().longOpt("sample").argName("fraction").hasArg().desc("Fraction of row groups to read").build());
+        options.addOption(Option.builder().longOpt("row-sample").argName("fraction").hasArg().desc("Fraction of rows to keep").build());
+        options.addOption(Option.builder().longOpt("seed").argName("value").hasArg().desc("Seed of the sample").build());
+        options.addOption(Option.builder().longOpt("commit-retries").argName("value").hasArg().desc("Times to retry a conflicting commit").build());
+        options.addOption(Option.builder().longOpt("commit-min-wait-ms").argName("value").hasArg().desc("Minimum wait before retrying a commit").build());
+        options.addOption(Option.builder().longOpt("commit-max-wait-ms").argName("value").hasArg().desc("Maximum wait before retrying a commit").build());
+        options.addOption(Option.builder().longOpt("commit-timeout-ms").argName("value").hasArg().desc("Total time to retry a commit").build());
+        options.addOption(Option.builder().longOpt("file-format").argName("parquet|orc|avro").hasArg().desc("Format of the data files written").build());
+        options.addOption(Option.builder().longOpt("key").argName("columns").hasArg().desc("Key columns of an upsert").build());
+        options.addOption(Option.builder().longOpt("sort-order").argName("value").hasArg().desc("Sort order of the table").build());
+        options.addOption(Option.builder().longOpt("compression-codec").argName("zstd|snappy|gzip|uncompressed").hasArg().desc("Compression codec of Parquet files").build());
+        options.addOption(Option.builder().longOpt("compression-level").argName("value").hasArg().desc("Compression level of Parquet files").build());
+        options.addOption(Option.builder().longOpt("row-group-size").argName("bytes").hasArg().desc("Row group size of Parquet files").build());
+        options.addOption(Option.builder().longOpt("page-size").argName("bytes").hasArg().desc("Page size of Parquet files").build());
+        options.addOption(Option.builder().longOpt("dict-size").argName("bytes").hasArg().desc("Dictionary page size of Parquet files").build());
+        options.addOption(Option.builder().longOpt("bloom-filter-columns").argName("columns").hasArg().desc("Columns with bloom filters in Parquet files").build());
+        options.addOption(Option.builder().longOpt("bloom-filter-max-bytes").argName("bytes").hasArg().desc("Maximum size of a bloom filter in Parquet files").build());
+        options.addOption(Option.builder().longOpt("filter").argName("value").hasArg().desc("Rows to read").build());
+        options.addOption(Option.builder().longOpt("min-file-size").argName("bytes").hasArg().desc("Size of the files to compact").build());
+        options.addOption(Option.builder().longOpt("target-file-size").argName("bytes").hasArg().desc("Size of the compacted files").build());
+        options.addOption(Option.builder().longOpt("max-bytes").argName("bytes").hasArg().desc("Bytes to compact in one run").build());
+        options.addOption(Option.builder().longOpt("zorder").argName("columns").hasArg().desc("Columns of a Z-order").build());
+        options.addOption(Option.builder().longOpt("sample-filter").argName("value").hasArg().desc("Sample query filter").build());
+        options.addOption(Option.builder().longOpt("delete-file-threshold").argName("value").hasArg().desc("Number of delete files of a data file").build());
+        options.addOption(Option.builder().longOpt("stitch").desc("Copy row groups of Parquet files without decoding them").build());
+        options.addOption(Option.builder().longOpt("older-than").argName("timestamp").hasArg().desc("Time in milliseconds since the epoch").build());
+        options.addOption(Option.builder().longOpt("retain-last").argName("value").hasArg().desc("Number of snapshots to keep").build());
+        options.addOption(Option.builder().longOpt("dry-run").desc("List the files instead of deleting them").build());
 
         try {
             CommandLine cmd = parser.parse(options, subCommand);
@@ -37,7 +89,41 @@ public class SubcommandParser {
             } else {
                 if (cmd.hasOption("f")) m_force = true;
                 if (cmd.hasOption("o")) m_outputFile = cmd.getOptionValue("o");
+                if (cmd.hasOption("i")) m_inputFile = cmd.getOptionValue("i");
                 if (cmd.hasOption("a")) m_allFlag = true;
+                if (cmd.hasOption("sample")) m_sample = cmd.getOptionValue("sample");
+                if (cmd.hasOption("row-sample")) m_rowSample = cmd.getOptionValue("row-sample");
+                if (cmd.hasOption("seed")) m_seed = cmd.getOptionValue("seed");
+                if (cmd.hasOption("file-format")) m_fileFormat = cmd.getOptionValue("file-format");
+                if (cmd.hasOption("key")) m_keyColumns = cmd.getOptionValue("key");
+                if (cmd.hasOption("sort-order")) m_sortOrder = cmd.getOptionValue("sort-order");
+                // Commit retry options override the table properties of the same name
+                if (cmd.hasOption("commit-retries")) m_commitRetry.put(TableProperties.COMMIT_NUM_RETRIES, cmd.getOptionValue("commit-retries"));
+                if (cmd.hasOption("commit-min-wait-ms")) m_commitRetry.put(TableProperties.COMMIT_MIN_RETRY_WAIT_MS, cmd.getOptionValue("commit-min-wait-ms"));
+                if (cmd.hasOption("commit-max-wait-ms")) m_commitRetry.put(TableProperties.COMMIT_MAX_RETRY_WAIT_MS, cmd.getOptionValue("commit-max-wait-ms"));
+                if (cmd.hasOption("commit-timeout-ms")) m_commitRetry.put(TableProperties.COMMIT_TOTAL_RETRY_TIME_MS, cmd.getOptionValue("commit-timeout-ms"));
+                // Parquet options override the write.parquet.* table properties
+                if (cmd.hasOption("compression-codec")) m_parquet.put(TableProperties.PARQUET_COMPRESSION, cmd.getOptionValue("compression-codec"));
+                if (cmd.hasOption("compression-level")) m_parquet.put(TableProperties.PARQUET_COMPRESSION_LEVEL, cmd.getOptionValue("compression-level"));
+                if (cmd.hasOption("row-group-size")) m_parquet.put(TableProperties.PARQUET_ROW_GROUP_SIZE_BYTES, cmd.getOptionValue("row-group-size"));
+                if (cmd.hasOption("page-size")) m_parquet.put(TableProperties.PARQUET_PAGE_SIZE_BYTES, cmd.getOptionValue("page-size"));
+                if (cmd.hasOption("dict-size")) m_parquet.put(TableProperties.PARQUET_DICT_SIZE_BYTES, cmd.getOptionValue("dict-size"));
+                if (cmd.hasOption("bloom-filter-max-bytes")) m_parquet.put(TableProperties.PARQUET_BLOOM_FILTER_MAX_BYTES, cmd.getOptionValue("bloom-filter-max-bytes"));
+                if (cmd.hasOption("bloom-filter-columns")) {
+                    for (String column : cmd.getOptionValue("bloom-filter-columns").split(","))
+                        m_parquet.put(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX + column.trim(), "true");
+                }
+                if (cmd.hasOption("filter")) m_filter = cmd.getOptionValue("filter");
+                if (cmd.hasOption("min-file-size")) m_minFileSize = Long.valueOf(cmd.getOptionValue("min-file-size"));
+                if (cmd.hasOption("target-file-size")) m_targetFileSize = Long.valueOf(cmd.getOptionValue("target-file-size"));
+                if (cmd.hasOption("max-bytes")) m_maxBytes = Long.valueOf(cmd.getOptionValue("max-bytes"));
+                if (cmd.hasOption("stitch")) m_stitch = true;
+                if (cmd.hasOption("delete-file-threshold")) m_deleteFileThreshold = Integer.valueOf(cmd.getOptionValue("delete-file-threshold"));
+                if (cmd.hasOption("zorder")) m_zOrderColumns = Arrays.stream(cmd.getOptionValue("zorder").split(",")).map(String::trim).collect(Collectors.toList());
+                if (cmd.hasOption("sample-filter")) m_sampleFilter = cmd.getOptionValue("sample-filter");
+                if (cmd.hasOption("older-than")) m_olderThan = Long.valueOf(cmd.getOptionValue("older-than"));
+                if (cmd.hasOption("retain-last")) m_retainLast = Integer.valueOf(cmd.getOptionValue("retain-last"));
+                if (cmd.hasOption("dry-run")) m_dryRun = true;
                 
                 return cmd.getArgs();
             }
@@ -108,8 +194,28 @@ public class SubcommandParser {
     
     // Getter functions
     public String outputFile() { return m_outputFile; }
+    public String inputFile() { return m_inputFile; }
     public boolean overwrite() { return m_force; }
     public boolean fetchAll() { return m_allFlag; }
+    public String sample() { return m_sample; }
+    public String rowSample() { return m_rowSample; }
+    public String seed() { return m_seed; }
+    public String fileFormat() { return m_fileFormat; }
+    public String keyColumns() { return m_keyColumns; }
+    public String sortOrder() { return m_sortOrder; }
+    public String filter() { return m_filter; }
+    public Long minFileSize() { return m_minFileSize; }
+    public Long targetFileSize() { return m_targetFileSize; }
+    public Long maxBytes() { return m_maxBytes; }
+    public boolean stitch() { return m_stitch; }
+    public Integer deleteFileThreshold() { return m_deleteFileThreshold; }
+    public List<String> zOrderColumns() { return m_zOrderColumns; }
+    public String sampleFilter() { return m_sampleFilter; }
+    public Long olderThan() { return m_olderThan; }
+    public Integer retainLast() { return m_retainLast; }
+    public boolean dryRun() { return m_dryRun; }
+    public Map<String, String> commitRetry() { return m_commitRetry; }
+    public Map<String, String> parquet() { return m_parquet; }
     public String namespace() { return m_namespace; }
     public String table() { return m_table; }
     public String getPositionalArg(String name) { return m_positionalArgs.get(name); }
@@ -0,0 +1,125 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.iceberg.io.BulkDeletionFailureException;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.SupportsBulkOperations;
+
+/**
+ *
+ * Deletes files in batches on a bounded pool of threads. Batches go to the
+ * bulk delete of the FileIO when it has one, e.g. S3 DeleteObjects requests
+ * of up to 1000 keys, and are deleted file by file otherwise. Callers block
+ * once every thread is busy and another batch is queued, so that listing
+ * millions of files doesn't hold them all in memory.
+ *
+ */
+public class BulkDeleter implements Consumer<String>, Closeable {
+    private static final int BATCH_SIZE = 1000;
+    private final FileIO io;
+    private final ExecutorService pool;
+    private final Semaphore pending;
+    private final AtomicLong numDeleted = new AtomicLong();
+    private final AtomicLong numFailed = new AtomicLong();
+    private List<String> batch = new ArrayList<String>(BATCH_SIZE);
+
+    /**
+     * @param io
+     * @param numThreads number of batches deleted at once
+     */
+    public BulkDeleter(FileIO io, int numThreads) {
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("Invalid number of delete threads (negative or 0): " + numThreads);
+        this.io = io;
+        this.pool = Executors.newFixedThreadPool(numThreads);
+        this.pending = new Semaphore(numThreads + 1);
+    }
+
+    /**
+     * Delete the file with the next batch
+     */
+    @Override
+    public synchronized void accept(String path) {
+        batch.add(path);
+        if (batch.size() >= BATCH_SIZE)
+            flush();
+    }
+
+    private void flush() {
+        List<String> paths = batch;
+        batch = new ArrayList<String>(BATCH_SIZE);
+        pending.acquireUninterruptibly();
+        pool.execute(() -> {
+            try {
+                delete(paths);
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    private void delete(List<String> paths) {
+        if (io instanceof SupportsBulkOperations) {
+            try {
+                ((SupportsBulkOperations) io).deleteFiles(paths);
+                numDeleted.addAndGet(paths.size());
+            } catch (BulkDeletionFailureException e) {
+                numDeleted.addAndGet(paths.size() - e.numberFailedObjects());
+                numFailed.addAndGet(e.numberFailedObjects());
+            }
+            return;
+        }
+        for (String path : paths) {
+            try {
+                io.deleteFile(path);
+                numDeleted.incrementAndGet();
+            } catch (RuntimeException e) {
+                System.err.println("Error deleting " + path + ": " + e.getMessage());
+                numFailed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Delete the last batch and wait for all batches to be deleted
+     */
+    @Override
+    public synchronized void close() {
+        if (!batch.isEmpty())
+            flush();
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of files deleted
+     */
+    public long numDeleted() {
+        return numDeleted.get();
+    }
+
+    /**
+     * @return number of files that couldn't be deleted
+     */
+    public long numFailed() {
+        return numFailed.get();
+    }
+}
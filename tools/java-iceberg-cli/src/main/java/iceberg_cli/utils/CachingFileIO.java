@@ -0,0 +1,127 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import org.apache.iceberg.BaseTable;
+import org.apache.iceberg.HasTableOperations;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableMetadata;
+import org.apache.iceberg.TableOperations;
+import org.apache.iceberg.encryption.EncryptionManager;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.InputFile;
+import org.apache.iceberg.io.LocationProvider;
+import org.apache.iceberg.io.OutputFile;
+import org.apache.iceberg.io.SeekableInputStream;
+
+/**
+ *
+ * Read-through FileIO that serves files from a LocalFileCache. Files are
+ * downloaded when they are first opened, so footers and row groups of cached
+ * files are read from local disk. Writes and deletes go to the wrapped FileIO.
+ *
+ */
+public class CachingFileIO implements FileIO {
+    private static final long serialVersionUID = 1L;
+    private final FileIO io;
+    private final LocalFileCache cache;
+
+    public CachingFileIO(FileIO io, LocalFileCache cache) {
+        this.io = io;
+        this.cache = cache;
+    }
+
+    /**
+     * Get a view of the table that reads its files through the cache
+     * @param table
+     * @param cache
+     * @return table using a CachingFileIO
+     */
+    public static Table wrap(Table table, LocalFileCache cache) {
+        TableOperations ops = ((HasTableOperations) table).operations();
+        FileIO cachingIO = new CachingFileIO(ops.io(), cache);
+        TableOperations cachingOps = new TableOperations() {
+            public TableMetadata current() { return ops.current(); }
+            public TableMetadata refresh() { return ops.refresh(); }
+            public void commit(TableMetadata base, TableMetadata metadata) { ops.commit(base, metadata); }
+            public FileIO io() { return cachingIO; }
+            public EncryptionManager encryption() { return ops.encryption(); }
+            public String metadataFileLocation(String fileName) { return ops.metadataFileLocation(fileName); }
+            public LocationProvider locationProvider() { return ops.locationProvider(); }
+            public long newSnapshotId() { return ops.newSnapshotId(); }
+        };
+        return new BaseTable(cachingOps, table.name());
+    }
+
+    public InputFile newInputFile(String path) {
+        return new CachedInputFile(io.newInputFile(path), null);
+    }
+
+    public InputFile newInputFile(String path, long length) {
+        return new CachedInputFile(io.newInputFile(path, length), length);
+    }
+
+    public OutputFile newOutputFile(String path) {
+        return io.newOutputFile(path);
+    }
+
+    public void deleteFile(String path) {
+        io.deleteFile(path);
+    }
+
+    public Map<String, String> properties() {
+        return io.properties();
+    }
+
+    /**
+     * The wrapped FileIO belongs to the table and is not closed here
+     */
+    public void close() {
+    }
+
+    /**
+     * Remote file whose content is read from the cache
+     */
+    private class CachedInputFile implements InputFile {
+        private final InputFile input;
+        private Long length;
+
+        CachedInputFile(InputFile input, Long length) {
+            this.input = input;
+            this.length = length;
+        }
+
+        public long getLength() {
+            if (length == null)
+                length = input.getLength();
+            return length;
+        }
+
+        public SeekableInputStream newStream() {
+            try {
+                File file = cache.get(input, getLength());
+                // Files larger than the cache are read directly
+                if (file == null)
+                    return input.newStream();
+                return org.apache.iceberg.Files.localInput(file).newStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error caching " + input.location(), e);
+            }
+        }
+
+        public String location() {
+            return input.location();
+        }
+
+        public boolean exists() {
+            return input.exists();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.iceberg.BaseTable;
+import org.apache.iceberg.HasTableOperations;
+import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableMetadata;
+import org.apache.iceberg.TableOperations;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.encryption.EncryptionManager;
+import org.apache.iceberg.exceptions.CommitFailedException;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.LocationProvider;
+import org.apache.iceberg.util.PropertyUtil;
+
+/**
+ *
+ * Runs commits with the table's commit.retry.* settings, or per-call overrides
+ * of them, and records the attempts, conflicts and time spent retrying. Iceberg
+ * only retries inside a commit with the table's settings, so conflicts are
+ * passed up from the table operations instead and retried here, running the
+ * whole operation again on the refreshed table.
+ *
+ */
+public class CommitRetry {
+    public static final List<String> PROPERTIES = List.of(
+            TableProperties.COMMIT_NUM_RETRIES,
+            TableProperties.COMMIT_MIN_RETRY_WAIT_MS,
+            TableProperties.COMMIT_MAX_RETRY_WAIT_MS,
+            TableProperties.COMMIT_TOTAL_RETRY_TIME_MS);
+
+    private final Map<String, String> overrides;
+
+    /**
+     * Operation to run on each attempt, building its changes from scratch
+     */
+    public interface Operation {
+        void commit(Table table) throws Exception;
+    }
+
+    /**
+     * Outcome of a commit
+     */
+    public static class Stats {
+        private int attempts = 0;
+        private int conflicts = 0;
+        private long retryTimeMs = 0;
+        private Long snapshotId = null;
+
+        public int attempts() { return attempts; }
+        public int conflicts() { return conflicts; }
+        public long retryTimeMs() { return retryTimeMs; }
+        public Long snapshotId() { return snapshotId; }
+
+        /**
+         * Add the attempts of a later commit, taking its snapshot
+         * @param other
+         */
+        public void add(Stats other) {
+            attempts += other.attempts;
+            conflicts += other.conflicts;
+            retryTimeMs += other.retryTimeMs;
+            snapshotId = other.snapshotId;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Commit attempts: %d, conflicts: %d, retry time: %d ms", attempts, conflicts, retryTimeMs);
+        }
+    }
+
+    public CommitRetry() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * @param overrides values of commit.retry.* table properties to use instead of the table's
+     */
+    public CommitRetry(Map<String, String> overrides) {
+        for (Map.Entry<String, String> entry : overrides.entrySet()) {
+            if (!PROPERTIES.contains(entry.getKey()))
+                throw new IllegalArgumentException("Unknown commit retry setting: " + entry.getKey());
+            parse(entry.getKey(), entry.getValue());
+        }
+        this.overrides = new HashMap<String, String>(overrides);
+    }
+
+    private static long parse(String name, String value) {
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= 0)
+                return parsed;
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+    }
+
+    private long setting(Table table, String name, long defaultValue) {
+        String value = overrides.get(name);
+        if (value == null)
+            value = table.properties().get(name);
+        return (value == null) ? defaultValue : parse(name, value);
+    }
+
+    /**
+     * Run the operation, retrying it while it fails with a commit conflict and the
+     * retry settings allow
+     * @param table
+     * @param operation
+     * @return stats of the commit
+     * @throws Exception the last conflict if retries ran out, or the error of the operation
+     */
+    public Stats run(Table table, Operation operation) throws Exception {
+        int numRetries = (int) setting(table, TableProperties.COMMIT_NUM_RETRIES, TableProperties.COMMIT_NUM_RETRIES_DEFAULT);
+        long minWaitMs = setting(table, TableProperties.COMMIT_MIN_RETRY_WAIT_MS, TableProperties.COMMIT_MIN_RETRY_WAIT_MS_DEFAULT);
+        long maxWaitMs = setting(table, TableProperties.COMMIT_MAX_RETRY_WAIT_MS, TableProperties.COMMIT_MAX_RETRY_WAIT_MS_DEFAULT);
+        long totalTimeoutMs = setting(table, TableProperties.COMMIT_TOTAL_RETRY_TIME_MS, TableProperties.COMMIT_TOTAL_RETRY_TIME_MS_DEFAULT);
+
+        Stats stats = new Stats();
+        Table counted = new BaseTable(new CountingOperations(((HasTableOperations) table).operations(), stats), table.name());
+        long start = System.currentTimeMillis();
+        long firstConflict = 0;
+        while (true) {
+            try {
+                operation.commit(counted);
+                break;
+            } catch (Conflict e) {
+                long now = System.currentTimeMillis();
+                if (stats.conflicts == 1)
+                    firstConflict = now;
+                if (stats.conflicts > numRetries)
+                    throw e.cause;
+                // Exponential backoff with jitter, so that conflicting writers don't retry in lockstep
+                long waitMs = Math.min(minWaitMs << Math.min(stats.conflicts - 1, 30), maxWaitMs);
+                waitMs += (long) (waitMs * 0.1 * ThreadLocalRandom.current().nextDouble());
+                if (now - start + waitMs > totalTimeoutMs)
+                    throw e.cause;
+                Thread.sleep(waitMs);
+                counted.refresh();
+            }
+        }
+        if (stats.conflicts > 0)
+            stats.retryTimeMs = System.currentTimeMillis() - firstConflict;
+
+        table.refresh();
+        return stats;
+    }
+
+    /**
+     * Conflict passed up through Iceberg, which only retries CommitFailedException
+     */
+    @SuppressWarnings("serial")
+    private static class Conflict extends RuntimeException {
+        private final CommitFailedException cause;
+
+        Conflict(CommitFailedException cause) {
+            super(cause.getMessage(), cause);
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * Table operations counting commit attempts and conflicts
+     */
+    private static class CountingOperations implements TableOperations {
+        private final TableOperations ops;
+        private final Stats stats;
+
+        CountingOperations(TableOperations ops, Stats stats) {
+            this.ops = ops;
+            this.stats = stats;
+        }
+
+        @Override
+        public TableMetadata current() {
+            return ops.current();
+        }
+
+        @Override
+        public TableMetadata refresh() {
+            return ops.refresh();
+        }
+
+        @Override
+        public void commit(TableMetadata base, TableMetadata metadata) {
+            stats.attempts++;
+            try {
+                ops.commit(base, metadata);
+            } catch (CommitFailedException e) {
+                stats.conflicts++;
+                throw new Conflict(e);
+            }
+            // The snapshot of this commit, the table may have moved on by the time it is read again
+            Snapshot snapshot = metadata.currentSnapshot();
+            stats.snapshotId = (snapshot == null) ? null : snapshot.snapshotId();
+        }
+
+        @Override
+        public FileIO io() {
+            return ops.io();
+        }
+
+        @Override
+        public EncryptionManager encryption() {
+            return ops.encryption();
+        }
+
+        @Override
+        public String metadataFileLocation(String fileName) {
+            return ops.metadataFileLocation(fileName);
+        }
+
+        @Override
+        public LocationProvider locationProvider() {
+            return ops.locationProvider();
+        }
+
+        @Override
+        public TableOperations temp(TableMetadata uncommittedMetadata) {
+            return ops.temp(uncommittedMetadata);
+        }
+
+        @Override
+        public long newSnapshotId() {
+            return ops.newSnapshotId();
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.DeleteFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.ManifestFiles;
+import org.apache.iceberg.ManifestReader;
+import org.apache.iceberg.MetricsConfig;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.RewriteFiles;
+import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.Transaction;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.exceptions.CommitStateUnknownException;
+import org.apache.iceberg.expressions.Expression;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.InputFile;
+import org.apache.iceberg.mapping.NameMapping;
+import org.apache.iceberg.mapping.NameMappingParser;
+import org.apache.iceberg.parquet.ParquetUtil;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+
+import com.google.common.collect.Iterables;
+
+import iceberg_cli.utils.reader.TableReader;
+import iceberg_cli.utils.writer.ParquetSettings;
+import iceberg_cli.utils.writer.DataWriter;
+import iceberg_cli.utils.writer.RollingDataWriter;
+import iceberg_cli.utils.writer.SortingDataWriter;
+
+/**
+ *
+ * Compacts the small data files of a table. Files below the minimum size are
+ * grouped by partition and packed into bins of about the target size, each
+ * rewritten as one file with deletes applied. Bins are rewritten in parallel
+ * and each partition is committed on its own, so a failed or capped run keeps
+ * the partitions it finished and the next run picks up the files left.
+ * Parquet bins can instead be stitched: their row groups are copied as they
+ * are, still compressed and encoded, into the new file, which only costs the
+ * I/O. Stitched files keep the row groups of the small files, and lose their
+ * page indexes and bloom filters.
+ * In sort mode all files of each partition are rewritten instead, their rows
+ * sorted by a linear order or a Z-order with an external sort, so that the new
+ * files hold narrow ranges of the sort columns.
+ * In delete mode the data files with many delete files attached are rewritten
+ * with their deletes applied, whatever their size, and the delete files no
+ * longer needed by any data file are dropped in the same, single commit.
+ *
+ */
+public class Compactor {
+    private final Table table;
+    private final FileIO io;
+    private final long minFileSize;
+    private final long targetFileSize;
+    private final long maxBytes;
+    private Supplier<Comparator<Record>> comparators = null;
+    private int sortBufferRows = 0;
+    private int deleteFileThreshold = 0;
+
+    /**
+     * Files of one partition rewritten together
+     */
+    static class Bin {
+        private final PartitionSpec spec;
+        private final DataFile first;
+        private final List<FileScanTask> tasks = new ArrayList<FileScanTask>();
+        private long bytes = 0;
+
+        Bin(PartitionSpec spec, DataFile first) {
+            this.spec = spec;
+            this.first = first;
+        }
+
+        List<FileScanTask> tasks() { return tasks; }
+        long bytes() { return bytes; }
+        String partitionPath() { return spec.isUnpartitioned() ? "" : spec.partitionToPath(first.partition()); }
+    }
+
+    /**
+     * Outcome of rewriting a bin
+     */
+    private static class Rewrite {
+        private final Bin bin;
+        private List<DataFile> dataFiles = null;
+        private Exception error = null;
+        private boolean stitched = false;
+
+        Rewrite(Bin bin) {
+            this.bin = bin;
+        }
+    }
+
+    /**
+     * @param table
+     * @param io used to write the new files
+     * @param minFileSize files smaller than this are compacted
+     * @param targetFileSize size of the bins
+     * @param maxBytes maximum size of the files rewritten in one run
+     */
+    public Compactor(Table table, FileIO io, long minFileSize, long targetFileSize, long maxBytes) {
+        if (minFileSize <= 0 || targetFileSize <= 0 || maxBytes <= 0)
+            throw new IllegalArgumentException(String.format("Invalid compaction sizes (negative or 0): min file size %d, "
+                    + "target file size %d, max bytes %d", minFileSize, targetFileSize, maxBytes));
+        if (minFileSize > targetFileSize)
+            throw new IllegalArgumentException(String.format("Min file size %d is larger than the target file size %d",
+                    minFileSize, targetFileSize));
+        this.table = table;
+        this.io = io;
+        this.minFileSize = minFileSize;
+        this.targetFileSize = targetFileSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Rewrite all files of each partition sorted instead of bin-packing the small files
+     * @param comparators returns a comparator of the records for each rewriting thread
+     * @param bufferRows number of records each thread sorts in memory before spilling to disk
+     */
+    public void sortBy(Supplier<Comparator<Record>> comparators, int bufferRows) {
+        if (bufferRows <= 0)
+            throw new IllegalArgumentException("Invalid number of sort buffer rows (negative or 0): " + bufferRows);
+        if (deleteFileThreshold > 0)
+            throw new IllegalArgumentException("Cannot sort and apply deletes in the same run");
+        this.comparators = comparators;
+        this.sortBufferRows = bufferRows;
+    }
+
+    /**
+     * Rewrite the data files with deletes instead of bin-packing the small files,
+     * and drop the delete files left unused, all in one commit
+     * @param threshold data files with at least this many delete files attached are rewritten
+     */
+    public void applyDeletes(int threshold) {
+        if (threshold <= 0)
+            throw new IllegalArgumentException("Invalid delete file threshold (negative or 0): " + threshold);
+        if (comparators != null)
+            throw new IllegalArgumentException("Cannot sort and apply deletes in the same run");
+        this.deleteFileThreshold = threshold;
+    }
+
+    /**
+     * Count the files a scan with the predicate would read, going by their stats
+     * @param filter files to count
+     * @param predicate sample predicate of a query
+     * @return files skipped of the files counted
+     * @throws Exception
+     */
+    public String fileSkipping(Expression filter, Expression predicate) throws Exception {
+        long numFiles;
+        long numRead;
+        try (CloseableIterable<FileScanTask> tasks = table.newScan().filter(filter).planFiles()) {
+            numFiles = Iterables.size(tasks);
+        }
+        try (CloseableIterable<FileScanTask> tasks = table.newScan().filter(Expressions.and(filter, predicate)).planFiles()) {
+            numRead = Iterables.size(tasks);
+        }
+        double ratio = (numFiles == 0) ? 0 : 100.0 * (numFiles - numRead) / numFiles;
+        return String.format("%d of %d files skipped (%.1f%%)", numFiles - numRead, numFiles, ratio);
+    }
+
+    /**
+     * Pack the small files of each partition into bins, largest files first. Bins
+     * of a single file are dropped since rewriting them would not reduce the files.
+     * In sort mode each partition is one bin of all its files. In delete mode
+     * the files with enough deletes are packed, and single-file bins are kept.
+     * @param tasks one task per data file
+     * @return bins in partition order
+     */
+    List<Bin> plan(Iterable<FileScanTask> tasks) {
+        Map<String, List<FileScanTask>> partitions = new LinkedHashMap<String, List<FileScanTask>>();
+        for (FileScanTask task : tasks) {
+            DataFile file = task.file();
+            if (deleteFileThreshold > 0) {
+                if (task.deletes().size() < deleteFileThreshold)
+                    continue;
+            } else if (comparators == null && file.fileSizeInBytes() >= minFileSize) {
+                continue;
+            }
+            PartitionSpec spec = table.specs().get(file.specId());
+            String key = file.specId() + "/" + spec.partitionToPath(file.partition());
+            partitions.computeIfAbsent(key, k -> new ArrayList<FileScanTask>()).add(task);
+        }
+
+        List<Bin> bins = new ArrayList<Bin>();
+        for (List<FileScanTask> partitionTasks : partitions.values()) {
+            if (comparators != null) {
+                Bin bin = new Bin(table.specs().get(partitionTasks.get(0).file().specId()), partitionTasks.get(0).file());
+                for (FileScanTask task : partitionTasks) {
+                    bin.tasks.add(task);
+                    bin.bytes += task.file().fileSizeInBytes();
+                }
+                bins.add(bin);
+                continue;
+            }
+            partitionTasks.sort(Comparator.comparingLong((FileScanTask task) -> task.file().fileSizeInBytes()).reversed());
+            List<Bin> partitionBins = new ArrayList<Bin>();
+            for (FileScanTask task : partitionTasks) {
+                long size = task.file().fileSizeInBytes();
+                Bin fit = null;
+                for (Bin bin : partitionBins) {
+                    if (bin.bytes + size <= targetFileSize) {
+                        fit = bin;
+                        break;
+                    }
+                }
+                if (fit == null) {
+                    fit = new Bin(table.specs().get(task.file().specId()), task.file());
+                    partitionBins.add(fit);
+                }
+                fit.tasks.add(task);
+                fit.bytes += size;
+            }
+            for (Bin bin : partitionBins) {
+                if (bin.tasks.size() > 1 || deleteFileThreshold > 0)
+                    bins.add(bin);
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * Compact the small files matching the filter
+     * @param filter selects the files to compact, use partition columns to compact some partitions
+     * @param format format of the new files
+     * @param settings settings of Parquet files
+     * @param newFilePath returns the location of a new file given its partition path
+     * @param retry settings of the partition commits
+     * @param numThreads number of bins rewritten at once
+     * @param stitch copy the row groups of Parquet bins without decoding them, when the files have no deletes and the same schema
+     * @return stats of the partition commits, null if nothing was committed
+     * @throws Exception if no partition could be committed, or the commit failed in delete mode
+     */
+    public CommitRetry.Stats compact(Expression filter, FileFormat format, ParquetSettings settings,
+            Function<String, String> newFilePath, CommitRetry retry, int numThreads, boolean stitch) throws Exception {
+        Snapshot start = table.currentSnapshot();
+        if (start == null) {
+            System.out.println("The table has no files to compact");
+            return null;
+        }
+
+        List<Bin> bins;
+        try (CloseableIterable<FileScanTask> tasks = table.newScan().useSnapshot(start.snapshotId()).filter(filter).planFiles()) {
+            bins = plan(tasks);
+        }
+        // Stay within the byte cap, leaving the other bins to the next run
+        List<Bin> selected = new ArrayList<Bin>();
+        long bytes = 0;
+        for (Bin bin : bins) {
+            // At least one bin, so that a partition larger than the cap still gets sorted
+            if (bytes + bin.bytes > maxBytes && (comparators == null || !selected.isEmpty()))
+                break;
+            selected.add(bin);
+            bytes += bin.bytes;
+        }
+        int numFiles = selected.stream().mapToInt(bin -> bin.tasks.size()).sum();
+        System.out.println(String.format("Compacting %d files of %d bytes in %d bins", numFiles, bytes, selected.size()));
+        if (selected.size() < bins.size())
+            System.out.println(String.format("Leaving %d bins over the limit of %d bytes for the next run", bins.size() - selected.size(), maxBytes));
+        if (selected.isEmpty())
+            return null;
+
+        List<Rewrite> rewrites = ParallelUtils.map(selected, numThreads,
+                bin -> rewrite(bin, format, settings, newFilePath, stitch));
+        if (stitch) {
+            long numStitched = rewrites.stream().filter(rewrite -> rewrite.stitched).count();
+            System.out.println(String.format("Stitched the row groups of %d bins, rewrote %d bins", numStitched, rewrites.size() - numStitched));
+        }
+        if (deleteFileThreshold > 0)
+            return commitWithDeletes(start, rewrites, retry, numThreads);
+
+        // Commit each partition on its own, so that one failure doesn't lose the others
+        Map<String, List<Rewrite>> partitions = new LinkedHashMap<String, List<Rewrite>>();
+        for (Rewrite rewrite : rewrites)
+            partitions.computeIfAbsent(rewrite.bin.first.specId() + "/" + rewrite.bin.partitionPath(), k -> new ArrayList<Rewrite>()).add(rewrite);
+        CommitRetry.Stats stats = null;
+        Exception failure = null;
+        int numCommitted = 0;
+        int numNewFiles = 0;
+        for (Map.Entry<String, List<Rewrite>> partition : partitions.entrySet()) {
+            Set<DataFile> filesToDelete = new HashSet<DataFile>();
+            Set<DataFile> filesToAdd = new HashSet<DataFile>();
+            Exception error = null;
+            for (Rewrite rewrite : partition.getValue()) {
+                if (rewrite.error != null)
+                    error = rewrite.error;
+                for (FileScanTask task : rewrite.bin.tasks)
+                    filesToDelete.add(task.file());
+                if (rewrite.dataFiles != null)
+                    filesToAdd.addAll(rewrite.dataFiles);
+            }
+            try {
+                if (error != null)
+                    throw error;
+                CommitRetry.Stats partitionStats = retry.run(table, retryTable -> {
+                    Transaction transaction = retryTable.newTransaction();
+                    // Fail if rows of the files were deleted since the files were read
+                    RewriteFiles rewrite = transaction.newRewrite().validateFromSnapshot(start.snapshotId());
+                    // Keep the sequence number of the rows, so that later equality deletes still apply to them
+                    if (start.sequenceNumber() > 0)
+                        rewrite.rewriteFiles(filesToDelete, filesToAdd, start.sequenceNumber());
+                    else
+                        rewrite.rewriteFiles(filesToDelete, filesToAdd);
+                    rewrite.commit();
+                    transaction.commitTransaction();
+                });
+                if (stats == null)
+                    stats = partitionStats;
+                else
+                    stats.add(partitionStats);
+                numCommitted++;
+                numNewFiles += filesToAdd.size();
+            } catch (Exception e) {
+                System.err.println("Error compacting partition " + partition.getKey() + ": " + e.getMessage());
+                // The commit may have succeeded if its state is unknown, then the new files are part of the table
+                if (!(e instanceof CommitStateUnknownException)) {
+                    for (DataFile file : filesToAdd)
+                        io.deleteFile(file.path().toString());
+                }
+                failure = e;
+            }
+        }
+        System.out.println(String.format("Compacted %d partitions into %d files", numCommitted, numNewFiles));
+        if (numCommitted == 0 && failure != null)
+            throw failure;
+        if (failure != null)
+            System.out.println(String.format("%d partitions failed, run again to retry them", partitions.size() - numCommitted));
+        return stats;
+    }
+
+    /**
+     * Find the delete files of the snapshot that no data file needs once the rewritten files are replaced
+     * @param rewritten paths of the data files rewritten
+     * @param numThreads number of delete manifests read at once
+     */
+    private Set<DeleteFile> unusedDeleteFiles(Snapshot snapshot, Set<String> rewritten, int numThreads) throws Exception {
+        Map<String, DeleteFile> deleteFiles = new ConcurrentHashMap<String, DeleteFile>();
+        Map<Integer, PartitionSpec> specs = table.specs();
+        ParallelUtils.map(snapshot.deleteManifests(table.io()), numThreads, manifest -> {
+            try (ManifestReader<DeleteFile> reader = ManifestFiles.readDeleteManifest(manifest, table.io(), specs)) {
+                // Copied since the reader reuses the file
+                for (DeleteFile file : reader)
+                    deleteFiles.put(file.path().toString(), file.copyWithoutStats());
+            }
+            return null;
+        });
+        // All data files of the snapshot, not only the filtered ones, since a delete file may apply to any of them
+        try (CloseableIterable<FileScanTask> tasks = table.newScan().useSnapshot(snapshot.snapshotId()).planFiles()) {
+            for (FileScanTask task : tasks) {
+                if (rewritten.contains(task.file().path().toString()))
+                    continue;
+                for (DeleteFile file : task.deletes())
+                    deleteFiles.remove(file.path().toString());
+            }
+        }
+        return new HashSet<DeleteFile>(deleteFiles.values());
+    }
+
+    /**
+     * Commit the rewritten bins together with the removal of the delete files left unused
+     */
+    private CommitRetry.Stats commitWithDeletes(Snapshot start, List<Rewrite> rewrites, CommitRetry retry, int numThreads) throws Exception {
+        Set<DataFile> filesToDelete = new HashSet<DataFile>();
+        Set<DataFile> filesToAdd = new HashSet<DataFile>();
+        Set<String> rewritten = new HashSet<String>();
+        Exception failure = null;
+        for (Rewrite rewrite : rewrites) {
+            // Files of failed bins keep their deletes, and so do the delete files they need
+            if (rewrite.error != null) {
+                System.err.println("Error rewriting files of partition " + rewrite.bin.partitionPath() + ": " + rewrite.error.getMessage());
+                failure = rewrite.error;
+                continue;
+            }
+            for (FileScanTask task : rewrite.bin.tasks) {
+                filesToDelete.add(task.file());
+                rewritten.add(task.file().path().toString());
+            }
+            filesToAdd.addAll(rewrite.dataFiles);
+        }
+        if (filesToDelete.isEmpty())
+            throw failure;
+
+        CommitRetry.Stats stats;
+        Set<DeleteFile> deletesToDelete;
+        try {
+            deletesToDelete = unusedDeleteFiles(start, rewritten, numThreads);
+            stats = retry.run(table, retryTable -> {
+                Transaction transaction = retryTable.newTransaction();
+                // Fail if rows of the files were deleted since the files were read
+                transaction.newRewrite()
+                    .validateFromSnapshot(start.snapshotId())
+                    .rewriteFiles(filesToDelete, deletesToDelete, filesToAdd, Collections.emptySet())
+                    .commit();
+                transaction.commitTransaction();
+            });
+        } catch (CommitStateUnknownException e) {
+            // The commit may have succeeded, so the new files may be part of the table
+            throw e;
+        } catch (Exception e) {
+            for (DataFile file : filesToAdd)
+                io.deleteFile(file.path().toString());
+            throw e;
+        }
+        System.out.println(String.format("Rewrote %d data files with deletes into %d files, removed %d delete files",
+                filesToDelete.size(), filesToAdd.size(), deletesToDelete.size()));
+        if (failure != null)
+            System.out.println("Some partitions failed, run again to retry them");
+        return stats;
+    }
+
+    /**
+     * Rewrite the live rows of a bin into target-sized files
+     */
+    private Rewrite rewrite(Bin bin, FileFormat format, ParquetSettings settings, Function<String, String> newFilePath, boolean stitch) {
+        Rewrite rewrite = new Rewrite(bin);
+        String partitionPath = bin.partitionPath();
+        if (stitch && comparators == null && format == FileFormat.PARQUET) {
+            try {
+                rewrite.dataFiles = stitch(bin, newFilePath.apply(partitionPath));
+            } catch (Exception e) {
+                rewrite.error = e;
+                return rewrite;
+            }
+            if (rewrite.dataFiles != null) {
+                rewrite.stitched = true;
+                return rewrite;
+            }
+        }
+        DataWriter writer = new RollingDataWriter(io, table.schema(), bin.spec,
+                bin.spec.isUnpartitioned() ? null : bin.first.partition(), targetFileSize, format, settings,
+                () -> newFilePath.apply(partitionPath));
+        if (comparators != null)
+            writer = new SortingDataWriter(table.schema(), comparators.get(), sortBufferRows, writer);
+        try {
+            new TableReader(table, table.schema()).readRecords(bin.tasks, writer::write);
+            writer.close();
+            rewrite.dataFiles = writer.dataFiles();
+        } catch (Exception e) {
+            // Don't leave partially written files behind
+            writer.abort();
+            rewrite.error = e;
+        }
+        return rewrite;
+    }
+
+    /**
+     * Copy the row groups of the bin's Parquet files into one file
+     * @return the new file, or null if the files can't be stitched
+     */
+    private List<DataFile> stitch(Bin bin, String location) throws Exception {
+        for (FileScanTask task : bin.tasks) {
+            // Deleted rows have to be decoded to be dropped
+            if (task.file().format() != FileFormat.PARQUET || !task.deletes().isEmpty())
+                return null;
+        }
+
+        ParquetFileWriter writer = null;
+        FileMetaData first = null;
+        boolean stitched = false;
+        try {
+            for (FileScanTask task : bin.tasks) {
+                InputFile input = table.io().newInputFile(task.file().path().toString());
+                try (ParquetFileReader reader = ParquetFileReader.open(ParquetFooters.parquetFile(input))) {
+                    FileMetaData fileMetaData = reader.getFooter().getFileMetaData();
+                    if (writer == null) {
+                        first = fileMetaData;
+                        writer = new ParquetFileWriter(ParquetFooters.parquetFile(io.newOutputFile(location)),
+                                first.getSchema(), ParquetFileWriter.Mode.OVERWRITE, ParquetWriter.DEFAULT_BLOCK_SIZE, 0,
+                                ParquetProperties.DEFAULT_COLUMN_INDEX_TRUNCATE_LENGTH,
+                                ParquetProperties.DEFAULT_STATISTICS_TRUNCATE_LENGTH,
+                                ParquetProperties.DEFAULT_PAGE_WRITE_CHECKSUM_ENABLED);
+                        writer.start();
+                    } else if (!first.getSchema().equals(fileMetaData.getSchema())) {
+                        // Column chunks are copied by path, so the schemas must match
+                        return null;
+                    }
+                    reader.appendTo(writer);
+                }
+            }
+            writer.end(first.getKeyValueMetaData());
+            stitched = true;
+        } finally {
+            if (!stitched && writer != null) {
+                try {
+                    writer.end(first.getKeyValueMetaData());
+                } catch (Exception e) {
+                    // The partial file is deleted anyway
+                }
+                io.deleteFile(location);
+            }
+        }
+
+        ParquetMetadata footer = writer.getFooter();
+        // Files without field IDs get their metrics through the table's name mapping
+        String nameMapping = table.properties().get(TableProperties.DEFAULT_NAME_MAPPING);
+        NameMapping mapping = (nameMapping == null) ? null : NameMappingParser.fromJson(nameMapping);
+        DataFiles.Builder builder = DataFiles.builder(bin.spec)
+                .withPath(location)
+                .withFormat(FileFormat.PARQUET)
+                .withFileSizeInBytes(writer.getPos())
+                .withMetrics(ParquetUtil.footerMetrics(footer, Stream.empty(), MetricsConfig.forTable(table), mapping))
+                .withSplitOffsets(ParquetUtil.getSplitOffsets(footer));
+        if (bin.spec.isPartitioned())
+            builder.withPartition(bin.first.partition());
+        return List.of(builder.build());
+    }
+}
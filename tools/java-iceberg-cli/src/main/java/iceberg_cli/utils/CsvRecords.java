@@ -0,0 +1,106 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * Iterator over the rows of a CSV file. Fields are separated by commas and may
+ * be enclosed in double quotes, in which case they can contain commas, line
+ * breaks and doubled quotes. Rows are parsed as they are consumed.
+ *
+ */
+public class CsvRecords implements Iterator<List<String>> {
+    private final BufferedReader reader;
+    private List<String> row = null;
+    private long lineNumber = 0;
+    private long rowLineNumber = 0;
+
+    public CsvRecords(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return line number where the last returned row started
+     */
+    public long lineNumber() {
+        return rowLineNumber;
+    }
+
+    public boolean hasNext() {
+        try {
+            while (row == null) {
+                String line = reader.readLine();
+                if (line == null)
+                    return false;
+                lineNumber++;
+                // Skip blank lines
+                if (!line.isBlank())
+                    row = parse(line);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading records: " + e.getMessage(), e);
+        }
+    }
+
+    public List<String> next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        List<String> next = row;
+        row = null;
+        return next;
+    }
+
+    private List<String> parse(String line) throws IOException {
+        rowLineNumber = lineNumber;
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted)
+                    break;
+                // A quoted field continues on the next line
+                line = reader.readLine();
+                if (line == null)
+                    throw new IllegalArgumentException(String.format("Unterminated quoted field at line %d", rowLineNumber));
+                lineNumber++;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -11,17 +11,32 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.iceberg.DataFile;
 import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.NullOrder;
+import org.apache.iceberg.PartitionSpec;
 import org.apache.iceberg.Schema;
 import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.SortDirection;
+import org.apache.iceberg.SortOrder;
+import org.apache.iceberg.StructLike;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.expressions.Expression;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.expressions.Term;
 import org.apache.iceberg.types.Type;
 import org.apache.iceberg.types.Types;
+import org.apache.iceberg.util.ByteBuffers;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -32,6 +47,8 @@ import org.json.JSONObject;
  */
 public class DataConversion 
 {
+    private static final Pattern PARAMETERIZED_TRANSFORM = Pattern.compile("(bucket|truncate)\\[(\\d+)\\]");
+    
     /**
      * 
      * @param value
@@ -87,6 +104,336 @@ public class DataConversion
         }
     }
     
+    /**
+     * 
+     * @param fields JSON object of column names and values
+     * @param schema
+     * @return Record with the values converted to Iceberg data types
+     * @throws UnsupportedEncodingException
+     */
+    public static Record jsonToRecord(JSONObject fields, Schema schema) throws UnsupportedEncodingException {
+        List<Types.NestedField> columns = schema.columns();
+        String[] fieldNames = JSONObject.getNames(fields);
+        // Verify if input columns are the same number as the required fields
+        // Optional fields shouldn't be part of the check
+        if (fieldNames != null && fieldNames.length > columns.size()) 
+            throw new IllegalArgumentException("Number of fields in the record doesn't match the number of required columns in schema.\n");
+        
+        Record genericRecord = GenericRecord.create(schema);
+        for (Types.NestedField col : columns) {
+            String colName = col.name();
+            Type colType = col.type();
+            // Validate that a required field is present in the record
+            if (!fields.has(colName)) {
+                if (col.isRequired())
+                    throw new IllegalArgumentException("Record is missing a required field: " + colName);
+                else
+                    continue;
+            }
+            
+            // Trim the input value
+            String value = fields.get(colName).toString().trim();
+
+            // Check for null values
+            if (col.isRequired() && value.equalsIgnoreCase("null"))
+                throw new IllegalArgumentException("Required field cannot be null: " + colName);
+
+            // Store the value as an iceberg data type
+            genericRecord.setField(colName, stringToIcebergType(value, colType));
+        }
+        return genericRecord;
+    }
+    
+    /**
+     * Parse a partition spec. The spec is either a JSON array of fields or an Iceberg
+     * partition spec JSON object with a "fields" array. Each field names its source
+     * column with "source" (column name) or "source-id", has a "transform" (identity,
+     * year, month, day, hour, bucket[N], truncate[N] or void) and an optional "name".
+     * 
+     * @param specJsonString
+     * @param schema
+     * @return PartitionSpec bound to the schema
+     */
+    public static PartitionSpec jsonToPartitionSpec(String specJsonString, Schema schema) {
+        String trimmed = specJsonString.trim();
+        JSONArray fields = trimmed.startsWith("[") ? new JSONArray(trimmed) : new JSONObject(trimmed).getJSONArray("fields");
+        
+        PartitionSpec.Builder builder = PartitionSpec.builderFor(schema);
+        for (int index = 0; index < fields.length(); index++) {
+            JSONObject field = fields.getJSONObject(index);
+            String source;
+            if (field.has("source")) {
+                source = field.getString("source");
+            } else if (field.has("source-id")) {
+                source = schema.findColumnName(field.getInt("source-id"));
+                if (source == null)
+                    throw new IllegalArgumentException("Partition source-id not found in schema: " + field.getInt("source-id"));
+            } else {
+                throw new IllegalArgumentException("Partition field is missing a source column: " + field);
+            }
+            String transform = field.getString("transform").trim().toLowerCase();
+            String name = field.optString("name", null);
+            
+            Matcher matcher = PARAMETERIZED_TRANSFORM.matcher(transform);
+            if (matcher.matches()) {
+                int width = Integer.parseInt(matcher.group(2));
+                if (matcher.group(1).equals("bucket"))
+                    builder = (name == null) ? builder.bucket(source, width) : builder.bucket(source, width, name);
+                else
+                    builder = (name == null) ? builder.truncate(source, width) : builder.truncate(source, width, name);
+                continue;
+            }
+            
+            switch (transform) {
+                case "identity":
+                    // The named identity variant is not public, identity fields take the column name
+                    if (name != null && !name.equals(source))
+                        throw new IllegalArgumentException("Identity partition fields are named after their source column: " + source);
+                    builder = builder.identity(source);
+                    break;
+                case "year":
+                case "years":
+                    builder = (name == null) ? builder.year(source) : builder.year(source, name);
+                    break;
+                case "month":
+                case "months":
+                    builder = (name == null) ? builder.month(source) : builder.month(source, name);
+                    break;
+                case "day":
+                case "days":
+                    builder = (name == null) ? builder.day(source) : builder.day(source, name);
+                    break;
+                case "hour":
+                case "hours":
+                    builder = (name == null) ? builder.hour(source) : builder.hour(source, name);
+                    break;
+                case "void":
+                    builder = (name == null) ? builder.alwaysNull(source) : builder.alwaysNull(source, name);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported partition transform: " + transform);
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Parse a sort order. The order is either a JSON array of fields or an Iceberg
+     * sort order JSON object with a "fields" array. Each field names its source
+     * column with "source" (column name) or "source-id", and has an optional
+     * "transform" (identity by default, or one of the partition transforms), a
+     * "direction" (asc or desc, asc by default) and a "null-order" (nulls-first or
+     * nulls-last, nulls first when ascending and last when descending by default).
+     * 
+     * @param orderJsonString
+     * @param schema
+     * @return SortOrder bound to the schema
+     */
+    public static SortOrder jsonToSortOrder(String orderJsonString, Schema schema) {
+        String trimmed = orderJsonString.trim();
+        JSONArray fields = trimmed.startsWith("[") ? new JSONArray(trimmed) : new JSONObject(trimmed).getJSONArray("fields");
+        
+        SortOrder.Builder builder = SortOrder.builderFor(schema);
+        for (int index = 0; index < fields.length(); index++) {
+            JSONObject field = fields.getJSONObject(index);
+            String source;
+            if (field.has("source")) {
+                source = field.getString("source");
+            } else if (field.has("source-id")) {
+                source = schema.findColumnName(field.getInt("source-id"));
+                if (source == null)
+                    throw new IllegalArgumentException("Sort source-id not found in schema: " + field.getInt("source-id"));
+            } else {
+                throw new IllegalArgumentException("Sort field is missing a source column: " + field);
+            }
+            
+            SortDirection direction;
+            String s_direction = field.optString("direction", "asc").trim().toLowerCase();
+            if (s_direction.equals("asc"))
+                direction = SortDirection.ASC;
+            else if (s_direction.equals("desc"))
+                direction = SortDirection.DESC;
+            else
+                throw new IllegalArgumentException("Unsupported sort direction: " + s_direction);
+            
+            NullOrder nullOrder;
+            String s_nullOrder = field.optString("null-order", (direction == SortDirection.ASC) ? "nulls-first" : "nulls-last").trim().toLowerCase();
+            if (s_nullOrder.equals("nulls-first"))
+                nullOrder = NullOrder.NULLS_FIRST;
+            else if (s_nullOrder.equals("nulls-last"))
+                nullOrder = NullOrder.NULLS_LAST;
+            else
+                throw new IllegalArgumentException("Unsupported null order: " + s_nullOrder);
+            
+            builder = builder.sortBy(sortTerm(source, field.optString("transform", "identity").trim().toLowerCase()), direction, nullOrder);
+        }
+        return builder.build();
+    }
+    
+    private static Term sortTerm(String source, String transform) {
+        Matcher matcher = PARAMETERIZED_TRANSFORM.matcher(transform);
+        if (matcher.matches()) {
+            int width = Integer.parseInt(matcher.group(2));
+            return matcher.group(1).equals("bucket") ? Expressions.bucket(source, width) : Expressions.truncate(source, width);
+        }
+        switch (transform) {
+            case "identity":
+                return Expressions.ref(source);
+            case "year":
+            case "years":
+                return Expressions.year(source);
+            case "month":
+            case "months":
+                return Expressions.month(source);
+            case "day":
+            case "days":
+                return Expressions.day(source);
+            case "hour":
+            case "hours":
+                return Expressions.hour(source);
+            default:
+                throw new IllegalArgumentException("Unsupported sort transform: " + transform);
+        }
+    }
+    
+    /**
+     * Parse a row filter. The filter is a JSON object of column names and values,
+     * and matches rows equal to all of them. A null value matches nulls and an
+     * array matches any of its values. Values are converted to the column type
+     * when the filter is bound, e.g. strings to timestamps.
+     * 
+     * @param filterJsonString
+     * @return filter expression
+     */
+    public static Expression jsonToFilter(String filterJsonString) {
+        JSONObject columns = new JSONObject(filterJsonString.trim());
+        Expression filter = Expressions.alwaysTrue();
+        for (String column : columns.keySet()) {
+            Object value = columns.get(column);
+            Expression predicate;
+            if (value == JSONObject.NULL) {
+                predicate = Expressions.isNull(column);
+            } else if (value instanceof JSONArray) {
+                JSONArray values = (JSONArray) value;
+                List<Object> list = new ArrayList<Object>();
+                for (int index = 0; index < values.length(); index++)
+                    list.add(values.get(index));
+                predicate = Expressions.in(column, list);
+            } else if (value instanceof JSONObject) {
+                throw new IllegalArgumentException("Unsupported filter value of column " + column + ": " + value);
+            } else {
+                predicate = Expressions.equal(column, value);
+            }
+            filter = Expressions.and(filter, predicate);
+        }
+        return filter;
+    }
+    
+    /**
+     * 
+     * @param spec
+     * @param partition partition tuple holding Iceberg internal values
+     * @return JSONObject of partition field names and values, which can be read back
+     * by jsonToPartition
+     */
+    public static JSONObject partitionToJson(PartitionSpec spec, StructLike partition) {
+        JSONObject values = new JSONObject();
+        List<Types.NestedField> fields = spec.partitionType().fields();
+        for (int index = 0; index < fields.size(); index++) {
+            Types.NestedField field = fields.get(index);
+            Object value = partition.get(index, Object.class);
+            if (value == null)
+                values.put(field.name(), JSONObject.NULL);
+            else if (value instanceof ByteBuffer)
+                values.put(field.name(), Base64.getEncoder().encodeToString(ByteBuffers.toByteArray((ByteBuffer) value)));
+            else if (value instanceof Number || value instanceof Boolean)
+                values.put(field.name(), value);
+            else
+                values.put(field.name(), value.toString());
+        }
+        return values;
+    }
+    
+    /**
+     * 
+     * @param spec
+     * @param values JSON object of partition field names and values
+     * @return partition tuple holding Iceberg internal values
+     */
+    public static StructLike jsonToPartition(PartitionSpec spec, JSONObject values) {
+        Types.StructType partitionType = spec.partitionType();
+        GenericRecord partition = GenericRecord.create(partitionType);
+        for (Types.NestedField field : partitionType.fields()) {
+            String name = field.name();
+            if (!values.has(name))
+                throw new IllegalArgumentException("Partition is missing a value for field: " + name);
+            if (values.isNull(name))
+                continue;
+            
+            switch (field.type().typeId()) {
+                case BOOLEAN:
+                    partition.setField(name, values.getBoolean(name));
+                    break;
+                case INTEGER:
+                case DATE:
+                    partition.setField(name, values.getInt(name));
+                    break;
+                case LONG:
+                case TIME:
+                case TIMESTAMP:
+                    partition.setField(name, values.getLong(name));
+                    break;
+                case FLOAT:
+                    partition.setField(name, (float) values.getDouble(name));
+                    break;
+                case DOUBLE:
+                    partition.setField(name, values.getDouble(name));
+                    break;
+                case STRING:
+                    partition.setField(name, values.getString(name));
+                    break;
+                case DECIMAL:
+                    partition.setField(name, new BigDecimal(values.get(name).toString()));
+                    break;
+                case UUID:
+                    partition.setField(name, UUID.fromString(values.getString(name)));
+                    break;
+                case FIXED:
+                case BINARY:
+                    partition.setField(name, ByteBuffer.wrap(Base64.getDecoder().decode(values.getString(name))));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported partition type: " + field.type());
+            }
+        }
+        return partition;
+    }
+    
+    /**
+     * 
+     * @param record
+     * @return List of the record's values as strings
+     */
+    public static List<String> recordAsList(Record record) {
+        return recordAsList(record, record.size());
+    }
+    
+    /**
+     * 
+     * @param record
+     * @param numFields number of leading fields to convert
+     * @return List of the record's first numFields values as strings
+     */
+    public static List<String> recordAsList(Record record, int numFields) {
+        List<String> rec = new ArrayList<String>(numFields);
+        for (int x = 0; x < numFields; x++) {
+            // A field can be optional, add a check for null values
+            Object value = record.get(x);
+            rec.add(value == null ? "null" : value.toString());
+        }
+        return rec;
+    }
+    
     /**
      * 
      * @param planFiles
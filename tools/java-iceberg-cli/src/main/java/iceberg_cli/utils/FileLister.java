@@ -0,0 +1,202 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+/**
+ *
+ * Lists all data files under a location and streams them to a consumer.
+ * Object stores are listed with a single flat prefix listing, other file systems
+ * are walked by a bounded pool of directory listers. The consumer is called
+ * from the pool threads, so any work it does on a file overlaps with the listing.
+ *
+ */
+public class FileLister {
+    private static final Set<String> FLAT_LISTING_SCHEMES = Set.of(
+            "s3", "s3a", "s3n", "gs", "cos", "oss", "abfs", "abfss", "wasb", "wasbs");
+    private final Configuration conf;
+    private final int numThreads;
+
+    /**
+     * Receives the listed files, must be thread-safe
+     */
+    public interface FileConsumer {
+        void accept(FileStatus file) throws Exception;
+    }
+
+    /**
+     * A unit of work submitted to the listing pool
+     */
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    public FileLister(Configuration conf, int numThreads) {
+        this.conf = conf;
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * List all files under the location recursively, skipping hidden files and
+     * directories (names starting with '_' or '.')
+     * @param location
+     * @param consumer
+     * @throws IOException
+     */
+    public void list(String location, FileConsumer consumer) throws IOException {
+        Path root = new Path(location);
+        FileSystem fs = root.getFileSystem(conf);
+        Listing listing = new Listing(fs, root, consumer);
+        try {
+            if (flatListing(fs))
+                listing.listFlat();
+            else
+                listing.submit(() -> listing.listDirectory(root));
+            listing.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while listing " + location, e);
+        } finally {
+            listing.pool.shutdownNow();
+        }
+
+        Exception failure = listing.failure.get();
+        if (failure instanceof IOException)
+            throw (IOException) failure;
+        if (failure != null)
+            throw new IOException("Error listing " + location + ": " + failure.getMessage(), failure);
+    }
+
+    /**
+     * @param fs
+     * @return true if the file system is listed with a single recursive prefix listing
+     */
+    boolean flatListing(FileSystem fs) {
+        return FLAT_LISTING_SCHEMES.contains(fs.getUri().getScheme().toLowerCase());
+    }
+
+    /**
+     * State of a single listing
+     */
+    private class Listing {
+        private final FileSystem fs;
+        private final Path root;
+        private final FileConsumer consumer;
+        private final ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        // Bounds the number of files queued for the consumer
+        private final Semaphore queued = new Semaphore(numThreads * 4);
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        private final Object lock = new Object();
+
+        Listing(FileSystem fs, Path root, FileConsumer consumer) {
+            this.fs = fs;
+            this.root = root;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Page through a recursive prefix listing and hand files to the pool
+         */
+        void listFlat() throws IOException, InterruptedException {
+            RemoteIterator<LocatedFileStatus> files = fs.listFiles(root, true);
+            while (failure.get() == null && files.hasNext()) {
+                LocatedFileStatus file = files.next();
+                if (isHidden(file.getPath()))
+                    continue;
+                // Stop waiting for room once a consumer failed, the queued files are skipped
+                while (!queued.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null)
+                        return;
+                }
+                submit(() -> consumer.accept(file), queued);
+            }
+        }
+
+        /**
+         * List a directory, submitting its sub-directories and files as new work
+         */
+        void listDirectory(Path directory) throws Exception {
+            for (FileStatus status : fs.listStatus(directory)) {
+                if (failure.get() != null)
+                    return;
+                String name = status.getPath().getName();
+                if (name.startsWith("_") || name.startsWith("."))
+                    continue;
+                if (status.isDirectory())
+                    submit(() -> listDirectory(status.getPath()));
+                else if (queued.tryAcquire())
+                    submit(() -> consumer.accept(status), queued);
+                else
+                    // Waiting for room could block every pool thread, consume the file here instead
+                    consumer.accept(status);
+            }
+        }
+
+        void submit(Work work) {
+            submit(work, null);
+        }
+
+        /**
+         * @param work skipped once any work failed
+         * @param permit released when the work is done or skipped, if not null
+         */
+        void submit(Work work, Semaphore permit) {
+            pending.incrementAndGet();
+            pool.execute(() -> {
+                try {
+                    if (failure.get() == null)
+                        work.run();
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    if (permit != null)
+                        permit.release();
+                    if (pending.decrementAndGet() == 0) {
+                        synchronized (lock) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            });
+        }
+
+        void await() throws InterruptedException {
+            synchronized (lock) {
+                while (pending.get() > 0)
+                    lock.wait();
+            }
+        }
+
+        /**
+         * Check if any directory between the root and the file is hidden
+         */
+        private boolean isHidden(Path path) {
+            String rootPath = root.toUri().getPath();
+            String filePath = path.toUri().getPath();
+            String relativePath = filePath.startsWith(rootPath) ? filePath.substring(rootPath.length()) : filePath;
+            for (String name : relativePath.split("/")) {
+                if (name.startsWith("_") || name.startsWith("."))
+                    return true;
+            }
+            return false;
+        }
+    }
+}
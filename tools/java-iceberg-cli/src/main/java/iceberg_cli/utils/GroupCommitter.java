@@ -0,0 +1,223 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.iceberg.AppendFiles;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.exceptions.CommitStateUnknownException;
+
+/**
+ *
+ * Coalesces concurrent appends to the same table into one snapshot. The first
+ * caller to find no commit in progress becomes the leader: it waits for the
+ * commit window so other callers can queue their files, then appends all queued
+ * files in one AppendFiles and hands the snapshot ID to every caller. Files
+ * queued while a commit is running are committed by one of their callers once
+ * it finishes, so concurrent writers share commits instead of retrying against
+ * each other. If a group commit fails, its requests are committed one at a time
+ * so that only the requests that cannot be committed get the error. Committers
+ * are dropped once idle, so tables no longer written to are not kept around.
+ *
+ * Used by the server, where requests for the same table run in one process.
+ *
+ */
+public class GroupCommitter {
+    private static final long DEFAULT_WINDOW_MS = 50;
+    private static final Map<String, GroupCommitter> committers = new ConcurrentHashMap<String, GroupCommitter>();
+    private static volatile boolean enabled = false;
+
+    private final long windowMs;
+    private final String location;
+    private List<PendingCommit> pending = new ArrayList<PendingCommit>();
+    private boolean committing = false;
+    private boolean retired = false;
+
+    private static class PendingCommit {
+        final List<DataFile> files;
+        boolean done = false;
+        CommitRetry.Stats stats;
+        Throwable error;
+
+        PendingCommit(List<DataFile> files) {
+            this.files = files;
+        }
+    }
+
+    GroupCommitter(long windowMs) {
+        this(windowMs, null);
+    }
+
+    private GroupCommitter(long windowMs, String location) {
+        this.windowMs = windowMs;
+        this.location = location;
+    }
+
+    /**
+     * Route appends through group commits, used in server mode
+     */
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the time to wait for other commits to the same table from the environment, if set.
+     * @return value of ICEBERG_TOOLKIT_COMMIT_WINDOW_MS or the default
+     */
+    public static long windowMs() {
+        String value = System.getenv("ICEBERG_TOOLKIT_COMMIT_WINDOW_MS");
+        if (value == null)
+            return DEFAULT_WINDOW_MS;
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for ICEBERG_TOOLKIT_COMMIT_WINDOW_MS: " + value);
+        }
+    }
+
+    /**
+     * @param table
+     * @return committer shared by all callers appending to the table
+     */
+    public static GroupCommitter forTable(Table table) {
+        return committers.computeIfAbsent(table.location(), location -> new GroupCommitter(windowMs(), location));
+    }
+
+    /**
+     * Append the files to the table, possibly in the same snapshot as files of
+     * other callers
+     * @param table
+     * @param files
+     * @param retry retry settings used if this caller leads the commit
+     * @return stats of the commit that added the files, shared by its callers
+     * @throws Exception if the commit failed, in which case none of its files were added
+     */
+    public CommitRetry.Stats commit(Table table, List<DataFile> files, CommitRetry retry) throws Exception {
+        PendingCommit request = new PendingCommit(files);
+        synchronized (this) {
+            if (retired)
+                return forTable(table).commit(table, files, retry);
+            pending.add(request);
+        }
+
+        while (true) {
+            synchronized (this) {
+                while (committing && !request.done)
+                    wait();
+                if (request.done) {
+                    retireIfIdle();
+                    break;
+                }
+                // No commit in progress, this caller leads the next one
+                committing = true;
+            }
+            lead(table, retry);
+        }
+
+        if (request.error != null) {
+            if (request.error instanceof Exception)
+                throw (Exception) request.error;
+            throw new RuntimeException(request.error);
+        }
+        return request.stats;
+    }
+
+    /**
+     * Remove an idle committer from the shared committers, callers still
+     * holding it are sent to a new one. Must be called holding the lock.
+     */
+    private void retireIfIdle() {
+        if (location != null && pending.isEmpty() && !committing) {
+            retired = true;
+            committers.remove(location, this);
+        }
+    }
+
+    /**
+     * Wait for the window, then commit all queued files in one snapshot
+     */
+    private void lead(Table table, CommitRetry retry) {
+        boolean interrupted = false;
+        try {
+            if (windowMs > 0)
+                Thread.sleep(windowMs);
+        } catch (InterruptedException e) {
+            // Commit what is queued without waiting, other callers depend on it
+            interrupted = true;
+        }
+
+        List<PendingCommit> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<PendingCommit>();
+        }
+
+        try {
+            CommitRetry.Stats stats = null;
+            Throwable error = null;
+            try {
+                stats = append(table, retry, batch);
+                if (batch.size() > 1) {
+                    int numFiles = batch.stream().mapToInt(commit -> commit.files.size()).sum();
+                    System.out.println(String.format("Group commit of %d requests (%d files) in snapshot %d",
+                            batch.size(), numFiles, stats.snapshotId()));
+                }
+            } catch (Throwable t) {
+                error = t;
+            }
+
+            if (error == null || batch.size() == 1 || error instanceof CommitStateUnknownException) {
+                // The files of an unknown commit may have been added, they must not be committed again
+                for (PendingCommit commit : batch) {
+                    commit.error = error;
+                    commit.stats = stats;
+                }
+            } else {
+                // Commit the requests alone so one bad request does not fail the others
+                System.out.println(String.format("Group commit of %d requests failed, committing them separately: %s",
+                        batch.size(), error.getMessage()));
+                for (PendingCommit commit : batch) {
+                    try {
+                        commit.stats = append(table, retry, List.of(commit));
+                    } catch (Throwable t) {
+                        commit.error = t;
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                for (PendingCommit commit : batch)
+                    commit.done = true;
+                committing = false;
+                notifyAll();
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Append the files of the requests in one snapshot
+     */
+    private static CommitRetry.Stats append(Table table, CommitRetry retry, List<PendingCommit> commits) throws Exception {
+        return retry.run(table, retryTable -> {
+            AppendFiles append = retryTable.newAppend();
+            for (PendingCommit commit : commits) {
+                for (DataFile file : commit.files)
+                    append.appendFile(file);
+            }
+            append.commit();
+        });
+    }
+}
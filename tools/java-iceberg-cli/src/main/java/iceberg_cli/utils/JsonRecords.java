@@ -0,0 +1,84 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ *
+ * Iterators over JSON records to write to a table
+ *
+ */
+public class JsonRecords {
+
+    /**
+     * @param records
+     * @return iterator over the objects of a JSON array
+     */
+    public static Iterator<JSONObject> fromArray(JSONArray records) {
+        return new Iterator<JSONObject>() {
+            private int index = 0;
+
+            public boolean hasNext() {
+                return index < records.length();
+            }
+
+            public JSONObject next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return records.getJSONObject(index++);
+            }
+        };
+    }
+
+    /**
+     * Read newline-delimited JSON, one record per line. Records are parsed as they are
+     * consumed, so only the current line is held in memory. Blank lines are skipped.
+     * @param reader
+     * @return iterator over the records
+     */
+    public static Iterator<JSONObject> fromLines(BufferedReader reader) {
+        return new Iterator<JSONObject>() {
+            private String line = null;
+            private long lineNumber = 0;
+
+            public boolean hasNext() {
+                try {
+                    while (line == null) {
+                        line = reader.readLine();
+                        if (line == null)
+                            return false;
+                        lineNumber++;
+                        if (line.isBlank())
+                            line = null;
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error reading records: " + e.getMessage(), e);
+                }
+            }
+
+            public JSONObject next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                try {
+                    return new JSONObject(line);
+                } catch (JSONException e) {
+                    throw new JSONException(String.format("Invalid record at line %d: %s", lineNumber, e.getMessage()));
+                } finally {
+                    line = null;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.iceberg.io.InputFile;
+
+/**
+ *
+ * Size-bounded cache of remote files on local disk. Files are keyed by their
+ * path and size, which is safe because Iceberg data files are never modified
+ * in place. The least recently used files are evicted first. The cache
+ * directory is shared between processes, so the recency of each file is
+ * also kept as its modification time.
+ *
+ */
+public class LocalFileCache {
+    private static final String SUFFIX = ".data";
+    private static final long DEFAULT_MAX_SIZE = 10L * 1024 * 1024 * 1024;
+    // Downloads of other processes may still be writing newer temporary files
+    private static final long TEMP_FILE_MAX_AGE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final Map<String, LocalFileCache> caches = new HashMap<String, LocalFileCache>();
+
+    private final Path directory;
+    private final long maxSize;
+    // Cached files in least recently used order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private final Map<String, Object> downloadLocks = new ConcurrentHashMap<String, Object>();
+    private long currentSize = 0;
+
+    /**
+     * Get the cache configured with the ICEBERG_TOOLKIT_CACHE_DIR and
+     * ICEBERG_TOOLKIT_CACHE_SIZE (bytes) environment variables
+     * @return the cache, or null if caching is not enabled
+     * @throws IOException
+     */
+    public static LocalFileCache fromEnvironment() throws IOException {
+        String dir = System.getenv("ICEBERG_TOOLKIT_CACHE_DIR");
+        if (dir == null || dir.isEmpty())
+            return null;
+        String s_maxSize = System.getenv("ICEBERG_TOOLKIT_CACHE_SIZE");
+        long maxSize = (s_maxSize == null) ? DEFAULT_MAX_SIZE : Long.valueOf(s_maxSize);
+        return get(dir, maxSize);
+    }
+
+    /**
+     * Threads of the same process share one cache per directory
+     */
+    public static synchronized LocalFileCache get(String dir, long maxSize) throws IOException {
+        LocalFileCache cache = caches.get(dir);
+        if (cache == null) {
+            cache = new LocalFileCache(Path.of(dir), maxSize);
+            caches.put(dir, cache);
+        }
+        return cache;
+    }
+
+    LocalFileCache(Path directory, long maxSize) throws IOException {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Invalid cache size (negative or 0): " + maxSize);
+        this.directory = directory;
+        this.maxSize = maxSize;
+        Files.createDirectories(directory);
+        loadEntries();
+    }
+
+    /**
+     * Index files left in the directory by earlier runs, oldest first
+     */
+    private void loadEntries() {
+        File[] files = directory.toFile().listFiles();
+        if (files == null)
+            return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        long tempFileCutoff = System.currentTimeMillis() - TEMP_FILE_MAX_AGE_MS;
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                entries.put(file.getName(), file.length());
+                currentSize += file.length();
+            } else if (file.lastModified() < tempFileCutoff) {
+                // Leftover of an interrupted download
+                file.delete();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Get a local copy of the file, downloading it first if it isn't cached
+     * @param input remote file
+     * @param length size of the remote file
+     * @return the local copy, or null if the file is too large for the cache
+     * @throws IOException
+     */
+    public File get(InputFile input, long length) throws IOException {
+        if (length > maxSize)
+            return null;
+
+        String name = key(input.location(), length);
+        File file = lookup(name);
+        if (file != null)
+            return file;
+
+        // Only one thread downloads a given file
+        Object lock = downloadLocks.computeIfAbsent(name, k -> new Object());
+        synchronized (lock) {
+            try {
+                file = lookup(name);
+                if (file != null)
+                    return file;
+                return download(input, name, length);
+            } finally {
+                downloadLocks.remove(name);
+            }
+        }
+    }
+
+    private synchronized File lookup(String name) {
+        if (entries.get(name) == null)
+            return null;
+        File file = directory.resolve(name).toFile();
+        if (!file.exists()) {
+            // Evicted by another process
+            currentSize -= entries.remove(name);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    private File download(InputFile input, String name, long length) throws IOException {
+        Path tempFile = Files.createTempFile(directory, name, ".tmp");
+        try {
+            try (InputStream stream = input.newStream()) {
+                Files.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (Files.size(tempFile) != length)
+                throw new IOException(String.format("Size of %s changed, expected %d bytes but read %d",
+                        input.location(), length, Files.size(tempFile)));
+            Path target = directory.resolve(name);
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            synchronized (this) {
+                Long previous = entries.put(name, length);
+                currentSize += length - (previous == null ? 0 : previous);
+                evict();
+            }
+            return target.toFile();
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Remove least recently used files until the cache fits its size.
+     * Files that are still open by a reader remain readable after removal.
+     */
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (currentSize > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            directory.resolve(entry.getKey()).toFile().delete();
+            currentSize -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Name of the cached copy of a file
+     */
+    static String key(String location, long length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest(location.getBytes(StandardCharsets.UTF_8)))
+                builder.append(String.format("%02x", b));
+            return String.format("%s-%d%s", builder, length, SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public synchronized long size() { return currentSize; }
+    public long maxSize() { return maxSize; }
+}
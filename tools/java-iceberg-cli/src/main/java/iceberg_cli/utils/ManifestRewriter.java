@@ -0,0 +1,180 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.ManifestContent;
+import org.apache.iceberg.ManifestFile;
+import org.apache.iceberg.ManifestFiles;
+import org.apache.iceberg.ManifestReader;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.StructLike;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.types.Comparators;
+import org.apache.iceberg.util.PropertyUtil;
+
+/**
+ *
+ * Rewrites the small data manifests of a table into manifests of about the
+ * target size, commit.manifest.target-size-bytes of the table. The entries are
+ * clustered by partition: the partitions of each spec are sorted and split
+ * into ranges holding a manifest's worth of entries, so that each new manifest
+ * covers a narrow range of partitions and scans filtering on partition columns
+ * can skip most of them. The manifests are read in parallel to plan the
+ * ranges, and Iceberg's RewriteManifests writes the new ones on its worker pool.
+ *
+ */
+public class ManifestRewriter {
+    private final Table table;
+    private final long targetSize;
+
+    /**
+     * Ranges of the partitions of one spec, by the first partition of each range
+     */
+    static class Clusters {
+        private final TreeMap<StructLike, Integer> ranges;
+
+        Clusters(Comparator<StructLike> comparator) {
+            this.ranges = new TreeMap<StructLike, Integer>(comparator);
+        }
+
+        /**
+         * @param partition
+         * @return range of the partition, partitions added since planning go to the nearest range
+         */
+        int cluster(StructLike partition) {
+            Map.Entry<StructLike, Integer> range = ranges.floorEntry(partition);
+            return (range == null) ? ranges.firstEntry().getValue() : range.getValue();
+        }
+
+        int size() {
+            return ranges.size();
+        }
+    }
+
+    /**
+     * @param table
+     */
+    public ManifestRewriter(Table table) {
+        this.table = table;
+        this.targetSize = PropertyUtil.propertyAsLong(table.properties(),
+                TableProperties.MANIFEST_TARGET_SIZE_BYTES, TableProperties.MANIFEST_TARGET_SIZE_BYTES_DEFAULT);
+    }
+
+    /**
+     * @return data manifests smaller than the target size
+     */
+    private Predicate<ManifestFile> small() {
+        return manifest -> manifest.content() == ManifestContent.DATA && manifest.length() < targetSize;
+    }
+
+    /**
+     * Split the partitions of the manifests into ranges of about a manifest's worth of entries
+     * @param manifests
+     * @param numThreads number of manifests read at once
+     * @return ranges of each spec
+     * @throws Exception
+     */
+    Map<Integer, Clusters> plan(List<ManifestFile> manifests, int numThreads) throws Exception {
+        Map<Integer, PartitionSpec> specs = table.specs();
+        List<List<StructLike>> partitions = ParallelUtils.map(manifests, numThreads, manifest -> {
+            List<StructLike> manifestPartitions = new ArrayList<StructLike>();
+            try (ManifestReader<DataFile> reader = ManifestFiles.read(manifest, table.io(), specs)) {
+                // Only the partition is needed, copied since the reader may reuse it
+                for (DataFile file : reader.select(List.of("partition")))
+                    manifestPartitions.add(file.copyWithoutStats().partition());
+            }
+            return manifestPartitions;
+        });
+
+        // Entries per partition of each spec, in partition order
+        Map<Integer, TreeMap<StructLike, Long>> counts = new HashMap<Integer, TreeMap<StructLike, Long>>();
+        long numEntries = 0;
+        long numBytes = 0;
+        for (int i = 0; i < manifests.size(); ++i) {
+            int specId = manifests.get(i).partitionSpecId();
+            TreeMap<StructLike, Long> specCounts = counts.computeIfAbsent(specId,
+                    id -> new TreeMap<StructLike, Long>(Comparators.forType(specs.get(id).partitionType())));
+            for (StructLike partition : partitions.get(i))
+                specCounts.merge(partition, 1L, Long::sum);
+            numEntries += partitions.get(i).size();
+            numBytes += manifests.get(i).length();
+        }
+        long entriesPerManifest = Math.max(1, targetSize * numEntries / Math.max(1, numBytes));
+
+        Map<Integer, Clusters> clusters = new HashMap<Integer, Clusters>();
+        int numClusters = 0;
+        for (Map.Entry<Integer, TreeMap<StructLike, Long>> spec : counts.entrySet()) {
+            Clusters specClusters = new Clusters(Comparators.forType(specs.get(spec.getKey()).partitionType()));
+            long entries = 0;
+            for (Map.Entry<StructLike, Long> partition : spec.getValue().entrySet()) {
+                if (specClusters.size() == 0 || (entries > 0 && entries + partition.getValue() > entriesPerManifest)) {
+                    specClusters.ranges.put(partition.getKey(), numClusters++);
+                    entries = 0;
+                }
+                entries += partition.getValue();
+            }
+            if (specClusters.size() > 0)
+                clusters.put(spec.getKey(), specClusters);
+        }
+        return clusters;
+    }
+
+    /**
+     * Rewrite the small data manifests of the current snapshot
+     * @param retry settings of the commit
+     * @param numThreads number of manifests read at once
+     * @return stats of the commit, null if there was nothing to rewrite
+     * @throws Exception
+     */
+    public CommitRetry.Stats rewrite(CommitRetry retry, int numThreads) throws Exception {
+        Snapshot snapshot = table.currentSnapshot();
+        if (snapshot == null) {
+            System.out.println("The table has no manifests to rewrite");
+            return null;
+        }
+        List<ManifestFile> manifests = new ArrayList<ManifestFile>();
+        for (ManifestFile manifest : snapshot.allManifests(table.io())) {
+            if (small().test(manifest))
+                manifests.add(manifest);
+        }
+        if (manifests.size() < 2) {
+            System.out.println(String.format("Found %d data manifests smaller than %d bytes, nothing to rewrite", manifests.size(), targetSize));
+            return null;
+        }
+
+        Map<Integer, Clusters> clusters = plan(manifests, numThreads);
+        System.out.println(String.format("Rewriting %d data manifests smaller than %d bytes, clustered in %d partition ranges",
+                manifests.size(), targetSize, clusters.values().stream().mapToInt(Clusters::size).sum()));
+        CommitRetry.Stats stats = retry.run(table, retryTable -> {
+            retryTable.rewriteManifests()
+                .rewriteIf(small())
+                .clusterBy(file -> {
+                    // Specs added since planning get a range of their own
+                    Clusters specClusters = clusters.get(file.specId());
+                    return (specClusters == null) ? "spec-" + file.specId() : specClusters.cluster(file.partition());
+                })
+                .commit();
+        });
+
+        int numManifests = 0;
+        for (ManifestFile manifest : table.currentSnapshot().allManifests(table.io())) {
+            if (manifest.content() == ManifestContent.DATA)
+                numManifests++;
+        }
+        System.out.println(String.format("The table has %d data manifests", numManifests));
+        return stats;
+    }
+}
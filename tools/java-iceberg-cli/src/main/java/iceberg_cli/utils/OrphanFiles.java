@@ -0,0 +1,132 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.apache.iceberg.ContentFile;
+import org.apache.iceberg.HasTableOperations;
+import org.apache.iceberg.ManifestContent;
+import org.apache.iceberg.ManifestFile;
+import org.apache.iceberg.ManifestFiles;
+import org.apache.iceberg.ManifestReader;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.StatisticsFile;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableMetadata;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.FileInfo;
+import org.apache.iceberg.io.SupportsPrefixOperations;
+
+/**
+ *
+ * Finds the files under a table's location that no snapshot or metadata file
+ * refers to, such as files of failed writes or of commits that lost a
+ * conflict. The files referenced by all snapshots are collected first, reading
+ * the manifest lists and manifests in parallel, and then the location is
+ * listed. Only files older than a given time are orphans, since newer files
+ * may belong to writes still in progress.
+ *
+ */
+public class OrphanFiles {
+    private final Table table;
+    private final FileIO io;
+
+    /**
+     * @param table
+     * @param io used to list the table location, must support prefix operations
+     */
+    public OrphanFiles(Table table, FileIO io) {
+        if (!(io instanceof SupportsPrefixOperations))
+            throw new IllegalArgumentException("Listing files is not supported by " + io.getClass().getSimpleName());
+        this.table = table;
+        this.io = io;
+    }
+
+    /**
+     * Drop the scheme so that e.g. s3:// and s3a:// locations of a file match,
+     * as well as file: and plain local paths
+     */
+    static String normalize(String location) {
+        int colon = location.indexOf(':');
+        int slash = location.indexOf('/');
+        if (colon > 0 && (slash < 0 || colon < slash))
+            location = location.substring(colon + 1);
+        if (location.startsWith("//"))
+            location = location.substring(2);
+        return location;
+    }
+
+    /**
+     * @param numThreads number of manifest lists and manifests read at once
+     * @return normalized locations of all files referenced by the table
+     * @throws Exception
+     */
+    Set<String> referencedFiles(int numThreads) throws Exception {
+        Set<String> files = ConcurrentHashMap.newKeySet();
+        Consumer<String> add = location -> files.add(normalize(location));
+
+        TableMetadata metadata = ((HasTableOperations) table).operations().current();
+        add.accept(metadata.metadataFileLocation());
+        for (TableMetadata.MetadataLogEntry entry : metadata.previousFiles())
+            add.accept(entry.file());
+        for (StatisticsFile statisticsFile : metadata.statisticsFiles())
+            add.accept(statisticsFile.path());
+        // Pointer to the current metadata file of Hadoop tables
+        add.accept(table.location() + "/metadata/version-hint.text");
+
+        List<Snapshot> snapshots = new ArrayList<Snapshot>();
+        table.snapshots().forEach(snapshots::add);
+        Map<String, ManifestFile> manifests = new ConcurrentHashMap<String, ManifestFile>();
+        ParallelUtils.map(snapshots, numThreads, snapshot -> {
+            if (snapshot.manifestListLocation() != null)
+                add.accept(snapshot.manifestListLocation());
+            for (ManifestFile manifest : snapshot.allManifests(table.io()))
+                manifests.putIfAbsent(manifest.path(), manifest);
+            return null;
+        });
+
+        Map<Integer, PartitionSpec> specs = table.specs();
+        ParallelUtils.map(new ArrayList<ManifestFile>(manifests.values()), numThreads, manifest -> {
+            add.accept(manifest.path());
+            try (ManifestReader<? extends ContentFile<?>> reader = (manifest.content() == ManifestContent.DATA)
+                    ? ManifestFiles.read(manifest, table.io(), specs)
+                    : ManifestFiles.readDeleteManifest(manifest, table.io(), specs)) {
+                for (ContentFile<?> file : reader.select(Collections.singletonList("file_path")))
+                    add.accept(file.path().toString());
+            }
+            return null;
+        });
+        return files;
+    }
+
+    /**
+     * List the orphan files of the table
+     * @param olderThan only files created before this time in milliseconds are orphans
+     * @param numThreads number of manifest lists and manifests read at once
+     * @param orphans gets the location of each orphan file
+     * @return number of files listed
+     * @throws Exception
+     */
+    public long find(long olderThan, int numThreads, Consumer<String> orphans) throws Exception {
+        Set<String> referenced = referencedFiles(numThreads);
+        // Don't list the tables whose names start with this one's
+        String prefix = table.location().endsWith("/") ? table.location() : table.location() + "/";
+        long numFiles = 0;
+        for (FileInfo file : ((SupportsPrefixOperations) io).listPrefix(prefix)) {
+            numFiles++;
+            if (file.createdAtMillis() < olderThan && !referenced.contains(normalize(file.location())))
+                orphans.accept(file.location());
+        }
+        return numFiles;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * Runs independent units of work, such as reading data files, on a
+ * bounded pool of threads
+ *
+ */
+public class ParallelUtils {
+    private static final int DEFAULT_NUM_THREADS = 8;
+
+    /**
+     * A unit of work that can throw checked exceptions
+     */
+    public interface Task<T, R> {
+        R run(T input) throws Exception;
+    }
+
+    /**
+     * Get the number of threads to use for file level parallelism.
+     * Can be overridden using the ICEBERG_TOOLKIT_IO_THREADS environment variable.
+     */
+    public static int numThreads() {
+        String s_numThreads = System.getenv("ICEBERG_TOOLKIT_IO_THREADS");
+        int numThreads = (s_numThreads == null) ? DEFAULT_NUM_THREADS : Integer.valueOf(s_numThreads);
+        return Math.max(1, numThreads);
+    }
+
+    /**
+     * Apply the task to every input using at most numThreads threads
+     * @param inputs
+     * @param numThreads
+     * @param task
+     * @return results in the same order as the inputs
+     * @throws Exception thrown by the first failed task
+     */
+    public static <T, R> List<R> map(List<T> inputs, int numThreads, Task<T, R> task) throws Exception {
+        List<R> results = new ArrayList<R>(inputs.size());
+        if (inputs.isEmpty())
+            return results;
+
+        // Avoid creating a pool for a single unit of work
+        if (inputs.size() == 1 || numThreads <= 1) {
+            for (T input : inputs)
+                results.add(task.run(input));
+            return results;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, inputs.size()));
+        try {
+            List<Future<R>> futures = new ArrayList<Future<R>>(inputs.size());
+            for (T input : inputs)
+                futures.add(pool.submit(() -> task.run(input)));
+
+            for (Future<R> future : futures)
+                results.add(future.get());
+        } catch (ExecutionException e) {
+            // Surface the original failure to the caller
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.iceberg.io.InputFile;
+import org.apache.iceberg.io.OutputFile;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+
+/**
+ *
+ * Reads Parquet footers through an Iceberg FileIO. The Parquet reader wants an
+ * org.apache.parquet.io.InputFile, and the only adapter from an Iceberg
+ * InputFile is the package-private ParquetIO class used by Iceberg's own
+ * readers, so it is looked up by reflection once and reused for every file.
+ * Its adapter of output files is exposed the same way for the Parquet writer.
+ *
+ */
+public class ParquetFooters {
+    private static final Method PARQUET_FILE = parquetFileMethod(InputFile.class);
+    private static final Method PARQUET_OUTPUT_FILE = parquetFileMethod(OutputFile.class);
+
+    private static Method parquetFileMethod(Class<?> fileClass) {
+        try {
+            Class<?> parquetIO = Class.forName("org.apache.iceberg.parquet.ParquetIO");
+            Method method = parquetIO.getDeclaredMethod("file", fileClass);
+            method.setAccessible(true);
+            return method;
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * @param file
+     * @return Parquet input file reading through the file's FileIO
+     * @throws Exception
+     */
+    public static org.apache.parquet.io.InputFile parquetFile(InputFile file) throws Exception {
+        try {
+            return (org.apache.parquet.io.InputFile) PARQUET_FILE.invoke(null, file);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * @param file
+     * @return Parquet output file writing through the file's FileIO
+     * @throws Exception
+     */
+    public static org.apache.parquet.io.OutputFile parquetFile(OutputFile file) throws Exception {
+        try {
+            return (org.apache.parquet.io.OutputFile) PARQUET_OUTPUT_FILE.invoke(null, file);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * @param file
+     * @return footer of the Parquet file
+     * @throws Exception
+     */
+    public static ParquetMetadata read(InputFile file) throws Exception {
+        try (ParquetFileReader reader = ParquetFileReader.open(parquetFile(file))) {
+            return reader.getFooter();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+import org.apache.iceberg.FileScanTask;
+
+import com.google.common.hash.Hashing;
+
+/**
+ *
+ * Selects a deterministic sample of a table. Splits (row groups, or whole files
+ * without row group offsets) are kept when a hash of the seed, the file path and
+ * the split offset falls below the sample fraction, so only the sampled splits
+ * are read and the same seed always gives the same sample. Kept rows can also be
+ * sampled with a seeded Bernoulli filter.
+ *
+ */
+public class Sampler {
+    private final double fraction;
+    private final double rowFraction;
+    private final long seed;
+
+    /**
+     * @param fraction fraction of splits to read, in (0, 1]
+     * @param rowFraction fraction of rows to keep in the read splits, in (0, 1]
+     * @param seed
+     */
+    public Sampler(double fraction, double rowFraction, long seed) {
+        this.fraction = checkFraction("--sample", fraction);
+        this.rowFraction = checkFraction("--row-sample", rowFraction);
+        this.seed = seed;
+    }
+
+    /**
+     * Create a sampler from the values of the sample options
+     * @param sample value of --sample, null to read all splits
+     * @param rowSample value of --row-sample, null to keep all rows
+     * @param seed value of --seed, null for 0
+     * @return sampler
+     * @throws IllegalArgumentException naming the option with an invalid value
+     */
+    public static Sampler fromOptions(String sample, String rowSample, String seed) {
+        long seedValue = 0;
+        if (seed != null) {
+            try {
+                seedValue = Long.parseLong(seed.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for --seed, expected an integer: " + seed);
+            }
+        }
+        return new Sampler(parseFraction("--sample", sample), parseFraction("--row-sample", rowSample), seedValue);
+    }
+
+    private static double parseFraction(String option, String value) {
+        if (value == null)
+            return 1;
+        try {
+            return checkFraction(option, Double.parseDouble(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ", expected a fraction in (0, 1]: " + value);
+        }
+    }
+
+    private static double checkFraction(String option, double value) {
+        if (!(value > 0 && value <= 1))
+            throw new IllegalArgumentException("Invalid value for " + option + ", expected a fraction in (0, 1]: " + value);
+        return value;
+    }
+
+    /**
+     * Uniform value in [0, 1) derived from the seed and the split
+     */
+    private long hash(String path, long start) {
+        return Hashing.murmur3_128((int) seed ^ (int) (seed >>> 32)).newHasher()
+                .putString(path, StandardCharsets.UTF_8)
+                .putLong(start)
+                .hash().asLong();
+    }
+
+    public boolean includeSplit(String path, long start) {
+        if (fraction >= 1)
+            return true;
+        return (hash(path, start) >>> 11) * 0x1.0p-53 < fraction;
+    }
+
+    /**
+     * Split the tasks into row groups, where the files have row group offsets,
+     * and keep the sampled ones
+     * @param tasks
+     * @return sampled tasks
+     */
+    public List<FileScanTask> sampleTasks(Iterable<FileScanTask> tasks) {
+        List<FileScanTask> sample = new ArrayList<FileScanTask>();
+        for (FileScanTask task : tasks) {
+            List<Long> offsets = task.file().splitOffsets();
+            // Split size 1 gives one split per row group
+            Iterable<FileScanTask> splits = (fraction < 1 && offsets != null && offsets.size() > 1) ? task.split(1) : List.of(task);
+            for (FileScanTask split : splits) {
+                if (includeSplit(split.file().path().toString(), split.start()))
+                    sample.add(split);
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Get the row filter of a split
+     * @param path
+     * @param start
+     * @return supplier returning true for each row to keep, or null if all rows are kept
+     */
+    public BooleanSupplier rowFilter(String path, long start) {
+        if (rowFraction >= 1)
+            return null;
+        SplittableRandom random = new SplittableRandom(hash(path, start));
+        return () -> random.nextDouble() < rowFraction;
+    }
+
+    public String toString() {
+        return String.format("sample=%s, row-sample=%s, seed=%d", fraction, rowFraction, seed);
+    }
+}
@@ -6,17 +6,22 @@ package iceberg_cli.utils;
 
 import iceberg_cli.IcebergApplication;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileDescriptor;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.FileOutputStream;
+import java.io.SequenceInputStream;
 import java.net.StandardProtocolFamily;
 import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Timestamp;
@@ -56,6 +61,9 @@ public class SocketServer {
         String s_numThreads = System.getenv("ICEBERG_TOOLKIT_NUM_THREADS");
         int numThreads = (s_numThreads == null) ? minNumThreads : Integer.valueOf(s_numThreads);
         pool = Executors.newFixedThreadPool(numThreads < minNumThreads ? minNumThreads : numThreads);
+        
+        // Requests run in one process, so concurrent commits to a table can share a snapshot
+        GroupCommitter.enable();
     }
     
     /**
@@ -96,6 +104,22 @@ public class SocketServer {
                 new Timestamp(System.currentTimeMillis())));
     }
     
+    /**
+     * Get the body of a request, the part of the message after the command line
+     * followed by the rest of the stream. The message is split as bytes, so
+     * characters cut at the end of the message are completed by the stream.
+     * The client shuts down its output after sending the body to mark its end.
+     * @param message first message read from the client
+     * @param end byte offset of the newline ending the command line, -1 if none
+     * @param stream rest of the request
+     * @return body stream, not to be closed as closing it closes the channel
+     */
+    static InputStream requestBody(byte[] message, int end, InputStream stream) {
+        if (end < 0)
+            return stream;
+        return new SequenceInputStream(new ByteArrayInputStream(message, end + 1, message.length - end - 1), stream);
+    }
+    
     /**
      * Handles incoming connections
      */
@@ -112,9 +136,13 @@ public class SocketServer {
                 // Get the client request
                 readSocketMessage(channel).ifPresent(message -> {
                     try {
-                        String[] args = StringUtils.tokenizeQuotedString(message).toArray(new String[0]);
+                        // The command line may be followed by a body of records
+                        int end = StringUtils.commandLineEnd(message);
+                        String command = new String(message, 0, (end < 0) ? message.length : end, StandardCharsets.UTF_8);
+                        String[] args = StringUtils.tokenizeQuotedString(command).toArray(new String[0]);
                         // Process client request
-                        String response = new IcebergApplication().processRequest(args).trim();
+                        InputStream body = requestBody(message, end, Channels.newInputStream(channel));
+                        String response = new IcebergApplication().processRequest(args, body).trim();
                         // Send back response from the IcebergApplication to the client
                         sendMessage(channel, response, 0);
                     } catch (Exception e) {
@@ -144,7 +172,7 @@ public class SocketServer {
          * @return
          * @throws IOException
          */
-        private Optional<String> readSocketMessage(SocketChannel channel) throws IOException {
+        private Optional<byte[]> readSocketMessage(SocketChannel channel) throws IOException {
             ByteBuffer buffer = ByteBuffer.allocate(MAX_BUF_LEN);
             int bytesRead = channel.read(buffer);
             if (bytesRead < 0)
@@ -153,9 +181,8 @@ public class SocketServer {
             byte[] bytes = new byte[bytesRead];
             buffer.flip();
             buffer.get(bytes);
-            String message = new String(bytes);
             
-            return Optional.of(message);
+            return Optional.of(bytes);
         }
         
         /**
@@ -166,16 +193,17 @@ public class SocketServer {
          */
         private void sendMessage(SocketChannel channel, String message, int errorFlag) throws IOException {
             // Create response body
-            int size = message.length() + 2 * Integer.BYTES;
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            int size = bytes.length + 2 * Integer.BYTES;
             ByteBuffer buffer = ByteBuffer.allocate(size);
             buffer.clear();
             buffer.order(ByteOrder.LITTLE_ENDIAN);
             // Add error flag
             buffer.putInt(errorFlag);
             // Add size of the response
-            buffer.putInt(message.length());
+            buffer.putInt(bytes.length);
             // Add response
-            buffer.put(message.getBytes());
+            buffer.put(bytes);
             buffer.flip();
                         
             while (buffer.hasRemaining()) {
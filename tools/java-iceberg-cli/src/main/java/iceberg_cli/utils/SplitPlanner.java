@@ -0,0 +1,103 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.iceberg.util.BinPacking;
+
+/**
+ *
+ * Plans balanced scan tasks for tables that are not tracked by Iceberg metadata.
+ * Files are split at row group boundaries and the splits are bin-packed into
+ * tasks the same way Iceberg's planTasks does.
+ *
+ */
+public class SplitPlanner {
+    private final long targetSplitSize;
+    private final long openFileCost;
+    private final int lookback;
+
+    /**
+     * A byte range of a data file
+     */
+    public static class FileSplit {
+        private final String path;
+        private final String format;
+        private final long start;
+        private final long length;
+
+        public FileSplit(String path, String format, long start, long length) {
+            this.path = path;
+            this.format = format;
+            this.start = start;
+            this.length = length;
+        }
+
+        public String path() { return path; }
+        public String format() { return format; }
+        public long start() { return start; }
+        public long length() { return length; }
+
+        public String toString() {
+            return String.format("%s[%d, %d]", path, start, start + length);
+        }
+    }
+
+    public SplitPlanner(long targetSplitSize, long openFileCost, int lookback) {
+        if (targetSplitSize <= 0)
+            throw new IllegalArgumentException("Invalid split size (negative or 0): " + targetSplitSize);
+        if (openFileCost < 0)
+            throw new IllegalArgumentException("Invalid file open cost (negative): " + openFileCost);
+        this.targetSplitSize = targetSplitSize;
+        this.openFileCost = openFileCost;
+        this.lookback = lookback;
+    }
+
+    public long targetSplitSize() { return targetSplitSize; }
+
+    /**
+     * Split a file into ranges of roughly the target split size. Splits only start at
+     * the given row group offsets so that no row group is read by two tasks.
+     * @param path
+     * @param format
+     * @param fileLength
+     * @param offsets sorted starting positions of the row groups, may be null or empty
+     * @return splits covering the whole file
+     */
+    public List<FileSplit> split(String path, String format, long fileLength, List<Long> offsets) {
+        List<FileSplit> splits = new ArrayList<FileSplit>();
+        if (offsets == null || offsets.size() <= 1 || fileLength <= targetSplitSize) {
+            splits.add(new FileSplit(path, format, 0, fileLength));
+            return splits;
+        }
+
+        long splitStart = 0;
+        for (int index = 1; index < offsets.size(); ++index) {
+            long rowGroupStart = offsets.get(index);
+            long rowGroupEnd = (index + 1 < offsets.size()) ? offsets.get(index + 1) : fileLength;
+            // Close the current split if the next row group would make it too large
+            if (rowGroupStart > splitStart && rowGroupEnd - splitStart > targetSplitSize) {
+                splits.add(new FileSplit(path, format, splitStart, rowGroupStart - splitStart));
+                splitStart = rowGroupStart;
+            }
+        }
+        splits.add(new FileSplit(path, format, splitStart, fileLength - splitStart));
+
+        return splits;
+    }
+
+    /**
+     * Bin-pack splits into tasks of roughly the target split size. Every split
+     * weighs at least the cost of opening a file.
+     * @param splits
+     * @return list of tasks, each a list of splits
+     */
+    public List<List<FileSplit>> planTasks(List<FileSplit> splits) {
+        BinPacking.ListPacker<FileSplit> packer = new BinPacking.ListPacker<FileSplit>(targetSplitSize, lookback, true);
+        return packer.pack(splits, split -> Math.max(split.length(), openFileCost));
+    }
+}
@@ -6,6 +6,7 @@ package iceberg_cli.utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 public class StringUtils {
     private static final String BEGINNING_QUOTES = "^\"|^'";
@@ -72,6 +73,69 @@ public class StringUtils {
         return tokens;
     }
     
+    /**
+     * Find the newline that ends the command line of a message. Newlines inside
+     * quoted arguments do not end the command line. The message is scanned as
+     * UTF-8 bytes, which never contain quotes or newlines inside multi-byte
+     * characters, so a message cut anywhere can be split without decoding it.
+     * @param message
+     * @return byte offset of the newline or -1 if the message is a single command line
+     * 
+     * Examples:
+     * "a b\nc" => 3
+     * "a 'b\nc'" => -1
+     */
+    public static int commandLineEnd(byte[] message) {
+        byte quote = 0;
+        for (int index = 0; index < message.length; ++index) {
+            byte c = message[index];
+            if (quote != 0) {
+                // Ignore escaped quotes
+                if (c == quote && message[index - 1] != '\\')
+                    quote = 0;
+            } else if ((c == '\'' || c == '"') && (index == 0 || Character.isWhitespace(message[index - 1]))) {
+                // Like tokenizeQuotedString, only quotes starting a token enclose an argument
+                quote = c;
+            } else if (c == '\n') {
+                return index;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Split a comma-separated list of paths, keeping the commas that are part
+     * of an existing path. Of the paths starting at a piece, the longest that
+     * exists is taken.
+     * @param paths
+     * @param exists checks if a path exists
+     * @return list of paths
+     * 
+     * Examples, if "b,c" exists:
+     * "a,b,c" => ["a", "b,c"]
+     * "a,b,d" => ["a", "b", "d"]
+     */
+    public static List<String> splitPaths(String paths, Predicate<String> exists) {
+        String[] pieces = paths.split(",", -1);
+        List<String> result = new ArrayList<String>();
+        int start = 0;
+        while (start < pieces.length) {
+            int end = start;
+            String path = pieces[start];
+            String joined = path;
+            for (int index = start + 1; index < pieces.length; ++index) {
+                joined += "," + pieces[index];
+                if (exists.test(joined)) {
+                    end = index;
+                    path = joined;
+                }
+            }
+            result.add(path);
+            start = end + 1;
+        }
+        return result;
+    }
+    
     /**
      * Given delimited token, find the next occurrence of the required unescaped closing quote
      * @param tokens
@@ -0,0 +1,320 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.iceberg.DeleteFile;
+import org.apache.iceberg.FileContent;
+import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.MetadataColumns;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.StructLike;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.DeleteSchemaUtil;
+import org.apache.iceberg.types.Type;
+import org.apache.iceberg.types.TypeUtil;
+import org.apache.iceberg.util.StructLikeSet;
+import org.apache.iceberg.util.StructProjection;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import iceberg_cli.utils.ParallelUtils;
+
+/**
+ *
+ * Deletes that apply to the data files of a scan. Every delete file is read once,
+ * however many tasks it applies to. Position deletes are kept as a compressed
+ * bitmap per data file and equality deletes as a hash set per delete file, which
+ * is a set of primitive longs when the equality key is a single integer column.
+ * The memory used is limited by the ICEBERG_TOOLKIT_DELETE_MEMORY environment
+ * variable (bytes), half of the maximum heap size by default.
+ *
+ */
+class DeleteIndex {
+    // Approximate heap used by a row of a StructLikeSet, plus each of its values
+    private static final long ROW_OVERHEAD = 64;
+    private static final long VALUE_OVERHEAD = 32;
+
+    private final long memoryLimit;
+    private final AtomicLong memoryUsed = new AtomicLong();
+    private final Map<String, Roaring64NavigableMap> positionDeletes = new HashMap<String, Roaring64NavigableMap>();
+    private final Map<String, EqualityDeletes> equalityDeletes = new HashMap<String, EqualityDeletes>();
+    private final AtomicLong numPositionDeletes = new AtomicLong();
+    private final AtomicLong numEqualityDeletes = new AtomicLong();
+    private final AtomicLong numDeletedRows = new AtomicLong();
+
+    private DeleteIndex(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    static long memoryLimit() {
+        String s_memoryLimit = System.getenv("ICEBERG_TOOLKIT_DELETE_MEMORY");
+        return (s_memoryLimit == null) ? Runtime.getRuntime().maxMemory() / 2 : Long.valueOf(s_memoryLimit);
+    }
+
+    /**
+     * Load the delete files of the tasks
+     * @param reader used to open the delete files
+     * @param tasks
+     * @param numThreads
+     * @return deletes of the scan
+     * @throws Exception if the deletes do not fit in memory
+     */
+    static DeleteIndex load(TableReader reader, List<FileScanTask> tasks, int numThreads) throws Exception {
+        DeleteIndex index = new DeleteIndex(memoryLimit());
+
+        // Data files each position delete file applies to
+        Map<String, DeleteFile> positionFiles = new LinkedHashMap<String, DeleteFile>();
+        Map<String, Set<String>> targets = new HashMap<String, Set<String>>();
+        Map<String, DeleteFile> equalityFiles = new LinkedHashMap<String, DeleteFile>();
+        for (FileScanTask task : tasks) {
+            for (DeleteFile delete : task.deletes()) {
+                String deletePath = delete.path().toString();
+                if (delete.content() == FileContent.POSITION_DELETES) {
+                    positionFiles.putIfAbsent(deletePath, delete);
+                    targets.computeIfAbsent(deletePath, k -> new HashSet<String>()).add(task.file().path().toString());
+                } else {
+                    equalityFiles.putIfAbsent(deletePath, delete);
+                }
+            }
+        }
+
+        List<Map<String, Roaring64NavigableMap>> bitmaps = ParallelUtils.map(new ArrayList<DeleteFile>(positionFiles.values()), numThreads,
+                delete -> index.loadPositionDeletes(reader, delete, targets.get(delete.path().toString())));
+        for (Map<String, Roaring64NavigableMap> fileBitmaps : bitmaps) {
+            for (Map.Entry<String, Roaring64NavigableMap> entry : fileBitmaps.entrySet()) {
+                Roaring64NavigableMap bitmap = index.positionDeletes.get(entry.getKey());
+                if (bitmap == null) {
+                    index.positionDeletes.put(entry.getKey(), entry.getValue());
+                } else {
+                    long before = bitmap.getLongSizeInBytes();
+                    bitmap.or(entry.getValue());
+                    // The merged bitmap replaces the one charged by the loader
+                    index.reserve(bitmap.getLongSizeInBytes() - before - entry.getValue().getLongSizeInBytes());
+                }
+            }
+        }
+
+        List<EqualityDeletes> sets = ParallelUtils.map(new ArrayList<DeleteFile>(equalityFiles.values()), numThreads,
+                delete -> index.loadEqualityDeletes(reader, delete));
+        for (EqualityDeletes set : sets)
+            index.equalityDeletes.put(set.path, set);
+
+        return index;
+    }
+
+    private Map<String, Roaring64NavigableMap> loadPositionDeletes(TableReader reader, DeleteFile delete, Set<String> dataFiles) throws Exception {
+        Schema schema = DeleteSchemaUtil.pathPosSchema();
+        Map<String, Roaring64NavigableMap> bitmaps = new HashMap<String, Roaring64NavigableMap>();
+        // Position delete files are sorted by path, so skip row groups of other files
+        try (CloseableIterable<Record> records = reader.open(delete, schema, 0, delete.fileSizeInBytes(), Collections.emptyMap(),
+                Expressions.in(MetadataColumns.DELETE_FILE_PATH.name(), dataFiles))) {
+            String lastPath = null;
+            Roaring64NavigableMap bitmap = null;
+            for (Record record : records) {
+                String path = record.get(0).toString();
+                if (!path.equals(lastPath)) {
+                    lastPath = path;
+                    bitmap = dataFiles.contains(path) ? bitmaps.computeIfAbsent(path, k -> new Roaring64NavigableMap()) : null;
+                }
+                if (bitmap != null) {
+                    bitmap.addLong((Long) record.get(1));
+                    numPositionDeletes.incrementAndGet();
+                }
+            }
+        }
+
+        long size = 0;
+        for (Roaring64NavigableMap bitmap : bitmaps.values()) {
+            bitmap.runOptimize();
+            size += bitmap.getLongSizeInBytes();
+        }
+        reserve(size);
+        return bitmaps;
+    }
+
+    private EqualityDeletes loadEqualityDeletes(TableReader reader, DeleteFile delete) throws Exception {
+        Schema schema = TypeUtil.select(reader.table().schema(), new HashSet<Integer>(delete.equalityFieldIds()));
+        EqualityDeletes deletes = new EqualityDeletes(delete.path().toString(), schema);
+        try (CloseableIterable<Record> records = reader.open(delete, schema, 0, delete.fileSizeInBytes(), Collections.emptyMap(), null)) {
+            long reserved = 0;
+            for (Record record : records) {
+                deletes.add(record);
+                numEqualityDeletes.incrementAndGet();
+                // Charge memory as the set grows to fail early on huge delete files
+                if (deletes.sizeInBytes() - reserved > (1 << 20)) {
+                    reserve(deletes.sizeInBytes() - reserved);
+                    reserved = deletes.sizeInBytes();
+                }
+            }
+            reserve(deletes.sizeInBytes() - reserved);
+        }
+        return deletes;
+    }
+
+    private void reserve(long bytes) throws Exception {
+        long used = memoryUsed.addAndGet(bytes);
+        if (used > memoryLimit)
+            throw new Exception(String.format("Delete files need more than %d bytes of memory, "
+                    + "increase ICEBERG_TOOLKIT_DELETE_MEMORY or compact the table", memoryLimit));
+    }
+
+    boolean isEmpty() {
+        return positionDeletes.isEmpty() && equalityDeletes.isEmpty();
+    }
+
+    boolean hasPositionDeletes(String dataFile) {
+        return positionDeletes.containsKey(dataFile);
+    }
+
+    /**
+     * Get the filter of the task's deleted rows
+     * @param task
+     * @param readSchema schema of the records read for the task
+     * @return filter, or null if no rows of the task are deleted
+     */
+    RowFilter filterFor(FileScanTask task, Schema readSchema) {
+        Roaring64NavigableMap positions = positionDeletes.get(task.file().path().toString());
+        List<EqualityDeletes> sets = new ArrayList<EqualityDeletes>();
+        for (DeleteFile delete : task.deletes()) {
+            EqualityDeletes set = equalityDeletes.get(delete.path().toString());
+            if (set != null && !set.isEmpty())
+                sets.add(set);
+        }
+        if (positions == null && sets.isEmpty())
+            return null;
+        return new RowFilter(readSchema, positions, sets);
+    }
+
+    String stats() {
+        return String.format("Deletes applied: %d position deletes, %d equality deletes, %d rows deleted, %d bytes of memory",
+                numPositionDeletes.get(), numEqualityDeletes.get(), numDeletedRows.get(), memoryUsed.get());
+    }
+
+    /**
+     * Checks if rows of a single task are deleted. Not thread-safe, each task uses its own.
+     */
+    class RowFilter {
+        private final Roaring64NavigableMap positions;
+        private final int positionIndex;
+        private final List<EqualityDeletes> sets;
+        private final int[] keyIndexes;
+        private final StructProjection[] projections;
+        private final InternalRecordWrapper wrapper;
+
+        RowFilter(Schema readSchema, Roaring64NavigableMap positions, List<EqualityDeletes> sets) {
+            this.positions = positions;
+            this.positionIndex = readSchema.columns().indexOf(readSchema.findField(MetadataColumns.ROW_POSITION.fieldId()));
+            this.sets = sets;
+            this.keyIndexes = new int[sets.size()];
+            this.projections = new StructProjection[sets.size()];
+            this.wrapper = new InternalRecordWrapper(readSchema.asStruct());
+            for (int i = 0; i < sets.size(); ++i) {
+                EqualityDeletes set = sets.get(i);
+                if (set.longKeys != null)
+                    keyIndexes[i] = readSchema.columns().indexOf(readSchema.findField(set.schema.columns().get(0).fieldId()));
+                else
+                    projections[i] = StructProjection.create(readSchema, set.schema);
+            }
+        }
+
+        boolean isDeleted(Record record) {
+            boolean deleted = (positions != null && positions.contains((Long) record.get(positionIndex)));
+            for (int i = 0; !deleted && i < sets.size(); ++i) {
+                EqualityDeletes set = sets.get(i);
+                if (set.longKeys != null)
+                    deleted = set.contains(record.get(keyIndexes[i]));
+                else
+                    deleted = set.contains(projections[i].wrap(wrapper.wrap(record)));
+            }
+            if (deleted)
+                numDeletedRows.incrementAndGet();
+            return deleted;
+        }
+    }
+
+    /**
+     * Equality deletes of a single delete file
+     */
+    private static class EqualityDeletes {
+        private final String path;
+        private final Schema schema;
+        private final LongHashSet longKeys;
+        private boolean containsNull = false;
+        private final StructLikeSet rows;
+        private final InternalRecordWrapper wrapper;
+        private long rowsSize = 0;
+
+        EqualityDeletes(String path, Schema schema) {
+            this.path = path;
+            this.schema = schema;
+            if (isLongKey(schema)) {
+                this.longKeys = new LongHashSet();
+                this.rows = null;
+                this.wrapper = null;
+            } else {
+                this.longKeys = null;
+                this.rows = StructLikeSet.create(schema.asStruct());
+                this.wrapper = new InternalRecordWrapper(schema.asStruct());
+            }
+        }
+
+        private static boolean isLongKey(Schema schema) {
+            if (schema.columns().size() != 1)
+                return false;
+            Type.TypeID type = schema.columns().get(0).type().typeId();
+            return type == Type.TypeID.INTEGER || type == Type.TypeID.LONG;
+        }
+
+        void add(Record record) {
+            if (longKeys != null) {
+                Object key = record.get(0);
+                if (key == null)
+                    containsNull = true;
+                else
+                    longKeys.add(((Number) key).longValue());
+                return;
+            }
+
+            // Store internal values, which is what the set compares
+            InternalRecordWrapper row = wrapper.wrap(record);
+            Record copy = GenericRecord.create(schema);
+            for (int i = 0; i < row.size(); ++i)
+                copy.set(i, row.get(i, Object.class));
+            if (rows.add(copy))
+                rowsSize += ROW_OVERHEAD + VALUE_OVERHEAD * schema.columns().size();
+        }
+
+        boolean contains(Object key) {
+            if (key == null)
+                return containsNull;
+            return longKeys.contains(((Number) key).longValue());
+        }
+
+        boolean contains(StructLike row) {
+            return rows.contains(row);
+        }
+
+        boolean isEmpty() {
+            return (longKeys != null) ? longKeys.isEmpty() && !containsNull : rows.isEmpty();
+        }
+
+        long sizeInBytes() {
+            return (longKeys != null) ? longKeys.sizeInBytes() : rowsSize;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.reader;
+
+/**
+ *
+ * Open addressing hash set of primitive longs. Used for equality deletes on a
+ * single integer column, where it takes a fraction of the memory of a set of
+ * boxed keys. Not thread-safe for writes.
+ *
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0L;
+    private static final double LOAD_FACTOR = 0.75;
+    private long[] keys;
+    private int size = 0;
+    // 0 marks empty slots, so it is tracked separately
+    private boolean containsEmpty = false;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        keys = new long[capacityFor(expectedSize)];
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        // Finalizer of MurmurHash3, spreads sequential keys across the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Add a key to the set
+     * @param key
+     * @return true if the key was not already in the set
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmpty)
+                return false;
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        if (size + 1 > keys.length * LOAD_FACTOR)
+            resize(keys.length << 1);
+        if (insert(keys, key)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY)
+            return containsEmpty;
+        int mask = keys.length - 1;
+        for (int index = hash(key) & mask; ; index = (index + 1) & mask) {
+            if (keys[index] == key)
+                return true;
+            if (keys[index] == EMPTY)
+                return false;
+        }
+    }
+
+    private static boolean insert(long[] table, long key) {
+        int mask = table.length - 1;
+        for (int index = hash(key) & mask; ; index = (index + 1) & mask) {
+            if (table[index] == key)
+                return false;
+            if (table[index] == EMPTY) {
+                table[index] = key;
+                return true;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] table = new long[capacity];
+        for (long key : keys) {
+            if (key != EMPTY)
+                insert(table, key);
+        }
+        keys = table;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Approximate heap used by the set
+     */
+    public long sizeInBytes() { return 8L * keys.length; }
+}
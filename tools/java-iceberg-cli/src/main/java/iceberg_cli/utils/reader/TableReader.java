@@ -0,0 +1,247 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.reader;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import org.apache.iceberg.ContentFile;
+import org.apache.iceberg.ContentScanTask;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DeleteFile;
+import org.apache.iceberg.FileContent;
+import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.MetadataColumns;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.avro.Avro;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.IdentityPartitionConverters;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.data.avro.DataReader;
+import org.apache.iceberg.data.orc.GenericOrcReader;
+import org.apache.iceberg.data.parquet.GenericParquetReaders;
+import org.apache.iceberg.expressions.Evaluator;
+import org.apache.iceberg.expressions.Expression;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.InputFile;
+import org.apache.iceberg.mapping.NameMapping;
+import org.apache.iceberg.mapping.NameMappingParser;
+import org.apache.iceberg.orc.ORC;
+import org.apache.iceberg.parquet.Parquet;
+import org.apache.iceberg.types.TypeUtil;
+import org.apache.iceberg.util.PartitionUtil;
+
+import iceberg_cli.utils.DataConversion;
+import iceberg_cli.utils.ParallelUtils;
+import iceberg_cli.utils.Sampler;
+
+/**
+ *
+ * Reads planned scan tasks of an Iceberg table. Tasks are read in parallel and
+ * the rows are returned in task order. Position and equality delete files
+ * attached to the tasks are loaded once per scan by a DeleteIndex and applied
+ * while the data files are read.
+ *
+ */
+public class TableReader {
+    private final Table table;
+    private final Schema projection;
+    private final FileIO io;
+    private final NameMapping nameMapping;
+    private Sampler sampler = null;
+
+    /**
+     * @param table
+     * @param projection columns to return, in order
+     */
+    public TableReader(Table table, Schema projection) {
+        this.table = table;
+        this.projection = projection;
+        this.io = table.io();
+        String mapping = table.properties().get(TableProperties.DEFAULT_NAME_MAPPING);
+        this.nameMapping = (mapping == null) ? null : NameMappingParser.fromJson(mapping);
+    }
+
+    /**
+     * Keep only a sample of the rows of each task
+     * @param sampler
+     */
+    public void setSampler(Sampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * Read all rows of the tasks
+     * @param tasks
+     * @param numThreads
+     * @return rows as lists of strings
+     * @throws Exception
+     */
+    public List<List<String>> read(List<FileScanTask> tasks, int numThreads) throws Exception {
+        DeleteIndex deletes = DeleteIndex.load(this, tasks, numThreads);
+        List<List<List<String>>> rowsPerTask = ParallelUtils.map(tasks, numThreads, task -> readTask(task, deletes));
+
+        List<List<String>> rows = new ArrayList<List<String>>();
+        for (List<List<String>> taskRows : rowsPerTask)
+            rows.addAll(taskRows);
+
+        if (!deletes.isEmpty())
+            System.out.println(deletes.stats());
+
+        return rows;
+    }
+
+    /**
+     * Consumes the records of a task
+     */
+    public interface RecordConsumer {
+        void accept(Record record) throws Exception;
+    }
+
+    /**
+     * Read all live rows of the tasks' files, with deletes applied, on the caller's
+     * thread. The residual filters of the tasks are ignored, so whole files are read.
+     * @param tasks
+     * @param consumer called with each row, as a record of the projection
+     * @return number of rows read
+     * @throws Exception
+     */
+    public long readRecords(List<FileScanTask> tasks, RecordConsumer consumer) throws Exception {
+        DeleteIndex deletes = DeleteIndex.load(this, tasks, 1);
+        int numColumns = projection.columns().size();
+        long numRecords = 0;
+        for (FileScanTask task : tasks) {
+            numRecords += readTask(task, deletes, Expressions.alwaysTrue(), record -> {
+                if (record.size() == numColumns) {
+                    consumer.accept(record);
+                    return;
+                }
+                // Drop the columns only needed to apply deletes
+                Record copy = GenericRecord.create(projection);
+                for (int i = 0; i < numColumns; ++i)
+                    copy.set(i, record.get(i));
+                consumer.accept(copy);
+            });
+        }
+        return numRecords;
+    }
+
+    private List<List<String>> readTask(FileScanTask task, DeleteIndex deletes) throws Exception {
+        BooleanSupplier rowFilter = (sampler == null) ? null : sampler.rowFilter(task.file().path().toString(), task.start());
+        List<List<String>> rows = new ArrayList<List<String>>();
+        readTask(task, deletes, task.residual(), record -> {
+            if (rowFilter != null && !rowFilter.getAsBoolean())
+                return;
+            // Columns only needed to apply deletes come after the projection
+            rows.add(DataConversion.recordAsList(record, projection.columns().size()));
+        });
+        return rows;
+    }
+
+    /**
+     * Pass the rows of a task matching the residual and not deleted to the consumer
+     * @return number of rows passed
+     */
+    private long readTask(FileScanTask task, DeleteIndex deletes, Expression residual, RecordConsumer consumer) throws Exception {
+        Schema readSchema = readSchema(task, deletes);
+        DeleteIndex.RowFilter deleteFilter = deletes.filterFor(task, readSchema);
+        Evaluator evaluator = (residual.op() == Expression.Operation.TRUE) ? null : new Evaluator(readSchema.asStruct(), residual);
+        // Evaluators expect dates and times as ints and longs, not the Java types of generic records
+        InternalRecordWrapper wrapper = (evaluator == null) ? null : new InternalRecordWrapper(readSchema.asStruct());
+        // Typed as a ContentScanTask to use the non-deprecated overload
+        ContentScanTask<DataFile> contentTask = task;
+        Map<Integer, ?> constants = PartitionUtil.constantsMap(contentTask, IdentityPartitionConverters::convertConstant);
+
+        long numRecords = 0;
+        try (CloseableIterable<Record> records = open(task.file(), readSchema, task.start(), task.length(), constants, residual)) {
+            for (Record record : records) {
+                if (evaluator != null && !evaluator.eval(wrapper.wrap(record)))
+                    continue;
+                if (deleteFilter != null && deleteFilter.isDeleted(record))
+                    continue;
+                consumer.accept(record);
+                numRecords++;
+            }
+        }
+        return numRecords;
+    }
+
+    /**
+     * The projection plus any columns needed to apply the task's deletes
+     */
+    private Schema readSchema(FileScanTask task, DeleteIndex deletes) {
+        Set<Integer> equalityIds = new HashSet<Integer>();
+        for (DeleteFile delete : task.deletes()) {
+            if (delete.content() == FileContent.EQUALITY_DELETES)
+                equalityIds.addAll(delete.equalityFieldIds());
+        }
+
+        Schema readSchema = projection;
+        equalityIds.removeAll(TypeUtil.getProjectedIds(projection));
+        if (!equalityIds.isEmpty())
+            readSchema = TypeUtil.join(readSchema, TypeUtil.select(table.schema(), equalityIds));
+        if (deletes.hasPositionDeletes(task.file().path().toString()))
+            readSchema = TypeUtil.join(readSchema, new Schema(MetadataColumns.ROW_POSITION));
+        return readSchema;
+    }
+
+    /**
+     * Open a range of a data or delete file
+     * @param file
+     * @param schema projected schema
+     * @param start
+     * @param length
+     * @param constants values of identity partition columns
+     * @param filter used to skip row groups, may be null
+     * @return records of the file
+     */
+    CloseableIterable<Record> open(ContentFile<?> file, Schema schema, long start, long length,
+            Map<Integer, ?> constants, Expression filter) {
+        InputFile input = io.newInputFile(file.path().toString(), file.fileSizeInBytes());
+        switch (file.format()) {
+            case PARQUET:
+                Parquet.ReadBuilder parquetBuilder = Parquet.read(input)
+                    .project(schema)
+                    .split(start, length)
+                    .createReaderFunc(fileSchema -> GenericParquetReaders.buildReader(schema, fileSchema, constants));
+                if (filter != null)
+                    parquetBuilder.filter(filter);
+                if (nameMapping != null)
+                    parquetBuilder.withNameMapping(nameMapping);
+                return parquetBuilder.build();
+            case AVRO:
+                Avro.ReadBuilder avroBuilder = Avro.read(input)
+                    .project(schema)
+                    .split(start, length)
+                    .createReaderFunc(avroSchema -> DataReader.create(schema, avroSchema, constants));
+                if (nameMapping != null)
+                    avroBuilder.withNameMapping(nameMapping);
+                return avroBuilder.build();
+            case ORC:
+                ORC.ReadBuilder orcBuilder = ORC.read(input)
+                    .project(schema)
+                    .split(start, length)
+                    .createReaderFunc(fileSchema -> GenericOrcReader.buildReader(schema, fileSchema, constants));
+                if (filter != null)
+                    orcBuilder.filter(filter);
+                if (nameMapping != null)
+                    orcBuilder.withNameMapping(nameMapping);
+                return orcBuilder.build();
+            default:
+                throw new UnsupportedOperationException(String.format("Cannot read %s file: %s", file.format(), file.path()));
+        }
+    }
+
+    Table table() { return table; }
+}
@@ -0,0 +1,32 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.data.Record;
+
+/**
+ *
+ * Writes records to new data files of a table
+ *
+ */
+public interface DataWriter extends Closeable {
+
+    public void write(Record record) throws IOException;
+
+    /**
+     * Close and delete all files written so far
+     */
+    public void abort();
+
+    /**
+     * @return files closed so far
+     */
+    public List<DataFile> dataFiles();
+}
@@ -0,0 +1,150 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionKey;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.io.FileIO;
+
+/**
+ *
+ * Routes each record to a RollingDataWriter for its partition. At most
+ * maxOpenWriters writers are open at once; when a record arrives for a new
+ * partition and the limit is reached, the least recently used writer is closed
+ * and its files are kept. Later records of that partition start a new file, so
+ * input clustered by partition gives the fewest files.
+ *
+ */
+public class FanoutDataWriter implements DataWriter {
+    private static final int DEFAULT_MAX_OPEN_WRITERS = 32;
+    private final FileIO io;
+    private final Schema schema;
+    private final PartitionSpec spec;
+    private final long targetFileSize;
+    private final FileFormat format;
+    private final ParquetSettings settings;
+    private final int maxOpenWriters;
+    private final Function<String, String> newFilePath;
+    private final PartitionKey partitionKey;
+    private final InternalRecordWrapper wrapper;
+    // Access ordered, the first entry is the least recently used writer
+    private final LinkedHashMap<PartitionKey, RollingDataWriter> writers =
+            new LinkedHashMap<PartitionKey, RollingDataWriter>(16, 0.75f, true);
+    private final List<DataFile> dataFiles = new ArrayList<DataFile>();
+    private long spills = 0;
+
+    /**
+     * @param io
+     * @param schema
+     * @param spec
+     * @param targetFileSize
+     * @param format format of the files
+     * @param settings settings of Parquet files
+     * @param maxOpenWriters
+     * @param newFilePath returns the location of a new file given its partition path,
+     * which is empty for unpartitioned tables
+     */
+    public FanoutDataWriter(FileIO io, Schema schema, PartitionSpec spec, long targetFileSize,
+            FileFormat format, ParquetSettings settings, int maxOpenWriters, Function<String, String> newFilePath) {
+        if (maxOpenWriters <= 0)
+            throw new IllegalArgumentException("Invalid number of open writers (negative or 0): " + maxOpenWriters);
+        this.io = io;
+        this.schema = schema;
+        this.spec = spec;
+        this.targetFileSize = targetFileSize;
+        this.format = format;
+        this.settings = settings;
+        this.maxOpenWriters = maxOpenWriters;
+        this.newFilePath = newFilePath;
+        this.partitionKey = new PartitionKey(spec, schema);
+        this.wrapper = new InternalRecordWrapper(schema.asStruct());
+    }
+
+    /**
+     * Get the maximum number of open writers from the environment, if set.
+     * @return value of ICEBERG_TOOLKIT_MAX_OPEN_WRITERS or the default
+     */
+    public static int maxOpenWriters() {
+        String value = System.getenv("ICEBERG_TOOLKIT_MAX_OPEN_WRITERS");
+        if (value == null)
+            return DEFAULT_MAX_OPEN_WRITERS;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for ICEBERG_TOOLKIT_MAX_OPEN_WRITERS: " + value);
+        }
+    }
+
+    public void write(Record record) throws IOException {
+        // Transforms work on internal values, e.g. micros instead of LocalDateTime
+        partitionKey.partition(wrapper.wrap(record));
+        RollingDataWriter writer = writers.get(partitionKey);
+        if (writer == null) {
+            if (writers.size() >= maxOpenWriters)
+                closeEldest();
+            PartitionKey partition = partitionKey.copy();
+            String partitionPath = spec.isUnpartitioned() ? "" : spec.partitionToPath(partition);
+            writer = new RollingDataWriter(io, schema, spec, spec.isUnpartitioned() ? null : partition,
+                    targetFileSize, format, settings, () -> newFilePath.apply(partitionPath));
+            writers.put(partition, writer);
+        }
+        writer.write(record);
+    }
+
+    private void closeEldest() throws IOException {
+        Iterator<Map.Entry<PartitionKey, RollingDataWriter>> eldest = writers.entrySet().iterator();
+        RollingDataWriter writer = eldest.next().getValue();
+        eldest.remove();
+        writer.close();
+        dataFiles.addAll(writer.dataFiles());
+        spills++;
+    }
+
+    /**
+     * Close all open writers
+     */
+    @Override
+    public void close() throws IOException {
+        for (RollingDataWriter writer : writers.values()) {
+            writer.close();
+            dataFiles.addAll(writer.dataFiles());
+        }
+        writers.clear();
+        if (spills > 0)
+            System.out.println(String.format("Closed %d writers early to stay within %d open writers", spills, maxOpenWriters));
+    }
+
+    /**
+     * Close and delete all files written so far
+     */
+    public void abort() {
+        for (RollingDataWriter writer : writers.values())
+            writer.abort();
+        writers.clear();
+        for (DataFile file : dataFiles)
+            io.deleteFile(file.path().toString());
+        dataFiles.clear();
+    }
+
+    /**
+     * @return files of the closed writers
+     */
+    public List<DataFile> dataFiles() {
+        return dataFiles;
+    }
+}
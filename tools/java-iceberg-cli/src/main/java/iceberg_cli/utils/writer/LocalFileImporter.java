@@ -0,0 +1,271 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.Metrics;
+import org.apache.iceberg.MetricsConfig;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.data.parquet.GenericParquetReaders;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.OutputFile;
+import org.apache.iceberg.io.PositionOutputStream;
+import org.apache.iceberg.mapping.MappingUtil;
+import org.apache.iceberg.mapping.NameMapping;
+import org.apache.iceberg.mapping.NameMappingParser;
+import org.apache.iceberg.parquet.Parquet;
+import org.apache.iceberg.parquet.ParquetSchemaUtil;
+import org.apache.iceberg.parquet.ParquetUtil;
+import org.apache.iceberg.types.Type;
+import org.apache.iceberg.types.TypeUtil;
+import org.apache.iceberg.types.Types;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.schema.MessageType;
+
+import iceberg_cli.utils.CsvRecords;
+import iceberg_cli.utils.DataConversion;
+import iceberg_cli.utils.ParquetFooters;
+
+/**
+ *
+ * Converts local CSV and Parquet files into data files of a table. CSV files
+ * need a header row naming the columns and are written through a
+ * FanoutDataWriter. Parquet files whose schema is compatible with the table
+ * are uploaded as-is with metrics from their footer, or rewritten through the
+ * writer when the table is partitioned. Parquet files without field IDs are
+ * matched to the table by column name, which needs a name mapping on the table.
+ * Files can be imported from several threads.
+ *
+ */
+public class LocalFileImporter {
+    private final Table table;
+    private final Schema schema;
+    private final PartitionSpec spec;
+    private final FileIO io;
+    private final long targetFileSize;
+    private final ParquetSettings settings;
+    private final int maxOpenWriters;
+    private final Function<String, String> newFilePath;
+    private final NameMapping nameMapping;
+    private final List<String> createdFiles = Collections.synchronizedList(new ArrayList<String>());
+    private volatile boolean needsNameMapping = false;
+
+    /**
+     * @param table
+     * @param io
+     * @param targetFileSize
+     * @param settings settings of the Parquet files written
+     * @param maxOpenWriters open writers per imported file
+     * @param newFilePath returns the location of a new file given its partition path
+     */
+    public LocalFileImporter(Table table, FileIO io, long targetFileSize, ParquetSettings settings,
+            int maxOpenWriters, Function<String, String> newFilePath) {
+        this.table = table;
+        this.schema = table.schema();
+        this.spec = table.spec();
+        this.io = io;
+        this.targetFileSize = targetFileSize;
+        this.settings = settings;
+        this.maxOpenWriters = maxOpenWriters;
+        this.newFilePath = newFilePath;
+        String mapping = table.properties().get(TableProperties.DEFAULT_NAME_MAPPING);
+        this.nameMapping = (mapping == null) ? MappingUtil.create(schema) : NameMappingParser.fromJson(mapping);
+    }
+
+    /**
+     * @param file local CSV or Parquet file
+     * @return data files to commit
+     * @throws Exception
+     */
+    public List<DataFile> importFile(File file) throws Exception {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".csv"))
+            return importCsv(file);
+        if (name.endsWith(".parquet"))
+            return importParquet(file);
+        throw new Exception("Unsupported file format, expected a .csv or .parquet file: " + file);
+    }
+
+    /**
+     * @return true if an imported file was matched by column names and the table has no name mapping
+     */
+    public boolean needsNameMapping() {
+        return needsNameMapping && table.properties().get(TableProperties.DEFAULT_NAME_MAPPING) == null;
+    }
+
+    /**
+     * @return name mapping to set on the table when needsNameMapping is true
+     */
+    public NameMapping nameMapping() {
+        return nameMapping;
+    }
+
+    /**
+     * Delete all files created by the imports
+     */
+    public void abort() {
+        synchronized (createdFiles) {
+            for (String path : createdFiles)
+                io.deleteFile(path);
+            createdFiles.clear();
+        }
+    }
+
+    private List<DataFile> importCsv(File file) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            CsvRecords rows = new CsvRecords(reader);
+            if (!rows.hasNext())
+                throw new Exception("Missing header row in " + file);
+
+            // Map header columns to table columns
+            List<String> header = rows.next();
+            Types.NestedField[] columns = new Types.NestedField[header.size()];
+            for (int i = 0; i < header.size(); i++) {
+                columns[i] = schema.caseInsensitiveFindField(header.get(i).trim());
+                if (columns[i] == null || !schema.columns().contains(columns[i]))
+                    throw new Exception(String.format("Column %s of %s is not a column of the table", header.get(i), file));
+            }
+            for (Types.NestedField column : schema.columns()) {
+                if (column.isRequired() && !List.of(columns).contains(column))
+                    throw new Exception(String.format("Required column %s is missing in %s", column.name(), file));
+            }
+
+            return write(file, writer -> {
+                while (rows.hasNext()) {
+                    List<String> row = rows.next();
+                    if (row.size() != columns.length)
+                        throw new Exception(String.format("Expected %d fields at line %d of %s, found %d",
+                                columns.length, rows.lineNumber(), file, row.size()));
+                    Record record = GenericRecord.create(schema);
+                    for (int i = 0; i < columns.length; i++) {
+                        Types.NestedField column = columns[i];
+                        String value = row.get(i);
+                        // An empty field is null, except for strings
+                        Object converted = (value.isEmpty() && column.type().typeId() != Type.TypeID.STRING)
+                                ? null : DataConversion.stringToIcebergType(value, column.type());
+                        if (converted == null && column.isRequired())
+                            throw new Exception(String.format("Required field %s is null at line %d of %s",
+                                    column.name(), rows.lineNumber(), file));
+                        record.setField(column.name(), converted);
+                    }
+                    writer.write(record);
+                }
+            });
+        }
+    }
+
+    private List<DataFile> importParquet(File file) throws Exception {
+        ParquetMetadata footer = ParquetFooters.read(org.apache.iceberg.Files.localInput(file));
+        MessageType fileSchema = footer.getFileMetaData().getSchema();
+        boolean hasIds = ParquetSchemaUtil.hasIds(fileSchema);
+        if (!hasIds) {
+            fileSchema = ParquetSchemaUtil.applyNameMapping(fileSchema, nameMapping);
+            needsNameMapping = true;
+        }
+        checkCompatible(ParquetSchemaUtil.convertAndPrune(fileSchema), file);
+
+        if (spec.isPartitioned()) {
+            // Records have to be routed to their partitions
+            Parquet.ReadBuilder builder = Parquet.read(org.apache.iceberg.Files.localInput(file))
+                    .project(schema)
+                    .createReaderFunc(readSchema -> GenericParquetReaders.buildReader(schema, readSchema));
+            if (!hasIds)
+                builder.withNameMapping(nameMapping);
+            return write(file, writer -> {
+                try (CloseableIterable<Record> records = builder.build()) {
+                    for (Record record : records)
+                        writer.write(record);
+                }
+            });
+        }
+
+        String location = newFilePath.apply("");
+        OutputFile output = io.newOutputFile(location);
+        createdFiles.add(location);
+        try (InputStream in = new FileInputStream(file); PositionOutputStream out = output.createOrOverwrite()) {
+            in.transferTo(out);
+        }
+        System.out.println("File uploaded to: " + location);
+
+        Metrics metrics = ParquetUtil.footerMetrics(footer, Stream.empty(),
+                MetricsConfig.forTable(table), hasIds ? null : nameMapping);
+        DataFile dataFile = DataFiles.builder(spec)
+                .withPath(location)
+                .withFormat(FileFormat.PARQUET)
+                .withFileSizeInBytes(file.length())
+                .withMetrics(metrics)
+                .withSplitOffsets(ParquetUtil.getSplitOffsets(footer))
+                .build();
+        return List.of(dataFile);
+    }
+
+    /**
+     * Check that every table column can be read from a file with this schema
+     */
+    private void checkCompatible(Schema fileSchema, File file) throws Exception {
+        for (Map.Entry<Integer, Types.NestedField> entry : TypeUtil.indexById(schema.asStruct()).entrySet()) {
+            Types.NestedField column = entry.getValue();
+            Types.NestedField fileColumn = fileSchema.findField(entry.getKey());
+            String name = schema.findColumnName(entry.getKey());
+            if (fileColumn == null) {
+                if (column.isRequired())
+                    throw new Exception(String.format("Required column %s is missing in %s", name, file));
+                continue;
+            }
+            if (column.isRequired() && fileColumn.isOptional())
+                throw new Exception(String.format("Column %s is required but optional in %s", name, file));
+
+            Type type = column.type();
+            Type fileType = fileColumn.type();
+            if (type.isPrimitiveType() != fileType.isPrimitiveType()
+                    || (type.isPrimitiveType() && !type.equals(fileType)
+                            && !TypeUtil.isPromotionAllowed(fileType, type.asPrimitiveType()))
+                    || (type.isNestedType() && type.typeId() != fileType.typeId()))
+                throw new Exception(String.format("Column %s has type %s in the table but %s in %s", name, type, fileType, file));
+        }
+    }
+
+    private interface WriteTask {
+        void run(DataWriter writer) throws Exception;
+    }
+
+    /**
+     * Run the task with a new writer, deleting its files on failure
+     */
+    private List<DataFile> write(File file, WriteTask task) throws Exception {
+        FanoutDataWriter writer = new FanoutDataWriter(io, schema, spec, targetFileSize, FileFormat.PARQUET, settings, maxOpenWriters, newFilePath);
+        try {
+            task.run(writer);
+            writer.close();
+        } catch (Exception e) {
+            writer.abort();
+            throw new Exception("Error importing " + file + ": " + e.getMessage(), e);
+        }
+        for (DataFile dataFile : writer.dataFiles())
+            createdFiles.add(dataFile.path().toString());
+        return writer.dataFiles();
+    }
+}
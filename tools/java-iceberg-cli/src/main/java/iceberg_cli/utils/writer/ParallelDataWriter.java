@@ -0,0 +1,204 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.PartitionKey;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.data.Record;
+
+/**
+ *
+ * Encodes records on several threads. Records are passed in batches to worker
+ * threads, each writing its own files through its own DataWriter. Records of
+ * a partition always go to the same worker so partitions are not spread over
+ * more files than needed; records of unpartitioned tables are dealt out batch
+ * by batch. The caller blocks when the workers fall behind, so memory stays
+ * bounded by the queue capacity.
+ *
+ */
+public class ParallelDataWriter implements DataWriter {
+    private static final int BATCH_SIZE = 1000;
+    private static final int BATCHES_PER_WORKER = 4;
+    private static final List<Record> END_OF_INPUT = new ArrayList<Record>();
+    private final List<DataWriter> writers = new ArrayList<DataWriter>();
+    private final List<BlockingQueue<List<Record>>> queues = new ArrayList<BlockingQueue<List<Record>>>();
+    private final List<List<Record>> batches = new ArrayList<List<Record>>();
+    private final List<Future<Void>> workers = new ArrayList<Future<Void>>();
+    private final ExecutorService pool;
+    private final PartitionSpec spec;
+    private final PartitionKey partitionKey;
+    private final InternalRecordWrapper wrapper;
+    private final List<DataFile> dataFiles = new ArrayList<DataFile>();
+    private int nextWorker = 0;
+    private volatile boolean aborted = false;
+
+    /**
+     * @param numThreads number of worker threads
+     * @param schema
+     * @param spec
+     * @param newWriter creates the writer of a worker
+     */
+    public ParallelDataWriter(int numThreads, Schema schema, PartitionSpec spec, Supplier<DataWriter> newWriter) {
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("Invalid number of write threads (negative or 0): " + numThreads);
+        this.spec = spec;
+        this.partitionKey = new PartitionKey(spec, schema);
+        this.wrapper = new InternalRecordWrapper(schema.asStruct());
+        this.pool = Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            DataWriter writer = newWriter.get();
+            BlockingQueue<List<Record>> queue = new ArrayBlockingQueue<List<Record>>(BATCHES_PER_WORKER);
+            writers.add(writer);
+            queues.add(queue);
+            batches.add(new ArrayList<Record>(BATCH_SIZE));
+            workers.add(pool.submit(() -> work(writer, queue)));
+        }
+    }
+
+    /**
+     * Get the number of write threads from the environment, if set.
+     * @return value of ICEBERG_TOOLKIT_WRITE_THREADS, or 1 to write on the caller's thread
+     */
+    public static int writeThreads() {
+        String value = System.getenv("ICEBERG_TOOLKIT_WRITE_THREADS");
+        if (value == null)
+            return 1;
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for ICEBERG_TOOLKIT_WRITE_THREADS: " + value);
+        }
+    }
+
+    private Void work(DataWriter writer, BlockingQueue<List<Record>> queue) throws Exception {
+        while (!aborted) {
+            List<Record> batch = queue.take();
+            if (batch == END_OF_INPUT)
+                break;
+            for (Record record : batch)
+                writer.write(record);
+        }
+        if (!aborted)
+            writer.close();
+        return null;
+    }
+
+    public void write(Record record) throws IOException {
+        int worker;
+        if (spec.isPartitioned()) {
+            partitionKey.partition(wrapper.wrap(record));
+            worker = Math.floorMod(partitionKey.hashCode(), writers.size());
+        } else {
+            worker = nextWorker;
+        }
+
+        List<Record> batch = batches.get(worker);
+        batch.add(record);
+        if (batch.size() >= BATCH_SIZE) {
+            send(worker, batch);
+            batches.set(worker, new ArrayList<Record>(BATCH_SIZE));
+            if (spec.isUnpartitioned())
+                nextWorker = (nextWorker + 1) % writers.size();
+        }
+    }
+
+    /**
+     * Queue a batch for a worker, waiting while its queue is full. Fails if the
+     * worker has stopped so the caller doesn't wait on it forever.
+     */
+    private void send(int worker, List<Record> batch) throws IOException {
+        try {
+            while (!queues.get(worker).offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (workers.get(worker).isDone())
+                    waitFor(workers.get(worker));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing records", e);
+        }
+    }
+
+    private void waitFor(Future<Void> worker) throws IOException {
+        try {
+            worker.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException("Error writing records: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing records", e);
+        }
+        throw new IOException("Writer stopped before the end of the input");
+    }
+
+    /**
+     * Write the remaining records and wait for all workers to close their files
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int i = 0; i < writers.size(); i++) {
+                if (!batches.get(i).isEmpty())
+                    send(i, batches.get(i));
+                send(i, END_OF_INPUT);
+                batches.set(i, new ArrayList<Record>());
+            }
+            for (Future<Void> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    waitFor(worker);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing records", e);
+        } finally {
+            pool.shutdown();
+        }
+        for (DataWriter writer : writers)
+            dataFiles.addAll(writer.dataFiles());
+    }
+
+    /**
+     * Stop the workers, then close and delete all files written so far
+     */
+    public void abort() {
+        aborted = true;
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (DataWriter writer : writers)
+            writer.abort();
+        dataFiles.clear();
+    }
+
+    /**
+     * @return files of all workers, after close
+     */
+    public List<DataFile> dataFiles() {
+        return dataFiles;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.iceberg.TableProperties;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ *
+ * Settings of the Parquet files written to a table: compression codec and
+ * level, row group size, page size, dictionary page size and the columns with
+ * bloom filters. They are read from the write.parquet.* table properties, which
+ * callers can override for one write. Bloom filters let readers skip row groups
+ * that cannot hold a value looked up, which min/max stats can't do for IDs.
+ *
+ */
+public class ParquetSettings {
+    public static final List<String> PROPERTIES = List.of(
+            TableProperties.PARQUET_COMPRESSION,
+            TableProperties.PARQUET_COMPRESSION_LEVEL,
+            TableProperties.PARQUET_ROW_GROUP_SIZE_BYTES,
+            TableProperties.PARQUET_PAGE_SIZE_BYTES,
+            TableProperties.PARQUET_DICT_SIZE_BYTES,
+            TableProperties.PARQUET_BLOOM_FILTER_MAX_BYTES);
+
+    private final Map<String, String> properties = new LinkedHashMap<String, String>();
+
+    /**
+     * Settings of the Parquet writer defaults
+     */
+    public ParquetSettings() {
+        this(Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * @param tableProperties
+     * @param overrides values of write.parquet.* table properties to use instead of the table's
+     */
+    public ParquetSettings(Map<String, String> tableProperties, Map<String, String> overrides) {
+        for (String name : overrides.keySet()) {
+            if (!PROPERTIES.contains(name) && !isBloomFilterColumn(name))
+                throw new IllegalArgumentException("Unknown Parquet setting: " + name);
+        }
+        Set<String> names = new LinkedHashSet<String>(PROPERTIES);
+        for (String name : tableProperties.keySet()) {
+            if (isBloomFilterColumn(name))
+                names.add(name);
+        }
+        names.addAll(overrides.keySet());
+        for (String name : names) {
+            String value = overrides.containsKey(name) ? overrides.get(name) : tableProperties.get(name);
+            if (value != null)
+                properties.put(name, validate(name, value.trim()));
+        }
+    }
+
+    private static boolean isBloomFilterColumn(String name) {
+        return name.startsWith(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX)
+                && name.length() > TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX.length();
+    }
+
+    private static String validate(String name, String value) {
+        if (isBloomFilterColumn(name)) {
+            if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false"))
+                return value.toLowerCase();
+            throw new IllegalArgumentException("Invalid value for " + name + ", expected true or false: " + value);
+        }
+        if (name.equals(TableProperties.PARQUET_COMPRESSION)) {
+            try {
+                CompressionCodecName.valueOf(value.toUpperCase());
+                return value.toLowerCase();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value for " + name + ", expected one of zstd, snappy, gzip, lz4, uncompressed: " + value);
+            }
+        }
+        try {
+            long parsed = Long.parseLong(value);
+            // The level is codec specific, negative levels are valid for zstd
+            if (name.equals(TableProperties.PARQUET_COMPRESSION_LEVEL) || (parsed > 0 && parsed <= Integer.MAX_VALUE))
+                return value;
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+    }
+
+    /**
+     * @return properties to pass to the Parquet writer
+     */
+    public Map<String, String> properties() {
+        return properties;
+    }
+
+    /**
+     * @return compression codec of the files written
+     */
+    public String codec() {
+        return properties.getOrDefault(TableProperties.PARQUET_COMPRESSION, TableProperties.PARQUET_COMPRESSION_DEFAULT);
+    }
+
+    /**
+     * @return columns with bloom filters
+     */
+    public List<String> bloomFilterColumns() {
+        List<String> columns = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            if (isBloomFilterColumn(entry.getKey()) && entry.getValue().equals("true"))
+                columns.add(entry.getKey().substring(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX.length()));
+        }
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        String level = properties.get(TableProperties.PARQUET_COMPRESSION_LEVEL);
+        return String.format("codec %s%s, row group size %s bytes, page size %s bytes, dictionary page size %s bytes",
+                codec(),
+                (level == null) ? "" : " (level " + level + ")",
+                properties.getOrDefault(TableProperties.PARQUET_ROW_GROUP_SIZE_BYTES,
+                        String.valueOf(TableProperties.PARQUET_ROW_GROUP_SIZE_BYTES_DEFAULT)),
+                properties.getOrDefault(TableProperties.PARQUET_PAGE_SIZE_BYTES,
+                        String.valueOf(TableProperties.PARQUET_PAGE_SIZE_BYTES_DEFAULT)),
+                properties.getOrDefault(TableProperties.PARQUET_DICT_SIZE_BYTES,
+                        String.valueOf(TableProperties.PARQUET_DICT_SIZE_BYTES_DEFAULT)))
+                + (bloomFilterColumns().isEmpty() ? "" : String.format(", bloom filters on %s (at most %s bytes)",
+                        String.join(", ", bloomFilterColumns()),
+                        properties.getOrDefault(TableProperties.PARQUET_BLOOM_FILTER_MAX_BYTES,
+                                String.valueOf(TableProperties.PARQUET_BLOOM_FILTER_MAX_BYTES_DEFAULT))));
+    }
+}
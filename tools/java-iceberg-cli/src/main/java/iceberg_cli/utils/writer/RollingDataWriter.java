@@ -0,0 +1,138 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.StructLike;
+import org.apache.iceberg.data.GenericAppenderFactory;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.io.FileAppender;
+import org.apache.iceberg.io.FileAppenderFactory;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.OutputFile;
+
+/**
+ *
+ * Writes records to Parquet, ORC or Avro data files, starting a new file
+ * whenever the current one reaches the target file size. The size is checked every
+ * ROWS_DIVISOR records since it includes the buffered row group.
+ *
+ */
+public class RollingDataWriter implements DataWriter {
+    private static final int ROWS_DIVISOR = 1000;
+    private final FileIO io;
+    private final Schema schema;
+    private final PartitionSpec spec;
+    private final StructLike partition;
+    private final long targetFileSize;
+    private final FileFormat format;
+    private final FileAppenderFactory<Record> appenders;
+    private final Supplier<String> newFilePath;
+    private final List<DataFile> dataFiles = new ArrayList<DataFile>();
+
+    private String currentPath = null;
+    private FileAppender<Record> currentAppender = null;
+    private long currentRows = 0;
+
+    /**
+     * @param io
+     * @param schema
+     * @param spec
+     * @param partition partition of all records written, null for unpartitioned tables
+     * @param targetFileSize
+     * @param format format of the files
+     * @param settings settings of Parquet files
+     * @param newFilePath supplies the location of each new file
+     */
+    public RollingDataWriter(FileIO io, Schema schema, PartitionSpec spec, StructLike partition,
+            long targetFileSize, FileFormat format, ParquetSettings settings, Supplier<String> newFilePath) {
+        if (targetFileSize <= 0)
+            throw new IllegalArgumentException("Invalid target file size (negative or 0): " + targetFileSize);
+        this.io = io;
+        this.schema = schema;
+        this.spec = spec;
+        this.partition = partition;
+        this.targetFileSize = targetFileSize;
+        this.format = format;
+        this.appenders = new GenericAppenderFactory(schema, spec).setAll(settings.properties());
+        this.newFilePath = newFilePath;
+    }
+
+    public void write(Record record) throws IOException {
+        if (currentAppender == null)
+            openFile();
+        currentAppender.add(record);
+        currentRows++;
+        if (currentRows % ROWS_DIVISOR == 0 && currentAppender.length() >= targetFileSize)
+            closeFile();
+    }
+
+    private void openFile() throws IOException {
+        currentPath = newFilePath.get();
+        OutputFile file = io.newOutputFile(currentPath);
+        System.out.println("New file created at: " + file.location());
+        currentAppender = appenders.newAppender(file, format);
+        currentRows = 0;
+    }
+
+    private void closeFile() throws IOException {
+        currentAppender.close();
+        DataFiles.Builder builder = DataFiles.builder(spec)
+                .withPath(currentPath)
+                .withFormat(format)
+                .withFileSizeInBytes(currentAppender.length())
+                .withMetrics(currentAppender.metrics())
+                .withSplitOffsets(currentAppender.splitOffsets());
+        if (partition != null)
+            builder.withPartition(partition);
+        dataFiles.add(builder.build());
+        currentAppender = null;
+        currentPath = null;
+    }
+
+    /**
+     * Close the current file, if any
+     */
+    @Override
+    public void close() throws IOException {
+        if (currentAppender != null)
+            closeFile();
+    }
+
+    /**
+     * Close and delete all files written so far
+     */
+    public void abort() {
+        try {
+            if (currentAppender != null)
+                currentAppender.close();
+        } catch (IOException e) {
+            System.err.println("Error closing " + currentPath + ": " + e.getMessage());
+        }
+        if (currentPath != null)
+            io.deleteFile(currentPath);
+        for (DataFile file : dataFiles)
+            io.deleteFile(file.path().toString());
+        currentAppender = null;
+        currentPath = null;
+        dataFiles.clear();
+    }
+
+    /**
+     * @return files closed so far
+     */
+    public List<DataFile> dataFiles() {
+        return dataFiles;
+    }
+}
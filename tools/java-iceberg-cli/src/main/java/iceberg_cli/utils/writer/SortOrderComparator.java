@@ -0,0 +1,93 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.iceberg.Accessor;
+import org.apache.iceberg.NullOrder;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.SortDirection;
+import org.apache.iceberg.SortField;
+import org.apache.iceberg.SortOrder;
+import org.apache.iceberg.StructLike;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.transforms.Transform;
+import org.apache.iceberg.types.Comparators;
+import org.apache.iceberg.types.Type;
+import org.apache.iceberg.util.SerializableFunction;
+
+/**
+ *
+ * Compares records by a sort order. Transforms and comparisons work on internal
+ * values, e.g. micros instead of LocalDateTime, as in the sort order spec. Not
+ * thread-safe, each thread uses its own.
+ *
+ */
+public class SortOrderComparator implements Comparator<Record> {
+    private final Key[] keys;
+    private final InternalRecordWrapper left;
+    private final InternalRecordWrapper right;
+
+    /**
+     * Sort key of one field of the sort order
+     */
+    private static class Key {
+        private final Accessor<StructLike> accessor;
+        private final SerializableFunction<Object, Object> transform;
+        private final Comparator<Object> comparator;
+        private final boolean nullsFirst;
+
+        Key(Schema schema, SortField field) {
+            Type sourceType = schema.findType(field.sourceId());
+            Transform<Object, Object> transform = field.transform();
+            this.accessor = schema.accessorForField(field.sourceId());
+            this.transform = transform.bind(sourceType);
+            Comparator<Object> comparator = Comparators.forType(transform.getResultType(sourceType).asPrimitiveType());
+            this.comparator = (field.direction() == SortDirection.DESC) ? comparator.reversed() : comparator;
+            this.nullsFirst = (field.nullOrder() == NullOrder.NULLS_FIRST);
+        }
+
+        int compare(StructLike left, StructLike right) {
+            Object leftValue = accessor.get(left);
+            Object rightValue = accessor.get(right);
+            leftValue = (leftValue == null) ? null : transform.apply(leftValue);
+            rightValue = (rightValue == null) ? null : transform.apply(rightValue);
+            if (leftValue == null || rightValue == null) {
+                if (leftValue == rightValue)
+                    return 0;
+                return ((leftValue == null) == nullsFirst) ? -1 : 1;
+            }
+            return comparator.compare(leftValue, rightValue);
+        }
+    }
+
+    /**
+     * @param schema schema of the records
+     * @param order sort order bound to the schema
+     */
+    public SortOrderComparator(Schema schema, SortOrder order) {
+        List<SortField> fields = order.fields();
+        this.keys = new Key[fields.size()];
+        for (int i = 0; i < keys.length; ++i)
+            keys[i] = new Key(schema, fields.get(i));
+        this.left = new InternalRecordWrapper(schema.asStruct());
+        this.right = new InternalRecordWrapper(schema.asStruct());
+    }
+
+    @Override
+    public int compare(Record record1, Record record2) {
+        StructLike struct1 = left.wrap(record1);
+        StructLike struct2 = right.wrap(record2);
+        for (Key key : keys) {
+            int result = key.compare(struct1, struct2);
+            if (result != 0)
+                return result;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.SortOrder;
+import org.apache.iceberg.avro.Avro;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.data.avro.DataReader;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.FileAppender;
+import org.apache.iceberg.util.SortOrderUtil;
+
+/**
+ *
+ * Sorts records by the table's sort order before passing them to another
+ * writer. Records are clustered by partition first, so each partition is
+ * written in turn and each file holds a sorted range of rows, which gives tight
+ * column bounds for scans to skip files and row groups. At most bufferRows
+ * records are held in memory; larger inputs are sorted in runs spilled to
+ * local disk, which are merged when the writer is closed.
+ *
+ */
+public class SortingDataWriter implements DataWriter {
+    private static final int DEFAULT_BUFFER_ROWS = 500000;
+    private final Schema schema;
+    private final SortOrder order;
+    private final Comparator<Record> comparator;
+    private final int bufferRows;
+    private final DataWriter writer;
+    private final List<Record> buffer = new ArrayList<Record>();
+    private final List<File> runs = new ArrayList<File>();
+    private File spillDir = null;
+    private long numRecords = 0;
+
+    /**
+     * @param schema
+     * @param spec
+     * @param order sort order of the table
+     * @param bufferRows maximum number of records sorted in memory
+     * @param writer writer of the sorted records
+     */
+    public SortingDataWriter(Schema schema, PartitionSpec spec, SortOrder order, int bufferRows, DataWriter writer) {
+        if (bufferRows <= 0)
+            throw new IllegalArgumentException("Invalid number of sort buffer rows (negative or 0): " + bufferRows);
+        this.schema = schema;
+        this.order = SortOrderUtil.buildSortOrder(schema, spec, order);
+        this.comparator = new SortOrderComparator(schema, this.order);
+        this.bufferRows = bufferRows;
+        this.writer = writer;
+    }
+
+    /**
+     * @param schema
+     * @param comparator order of the records, e.g. a Z-order, used by this writer only
+     * @param bufferRows maximum number of records sorted in memory
+     * @param writer writer of the sorted records
+     */
+    public SortingDataWriter(Schema schema, Comparator<Record> comparator, int bufferRows, DataWriter writer) {
+        if (bufferRows <= 0)
+            throw new IllegalArgumentException("Invalid number of sort buffer rows (negative or 0): " + bufferRows);
+        this.schema = schema;
+        this.order = null;
+        this.comparator = comparator;
+        this.bufferRows = bufferRows;
+        this.writer = writer;
+    }
+
+    /**
+     * Get the size of the sort buffer from the environment, if set.
+     * @return value of ICEBERG_TOOLKIT_SORT_BUFFER_ROWS or the default
+     */
+    public static int bufferRows() {
+        String value = System.getenv("ICEBERG_TOOLKIT_SORT_BUFFER_ROWS");
+        if (value == null)
+            return DEFAULT_BUFFER_ROWS;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for ICEBERG_TOOLKIT_SORT_BUFFER_ROWS: " + value);
+        }
+    }
+
+    public void write(Record record) throws IOException {
+        buffer.add(record);
+        numRecords++;
+        if (buffer.size() >= bufferRows)
+            spill();
+    }
+
+    /**
+     * Write the sorted buffer to a local file
+     */
+    private void spill() throws IOException {
+        if (spillDir == null)
+            spillDir = Files.createTempDirectory("iceberg-sort").toFile();
+        buffer.sort(comparator);
+        File run = new File(spillDir, "run-" + runs.size() + ".avro");
+        runs.add(run);
+        try (FileAppender<Record> appender = Avro.write(org.apache.iceberg.Files.localOutput(run))
+                .schema(schema)
+                .createWriterFunc(org.apache.iceberg.data.avro.DataWriter::create)
+                .overwrite()
+                .build()) {
+            for (Record record : buffer)
+                appender.add(record);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sorted records of a spilled run
+     */
+    private class Run {
+        private final CloseableIterable<Record> records;
+        private final Iterator<Record> iterator;
+        private Record head;
+
+        Run(File file) {
+            this.records = Avro.read(org.apache.iceberg.Files.localInput(file))
+                    .project(schema)
+                    .createReaderFunc(DataReader::create)
+                    .build();
+            this.iterator = records.iterator();
+            this.head = iterator.next();
+        }
+
+        boolean advance() {
+            head = iterator.hasNext() ? iterator.next() : null;
+            return head != null;
+        }
+    }
+
+    /**
+     * Sort the remaining records, merging them with the spilled runs, and close the writer
+     */
+    @Override
+    public void close() throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(comparator);
+            for (Record record : buffer)
+                writer.write(record);
+            buffer.clear();
+        } else {
+            if (!buffer.isEmpty())
+                spill();
+            merge();
+            System.out.println(String.format("Sorted %d records in %d runs spilled to local disk", numRecords, runs.size()));
+            deleteRuns();
+        }
+        writer.close();
+    }
+
+    private void merge() throws IOException {
+        List<Run> open = new ArrayList<Run>();
+        // Each run has at least one record
+        PriorityQueue<Run> heads = new PriorityQueue<Run>(runs.size(), (run1, run2) -> comparator.compare(run1.head, run2.head));
+        try {
+            for (File file : runs) {
+                Run run = new Run(file);
+                open.add(run);
+                heads.add(run);
+            }
+            while (!heads.isEmpty()) {
+                Run run = heads.poll();
+                writer.write(run.head);
+                if (run.advance())
+                    heads.add(run);
+            }
+        } finally {
+            for (Run run : open)
+                run.records.close();
+        }
+    }
+
+    private void deleteRuns() {
+        for (File run : runs)
+            run.delete();
+        runs.clear();
+        if (spillDir != null)
+            spillDir.delete();
+        spillDir = null;
+    }
+
+    /**
+     * Delete the spilled runs, and close and delete all files written so far
+     */
+    public void abort() {
+        buffer.clear();
+        deleteRuns();
+        writer.abort();
+    }
+
+    /**
+     * @return files written so far
+     */
+    public List<DataFile> dataFiles() {
+        return writer.dataFiles();
+    }
+
+    /**
+     * @return sort order of the records, starting with the partition fields, null if sorted by a comparator
+     */
+    public SortOrder sortOrder() {
+        return order;
+    }
+}
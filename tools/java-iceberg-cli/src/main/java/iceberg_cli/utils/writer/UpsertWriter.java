@@ -0,0 +1,247 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DeleteFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionField;
+import org.apache.iceberg.PartitionKey;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.data.GenericAppenderFactory;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.deletes.EqualityDeleteWriter;
+import org.apache.iceberg.encryption.EncryptedFiles;
+import org.apache.iceberg.encryption.EncryptionKeyMetadata;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.types.Type;
+import org.apache.iceberg.types.TypeUtil;
+import org.apache.iceberg.types.Types;
+import org.apache.iceberg.util.StructLikeSet;
+
+import iceberg_cli.utils.reader.LongHashSet;
+
+/**
+ *
+ * Writes a batch of records that replace the rows with the same key: data files
+ * with the records and equality delete files with their keys, to be committed
+ * together in one row delta. Records are kept in memory until the writer is
+ * closed; when a key occurs more than once in the batch, the last record wins.
+ * Keys of a single integer column are deduplicated with a set of primitive longs.
+ *
+ */
+public class UpsertWriter {
+    private final FileIO io;
+    private final Schema schema;
+    private final PartitionSpec spec;
+    private final long targetFileSize;
+    private final FileFormat format;
+    private final ParquetSettings settings;
+    private final int maxOpenWriters;
+    private final Function<String, String> newFilePath;
+    private final Schema keySchema;
+    private final int[] keyIndexes;
+    private final List<Record> records = new ArrayList<Record>();
+    private final List<DataFile> dataFiles = new ArrayList<DataFile>();
+    private final List<DeleteFile> deleteFiles = new ArrayList<DeleteFile>();
+    private FanoutDataWriter dataWriter = null;
+    private int duplicates = 0;
+
+    /**
+     * @param io
+     * @param schema
+     * @param spec
+     * @param keyColumns top-level primitive columns identifying a row, which must
+     * include the source columns of the partition fields
+     * @param targetFileSize
+     * @param format format of the files
+     * @param settings settings of Parquet files
+     * @param maxOpenWriters
+     * @param newFilePath returns the location of a new file given its partition path,
+     * which is empty for unpartitioned tables
+     */
+    public UpsertWriter(FileIO io, Schema schema, PartitionSpec spec, List<String> keyColumns, long targetFileSize,
+            FileFormat format, ParquetSettings settings, int maxOpenWriters, Function<String, String> newFilePath) {
+        if (keyColumns.isEmpty())
+            throw new IllegalArgumentException("No key columns to upsert by");
+        Set<Integer> keyIds = new HashSet<Integer>();
+        for (String column : keyColumns) {
+            Types.NestedField field = schema.findField(column.trim());
+            if (field == null || !schema.columns().contains(field))
+                throw new IllegalArgumentException("Key column is not a top-level column of the table: " + column);
+            if (!field.type().isPrimitiveType() || field.type().typeId() == Type.TypeID.FLOAT || field.type().typeId() == Type.TypeID.DOUBLE)
+                throw new IllegalArgumentException("Invalid key column of type " + field.type() + ": " + field.name());
+            keyIds.add(field.fieldId());
+        }
+        // Equality deletes only apply to data files of their partition, so a row must stay in the partition of its key
+        for (PartitionField partitionField : spec.fields()) {
+            if (!keyIds.contains(partitionField.sourceId()))
+                throw new IllegalArgumentException("Key columns must include the partition column "
+                        + schema.findColumnName(partitionField.sourceId()));
+        }
+        this.io = io;
+        this.schema = schema;
+        this.spec = spec;
+        this.targetFileSize = targetFileSize;
+        this.format = format;
+        this.settings = settings;
+        this.maxOpenWriters = maxOpenWriters;
+        this.newFilePath = newFilePath;
+        this.keySchema = TypeUtil.select(schema, keyIds);
+        this.keyIndexes = keySchema.columns().stream().mapToInt(field -> schema.columns().indexOf(schema.findField(field.fieldId()))).toArray();
+    }
+
+    /**
+     * Add a record to the batch
+     * @param record
+     */
+    public void write(Record record) {
+        for (int index : keyIndexes) {
+            if (record.get(index) == null)
+                throw new IllegalArgumentException("Missing value of key column " + schema.columns().get(index).name());
+        }
+        records.add(record);
+    }
+
+    /**
+     * Deduplicate the batch and write its data and delete files
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        List<Record> upserts = dedupe();
+        dataWriter = new FanoutDataWriter(io, schema, spec, targetFileSize, format, settings, maxOpenWriters, newFilePath);
+        for (Record record : upserts)
+            dataWriter.write(record);
+        dataWriter.close();
+        dataFiles.addAll(dataWriter.dataFiles());
+        dataWriter = null;
+        writeDeletes(upserts);
+        records.clear();
+    }
+
+    /**
+     * @return the last record of each key, in the order of the batch
+     */
+    private List<Record> dedupe() {
+        boolean[] latest = new boolean[records.size()];
+        if (isLongKey(keySchema)) {
+            LongHashSet keys = new LongHashSet(records.size());
+            for (int i = records.size() - 1; i >= 0; --i)
+                latest[i] = keys.add(((Number) records.get(i).get(keyIndexes[0])).longValue());
+        } else {
+            StructLikeSet keys = StructLikeSet.create(keySchema.asStruct());
+            InternalRecordWrapper wrapper = new InternalRecordWrapper(keySchema.asStruct());
+            for (int i = records.size() - 1; i >= 0; --i)
+                latest[i] = keys.add(wrapper.copyFor(key(records.get(i))));
+        }
+
+        List<Record> upserts = new ArrayList<Record>(records.size());
+        for (int i = 0; i < records.size(); ++i) {
+            if (latest[i])
+                upserts.add(records.get(i));
+        }
+        duplicates = records.size() - upserts.size();
+        return upserts;
+    }
+
+    private static boolean isLongKey(Schema schema) {
+        if (schema.columns().size() != 1)
+            return false;
+        Type.TypeID type = schema.columns().get(0).type().typeId();
+        return type == Type.TypeID.INTEGER || type == Type.TypeID.LONG;
+    }
+
+    /**
+     * @param record
+     * @return the key columns of the record, in the order of the table schema
+     */
+    private Record key(Record record) {
+        Record key = GenericRecord.create(keySchema);
+        for (int i = 0; i < keyIndexes.length; ++i)
+            key.set(i, record.get(keyIndexes[i]));
+        return key;
+    }
+
+    /**
+     * Write the keys of the records to one equality delete file per partition
+     */
+    private void writeDeletes(List<Record> upserts) throws IOException {
+        int[] equalityFieldIds = keySchema.columns().stream().mapToInt(Types.NestedField::fieldId).toArray();
+        GenericAppenderFactory appenders = new GenericAppenderFactory(schema, spec, equalityFieldIds, keySchema, null);
+        appenders.setAll(settings.properties());
+
+        // Transforms work on internal values, e.g. micros instead of LocalDateTime
+        PartitionKey partitionKey = new PartitionKey(spec, schema);
+        InternalRecordWrapper wrapper = new InternalRecordWrapper(schema.asStruct());
+        Map<PartitionKey, List<Record>> partitions = new LinkedHashMap<PartitionKey, List<Record>>();
+        for (Record record : upserts) {
+            partitionKey.partition(wrapper.wrap(record));
+            List<Record> keys = partitions.get(partitionKey);
+            if (keys == null) {
+                keys = new ArrayList<Record>();
+                partitions.put(partitionKey.copy(), keys);
+            }
+            keys.add(key(record));
+        }
+
+        for (Map.Entry<PartitionKey, List<Record>> partition : partitions.entrySet()) {
+            String partitionPath = spec.isUnpartitioned() ? "" : spec.partitionToPath(partition.getKey());
+            EqualityDeleteWriter<Record> writer = appenders.newEqDeleteWriter(
+                    EncryptedFiles.encryptedOutput(io.newOutputFile(newFilePath.apply(partitionPath)), EncryptionKeyMetadata.EMPTY),
+                    format, spec.isUnpartitioned() ? null : partition.getKey());
+            try {
+                for (Record key : partition.getValue())
+                    writer.write(key);
+            } finally {
+                writer.close();
+                deleteFiles.add(writer.toDeleteFile());
+            }
+        }
+    }
+
+    /**
+     * Close and delete all files written so far
+     */
+    public void abort() {
+        if (dataWriter != null)
+            dataWriter.abort();
+        dataWriter = null;
+        for (DataFile file : dataFiles)
+            io.deleteFile(file.path().toString());
+        for (DeleteFile file : deleteFiles)
+            io.deleteFile(file.path().toString());
+        dataFiles.clear();
+        deleteFiles.clear();
+        records.clear();
+    }
+
+    /**
+     * @return number of records replaced by a later record with the same key in the batch
+     */
+    public int duplicates() {
+        return duplicates;
+    }
+
+    public List<DataFile> dataFiles() {
+        return Collections.unmodifiableList(dataFiles);
+    }
+
+    public List<DeleteFile> deleteFiles() {
+        return Collections.unmodifiableList(deleteFiles);
+    }
+}
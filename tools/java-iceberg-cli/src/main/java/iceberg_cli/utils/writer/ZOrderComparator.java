@@ -0,0 +1,136 @@
+/**
+ * (c) Copyright IBM Corp. 2023. All Rights Reserved.
+ */
+
+package iceberg_cli.utils.writer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.iceberg.Accessor;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.StructLike;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.types.Type;
+import org.apache.iceberg.types.Types;
+import org.apache.iceberg.util.ByteBuffers;
+import org.apache.iceberg.util.ZOrderByteUtils;
+
+/**
+ *
+ * Compares records by their position on the Z-order curve of several columns,
+ * so that rows close in all the columns are stored together and files have
+ * narrow bounds for each of them. Every column maps to 8 bytes that sort like
+ * its values, as in Iceberg's Z-order rewrite: strings and binaries by their
+ * first 8 bytes. Instead of interleaving the bits of two records, the column
+ * whose keys differ in the highest bit decides, which gives the same order.
+ * Nulls come first. Not thread-safe, each thread uses its own.
+ *
+ */
+public class ZOrderComparator implements Comparator<Record> {
+    private final List<Accessor<StructLike>> accessors;
+    private final Type.TypeID[] types;
+    private final InternalRecordWrapper left;
+    private final InternalRecordWrapper right;
+    private final long[] leftKeys;
+    private final long[] rightKeys;
+    private final ByteBuffer buffer = ByteBuffer.allocate(ZOrderByteUtils.PRIMITIVE_BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    /**
+     * @param schema schema of the records
+     * @param columns columns of the curve, most significant first
+     */
+    public ZOrderComparator(Schema schema, List<String> columns) {
+        if (columns.isEmpty())
+            throw new IllegalArgumentException("No Z-order columns");
+        this.accessors = new ArrayList<Accessor<StructLike>>(columns.size());
+        this.types = new Type.TypeID[columns.size()];
+        for (int i = 0; i < columns.size(); ++i) {
+            Types.NestedField field = schema.findField(columns.get(i));
+            if (field == null)
+                throw new IllegalArgumentException("Z-order column " + columns.get(i) + " not found");
+            switch (field.type().typeId()) {
+            case INTEGER:
+            case DATE:
+            case LONG:
+            case TIME:
+            case TIMESTAMP:
+            case FLOAT:
+            case DOUBLE:
+            case STRING:
+            case BINARY:
+            case FIXED:
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Cannot Z-order by column %s of type %s", columns.get(i), field.type()));
+            }
+            this.accessors.add(schema.accessorForField(field.fieldId()));
+            this.types[i] = field.type().typeId();
+        }
+        this.left = new InternalRecordWrapper(schema.asStruct());
+        this.right = new InternalRecordWrapper(schema.asStruct());
+        this.leftKeys = new long[columns.size()];
+        this.rightKeys = new long[columns.size()];
+    }
+
+    /**
+     * @return 8 bytes of the value that compare like it, as an unsigned long
+     */
+    private long key(Type.TypeID type, Object value) {
+        if (value == null)
+            return 0L;
+        ByteBuffer bytes;
+        switch (type) {
+        case INTEGER:
+        case DATE:
+            bytes = ZOrderByteUtils.intToOrderedBytes((Integer) value, buffer);
+            break;
+        case LONG:
+        case TIME:
+        case TIMESTAMP:
+            bytes = ZOrderByteUtils.longToOrderedBytes((Long) value, buffer);
+            break;
+        case FLOAT:
+            bytes = ZOrderByteUtils.floatToOrderedBytes((Float) value, buffer);
+            break;
+        case DOUBLE:
+            bytes = ZOrderByteUtils.doubleToOrderedBytes((Double) value, buffer);
+            break;
+        case STRING:
+            bytes = ZOrderByteUtils.stringToOrderedBytes(value.toString(), buffer.capacity(), buffer, encoder);
+            break;
+        default:
+            bytes = ZOrderByteUtils.byteTruncateOrFill(ByteBuffers.toByteArray((ByteBuffer) value), buffer.capacity(), buffer);
+            break;
+        }
+        return bytes.getLong(0);
+    }
+
+    private void keys(StructLike struct, long[] keys) {
+        for (int i = 0; i < keys.length; ++i)
+            keys[i] = key(types[i], accessors.get(i).get(struct));
+    }
+
+    @Override
+    public int compare(Record record1, Record record2) {
+        keys(left.wrap(record1), leftKeys);
+        keys(right.wrap(record2), rightKeys);
+        // Column with the highest differing bit, the first one on ties as its bits come first
+        int column = -1;
+        long highest = 0;
+        for (int i = 0; i < leftKeys.length; ++i) {
+            long diff = leftKeys[i] ^ rightKeys[i];
+            if (Long.numberOfLeadingZeros(diff) < Long.numberOfLeadingZeros(highest)) {
+                column = i;
+                highest = diff;
+            }
+        }
+        return (column < 0) ? 0 : Long.compareUnsigned(leftKeys[column], rightKeys[column]);
+    }
+}
@@ -0,0 +1,139 @@
+package iceberg_cli.utils;
+
+import java.nio.file.Files;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.BaseTable;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.HasTableOperations;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableMetadata;
+import org.apache.iceberg.TableOperations;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.Transaction;
+import org.apache.iceberg.exceptions.CommitFailedException;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.io.FileIO;
+import org.apache.iceberg.io.LocationProvider;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestCommitRetry {
+    private static final Schema SCHEMA = new Schema(Types.NestedField.required(1, "id", Types.LongType.get()));
+
+    /**
+     * Table operations failing the first commits as if another writer committed first
+     */
+    private static class ConflictingOperations implements TableOperations {
+        private final TableOperations ops;
+        private int conflicts;
+
+        ConflictingOperations(TableOperations ops, int conflicts) {
+            this.ops = ops;
+            this.conflicts = conflicts;
+        }
+
+        public TableMetadata current() { return ops.current(); }
+        public TableMetadata refresh() { return ops.refresh(); }
+        public FileIO io() { return ops.io(); }
+        public String metadataFileLocation(String fileName) { return ops.metadataFileLocation(fileName); }
+        public LocationProvider locationProvider() { return ops.locationProvider(); }
+
+        public void commit(TableMetadata base, TableMetadata metadata) {
+            if (conflicts-- > 0)
+                throw new CommitFailedException("Injected conflict");
+            ops.commit(base, metadata);
+        }
+    }
+
+    private static Table table(int conflicts, Map<String, String> properties) throws Exception {
+        Table table = new HadoopTables().create(SCHEMA, PartitionSpec.unpartitioned(), properties,
+                Files.createTempDirectory("commit-retry").toString());
+        return new BaseTable(new ConflictingOperations(((HasTableOperations) table).operations(), conflicts), table.name());
+    }
+
+    private static void append(Table table) {
+        DataFile file = DataFiles.builder(PartitionSpec.unpartitioned())
+                .withPath(table.location() + "/data/file.parquet")
+                .withFormat(FileFormat.PARQUET)
+                .withFileSizeInBytes(100)
+                .withRecordCount(1)
+                .build();
+        Transaction transaction = table.newTransaction();
+        transaction.newAppend().appendFile(file).commit();
+        transaction.commitTransaction();
+    }
+
+    @Test
+    public void testConflictsAreRetried() throws ServletException {
+        try {
+            Table table = table(2, Map.of());
+            CommitRetry retry = new CommitRetry(Map.of(TableProperties.COMMIT_NUM_RETRIES, "2",
+                    TableProperties.COMMIT_MIN_RETRY_WAIT_MS, "10"));
+            CommitRetry.Stats stats = retry.run(table, retryTable -> append(retryTable));
+
+            Assertions.assertEquals(3, stats.attempts());
+            Assertions.assertEquals(2, stats.conflicts());
+            Assertions.assertTrue(stats.retryTimeMs() >= 30, "Expected backoff of 10 and 20 ms");
+            Assertions.assertEquals(table.currentSnapshot().snapshotId(), stats.snapshotId());
+            Assertions.assertEquals("1", table.currentSnapshot().summary().get("total-data-files"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testReportsOwnSnapshot() throws ServletException {
+        try {
+            Table table = table(0, Map.of());
+            Table other = new HadoopTables().load(table.location());
+            Long[] ownSnapshot = new Long[1];
+            CommitRetry.Stats stats = new CommitRetry().run(table, retryTable -> {
+                append(retryTable);
+                ownSnapshot[0] = retryTable.currentSnapshot().snapshotId();
+                // Another writer commits before the table is refreshed
+                append(other);
+            });
+
+            Assertions.assertEquals(ownSnapshot[0], stats.snapshotId());
+            Assertions.assertNotEquals(table.currentSnapshot().snapshotId(), stats.snapshotId());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testTableSettingsLimitRetries() throws ServletException {
+        try {
+            Table table = table(2, Map.of(TableProperties.COMMIT_NUM_RETRIES, "1",
+                    TableProperties.COMMIT_MIN_RETRY_WAIT_MS, "10"));
+            Assertions.assertThrows(CommitFailedException.class,
+                    () -> new CommitRetry().run(table, retryTable -> append(retryTable)));
+            Assertions.assertNull(table.currentSnapshot());
+
+            // Overrides take precedence over the table settings
+            CommitRetry.Stats stats = new CommitRetry(Map.of(TableProperties.COMMIT_NUM_RETRIES, "0"))
+                    .run(table, retryTable -> append(retryTable));
+            Assertions.assertEquals(1, stats.attempts());
+            Assertions.assertEquals(0, stats.conflicts());
+            Assertions.assertEquals(0, stats.retryTimeMs());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new CommitRetry(Map.of(TableProperties.COMMIT_NUM_RETRIES, "-1")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new CommitRetry(Map.of("commit.retry.unknown", "1")));
+    }
+}
@@ -0,0 +1,358 @@
+package iceberg_cli.utils;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.iceberg.AppendFiles;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.PartitionKey;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.SortOrder;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.data.GenericAppenderFactory;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.IcebergGenerics;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.deletes.PositionDelete;
+import org.apache.iceberg.deletes.PositionDeleteWriter;
+import org.apache.iceberg.encryption.EncryptedFiles;
+import org.apache.iceberg.encryption.EncryptionKeyMetadata;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.InputFile;
+import org.apache.iceberg.mapping.MappingUtil;
+import org.apache.iceberg.mapping.NameMappingParser;
+import org.apache.iceberg.types.Types;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import iceberg_cli.utils.writer.ParquetSettings;
+import iceberg_cli.utils.writer.RollingDataWriter;
+import iceberg_cli.utils.writer.SortOrderComparator;
+
+public class TestCompactor {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.required(2, "region", Types.StringType.get()));
+    private static final PartitionSpec SPEC = PartitionSpec.builderFor(SCHEMA).identity("region").build();
+
+    private static String newFilePath(Table table, String partitionPath) {
+        return String.format("%s/data/%s/%s", table.location(), partitionPath, FileFormat.PARQUET.addExtension(UUID.randomUUID().toString()));
+    }
+
+    /**
+     * Append one small file per batch of 100 rows in each region
+     */
+    private static Table table(String[] regions, int filesPerRegion) throws Exception {
+        Table table = new HadoopTables(new Configuration()).create(SCHEMA, SPEC, Map.of(TableProperties.FORMAT_VERSION, "2"),
+                Files.createTempDirectory("compact").toString());
+        long id = 0;
+        for (int i = 0; i < filesPerRegion; i++) {
+            AppendFiles append = table.newAppend();
+            for (String region : regions) {
+                Record record = GenericRecord.create(SCHEMA);
+                record.setField("region", region);
+                PartitionKey partition = new PartitionKey(SPEC, SCHEMA);
+                partition.partition(record);
+                RollingDataWriter writer = new RollingDataWriter(table.io(), SCHEMA, SPEC, partition, Long.MAX_VALUE,
+                        FileFormat.PARQUET, new ParquetSettings(), () -> newFilePath(table, SPEC.partitionToPath(partition)));
+                for (int j = 0; j < 100; j++) {
+                    Record row = record.copy();
+                    row.setField("id", id++);
+                    writer.write(row);
+                }
+                writer.close();
+                for (DataFile dataFile : writer.dataFiles())
+                    append.appendFile(dataFile);
+            }
+            append.commit();
+        }
+        return table;
+    }
+
+    private static List<FileScanTask> tasks(Table table) throws Exception {
+        List<FileScanTask> tasks = new ArrayList<FileScanTask>();
+        try (CloseableIterable<FileScanTask> files = table.newScan().includeColumnStats().planFiles()) {
+            files.forEach(tasks::add);
+        }
+        return tasks;
+    }
+
+    private static Map<Long, String> read(Table table) throws Exception {
+        Map<Long, String> rows = new HashMap<Long, String>();
+        try (CloseableIterable<Record> records = IcebergGenerics.read(table).build()) {
+            for (Record record : records)
+                Assertions.assertNull(rows.put((Long) record.getField("id"), (String) record.getField("region")));
+        }
+        return rows;
+    }
+
+    /**
+     * Commit a position delete of a row of the data file
+     */
+    private static void delete(Table table, DataFile dataFile, long position) throws Exception {
+        // Full bounds of the data file paths, so that the delete file only applies to this data file
+        GenericAppenderFactory factory = new GenericAppenderFactory(SCHEMA, SPEC);
+        factory.setAll(Map.of(TableProperties.DEFAULT_WRITE_METRICS_MODE, "full"));
+        PositionDeleteWriter<Record> deleteWriter = factory.newPosDeleteWriter(
+                EncryptedFiles.encryptedOutput(table.io().newOutputFile(newFilePath(table, SPEC.partitionToPath(dataFile.partition()))),
+                        EncryptionKeyMetadata.EMPTY), FileFormat.PARQUET, dataFile.partition());
+        deleteWriter.write(PositionDelete.<Record>create().set(dataFile.path(), position, null));
+        deleteWriter.close();
+        table.newRowDelta().addDeletes(deleteWriter.toDeleteFile()).commit();
+    }
+
+    private static CommitRetry.Stats applyDeletes(Table table, int threshold) throws Exception {
+        Compactor compactor = new Compactor(table, table.io(), 1024 * 1024, 1024 * 1024, Long.MAX_VALUE);
+        compactor.applyDeletes(threshold);
+        return compactor.compact(Expressions.alwaysTrue(), FileFormat.PARQUET, new ParquetSettings(),
+                partitionPath -> newFilePath(table, partitionPath), new CommitRetry(), 2, false);
+    }
+
+    private static CommitRetry.Stats compact(Table table, long maxBytes, boolean stitch) throws Exception {
+        Compactor compactor = new Compactor(table, table.io(), 1024 * 1024, 1024 * 1024, maxBytes);
+        return compactor.compact(Expressions.alwaysTrue(), FileFormat.PARQUET, new ParquetSettings(),
+                partitionPath -> newFilePath(table, partitionPath), new CommitRetry(), 2, stitch);
+    }
+
+    @Test
+    public void testPlanBinsPerPartition() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu", "us"}, 5);
+            List<FileScanTask> tasks = tasks(table);
+            long fileSize = tasks.get(0).file().fileSizeInBytes();
+
+            // Bins of two files, the last file of each partition left on its own
+            long binSize = 2 * fileSize + fileSize / 2;
+            Compactor compactor = new Compactor(table, table.io(), binSize, binSize, Long.MAX_VALUE);
+            List<Compactor.Bin> bins = compactor.plan(tasks);
+            Assertions.assertEquals(4, bins.size());
+            for (Compactor.Bin bin : bins)
+                Assertions.assertEquals(2, bin.tasks().size());
+            Assertions.assertEquals("region=eu", bins.get(0).partitionPath());
+            Assertions.assertEquals("region=us", bins.get(3).partitionPath());
+
+            // Large files are left alone
+            Assertions.assertTrue(new Compactor(table, table.io(), fileSize / 2, fileSize, Long.MAX_VALUE).plan(tasks).isEmpty());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new Compactor(table, table.io(), 2, 1, 1));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testCompactKeepsRows() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu", "us"}, 5);
+            Map<Long, String> rows = read(table);
+
+            Assertions.assertNotNull(compact(table, Long.MAX_VALUE, false));
+            Assertions.assertEquals(2, tasks(table).size());
+            Assertions.assertEquals(rows, read(table));
+            Assertions.assertEquals("replace", table.currentSnapshot().operation());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testCompactWithinByteCap() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu", "us", "ap"}, 4);
+            Map<Long, String> rows = read(table);
+            long partitionBytes = 0;
+            for (FileScanTask task : tasks(table)) {
+                if (task.file().partition().get(0, String.class).equals("eu"))
+                    partitionBytes += task.file().fileSizeInBytes();
+            }
+
+            // Each run compacts one partition, the next run picks up where the last stopped
+            compact(table, partitionBytes + partitionBytes / 4, false);
+            Assertions.assertEquals(9, tasks(table).size());
+            compact(table, partitionBytes + partitionBytes / 4, false);
+            compact(table, partitionBytes + partitionBytes / 4, false);
+            Assertions.assertEquals(3, tasks(table).size());
+            Assertions.assertNull(compact(table, Long.MAX_VALUE, false));
+            Assertions.assertEquals(rows, read(table));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testStitchRowGroups() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu", "us"}, 5);
+            Map<Long, String> rows = read(table);
+
+            Assertions.assertNotNull(compact(table, Long.MAX_VALUE, true));
+            List<FileScanTask> tasks = tasks(table);
+            Assertions.assertEquals(2, tasks.size());
+            Assertions.assertEquals(rows, read(table));
+            for (FileScanTask task : tasks) {
+                // The row groups of the small files are copied as they are
+                InputFile file = table.io().newInputFile(task.file().path().toString());
+                ParquetMetadata footer = ParquetFooters.read(file);
+                Assertions.assertEquals(5, footer.getBlocks().size());
+                Assertions.assertEquals(file.getLength(), task.file().fileSizeInBytes());
+                Assertions.assertEquals(500, task.file().recordCount());
+                Assertions.assertNotNull(task.file().lowerBounds().get(1));
+            }
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testStitchWithNameMapping() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu"}, 3);
+            table.updateProperties()
+                    .set(TableProperties.DEFAULT_NAME_MAPPING, NameMappingParser.toJson(MappingUtil.create(SCHEMA)))
+                    .commit();
+            Map<Long, String> rows = read(table);
+
+            Assertions.assertNotNull(compact(table, Long.MAX_VALUE, true));
+            List<FileScanTask> tasks = tasks(table);
+            Assertions.assertEquals(1, tasks.size());
+            Assertions.assertEquals(rows, read(table));
+            Assertions.assertEquals(300, tasks.get(0).file().recordCount());
+            Assertions.assertNotNull(tasks.get(0).file().lowerBounds().get(1));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testStitchFallsBackWithDeletes() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu", "us"}, 3);
+            // Delete the first row of an eu file
+            DataFile euFile = null;
+            for (FileScanTask task : tasks(table)) {
+                if (task.file().partition().get(0, String.class).equals("eu"))
+                    euFile = task.file();
+            }
+            delete(table, euFile, 0);
+            Map<Long, String> rows = read(table);
+            Assertions.assertEquals(599, rows.size());
+
+            compact(table, Long.MAX_VALUE, true);
+            Assertions.assertEquals(2, tasks(table).size());
+            Assertions.assertEquals(rows, read(table));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testSortImprovesSkipping() throws ServletException {
+        try {
+            // Every file spans the whole id range
+            Table table = new HadoopTables(new Configuration()).create(SCHEMA, SPEC, Map.of(TableProperties.FORMAT_VERSION, "2"),
+                    Files.createTempDirectory("sort").toString());
+            AppendFiles append = table.newAppend();
+            Record record = GenericRecord.create(SCHEMA);
+            record.setField("region", "eu");
+            PartitionKey partition = new PartitionKey(SPEC, SCHEMA);
+            partition.partition(record);
+            for (int i = 0; i < 10; i++) {
+                RollingDataWriter writer = new RollingDataWriter(table.io(), SCHEMA, SPEC, partition, Long.MAX_VALUE,
+                        FileFormat.PARQUET, new ParquetSettings(), () -> newFilePath(table, SPEC.partitionToPath(partition)));
+                for (long j = 0; j < 1000; j++) {
+                    Record row = record.copy();
+                    row.setField("id", j * 10 + i);
+                    writer.write(row);
+                }
+                writer.close();
+                writer.dataFiles().forEach(append::appendFile);
+            }
+            append.commit();
+            Map<Long, String> rows = read(table);
+
+            // Tiny target size to roll over every 1000 rows, buffer smaller than the partition to spill
+            Compactor compactor = new Compactor(table, table.io(), 1, 1, Long.MAX_VALUE);
+            SortOrder order = SortOrder.builderFor(SCHEMA).asc("id").build();
+            compactor.sortBy(() -> new SortOrderComparator(SCHEMA, order), 3000);
+            Assertions.assertEquals("0 of 10 files skipped (0.0%)",
+                    compactor.fileSkipping(Expressions.alwaysTrue(), Expressions.lessThan("id", 1000L)));
+            Assertions.assertNotNull(compactor.compact(Expressions.alwaysTrue(), FileFormat.PARQUET, new ParquetSettings(),
+                    partitionPath -> newFilePath(table, partitionPath), new CommitRetry(), 2, false));
+
+            Assertions.assertEquals(rows, read(table));
+            Assertions.assertEquals(10, tasks(table).size());
+            Assertions.assertEquals("9 of 10 files skipped (90.0%)",
+                    compactor.fileSkipping(Expressions.alwaysTrue(), Expressions.lessThan("id", 1000L)));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testApplyDeletes() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu", "us"}, 3);
+            for (FileScanTask task : tasks(table)) {
+                if (task.file().partition().get(0, String.class).equals("eu"))
+                    delete(table, task.file(), 0);
+            }
+            Map<Long, String> rows = read(table);
+            Assertions.assertEquals(597, rows.size());
+            Assertions.assertEquals("3", table.currentSnapshot().summary().get("total-delete-files"));
+            long numSnapshots = table.history().size();
+
+            Assertions.assertNotNull(applyDeletes(table, 1));
+            Assertions.assertEquals(numSnapshots + 1, table.history().size());
+            Assertions.assertEquals("0", table.currentSnapshot().summary().get("total-delete-files"));
+            List<FileScanTask> tasks = tasks(table);
+            // The eu files are rewritten into one, the us files are left alone
+            Assertions.assertEquals(4, tasks.size());
+            for (FileScanTask task : tasks)
+                Assertions.assertTrue(task.deletes().isEmpty());
+            Assertions.assertEquals(rows, read(table));
+            Assertions.assertNull(applyDeletes(table, 1));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testApplyDeletesAboveThreshold() throws ServletException {
+        try {
+            Table table = table(new String[] {"eu"}, 2);
+            List<FileScanTask> before = tasks(table);
+            DataFile heavy = before.get(0).file();
+            DataFile light = before.get(1).file();
+            delete(table, heavy, 0);
+            delete(table, heavy, 1);
+            delete(table, light, 0);
+            Map<Long, String> rows = read(table);
+
+            applyDeletes(table, 2);
+            Assertions.assertEquals(rows, read(table));
+            Assertions.assertEquals("1", table.currentSnapshot().summary().get("total-delete-files"));
+            for (FileScanTask task : tasks(table)) {
+                // Only the file with two delete files was rewritten, the other keeps its delete file
+                boolean rewritten = !task.file().path().toString().equals(light.path().toString());
+                Assertions.assertEquals(rewritten ? 0 : 1, task.deletes().size());
+                Assertions.assertNotEquals(heavy.path().toString(), task.file().path().toString());
+            }
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new Compactor(table, table.io(), 1, 1, 1).applyDeletes(0));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
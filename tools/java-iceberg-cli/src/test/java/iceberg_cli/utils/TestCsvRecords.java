@@ -0,0 +1,64 @@
+package iceberg_cli.utils;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.servlet.ServletException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestCsvRecords {
+
+    public static Stream<Arguments> rows() {
+        return Stream.of(
+                Arguments.of("a,b,c", new String[] {"a", "b", "c"}),
+                Arguments.of("a,,", new String[] {"a", "", ""}),
+                Arguments.of("\"a,b\",c", new String[] {"a,b", "c"}),
+                Arguments.of("\"say \"\"hi\"\"\",c", new String[] {"say \"hi\"", "c"}),
+                Arguments.of("\"line\nbreak\",c", new String[] {"line\nbreak", "c"})
+                );
+    }
+
+    @ParameterizedTest
+    @MethodSource("rows")
+    public void testParseRow(String input, String[] expected) throws ServletException {
+        try {
+            CsvRecords records = new CsvRecords(new BufferedReader(new StringReader(input)));
+            Assertions.assertArrayEquals(expected, records.next().toArray());
+            Assertions.assertFalse(records.hasNext());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testLineNumbers() throws ServletException {
+        try {
+            CsvRecords records = new CsvRecords(new BufferedReader(new StringReader("id,name\n1,\"a\nb\"\n\n2,c\n")));
+            Assertions.assertEquals(List.of("id", "name"), records.next());
+            Assertions.assertEquals(List.of("1", "a\nb"), records.next());
+            Assertions.assertEquals(2, records.lineNumber());
+            Assertions.assertEquals(List.of("2", "c"), records.next());
+            Assertions.assertEquals(5, records.lineNumber());
+            Assertions.assertFalse(records.hasNext());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testUnterminatedQuote() throws ServletException {
+        try {
+            CsvRecords records = new CsvRecords(new BufferedReader(new StringReader("a,\"b\n")));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> records.next());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
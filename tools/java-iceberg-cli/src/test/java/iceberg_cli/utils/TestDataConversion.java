@@ -0,0 +1,114 @@
+package iceberg_cli.utils;
+
+import java.time.LocalDateTime;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.NullOrder;
+import org.apache.iceberg.PartitionKey;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.SortOrder;
+import org.apache.iceberg.StructLike;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.InternalRecordWrapper;
+import org.apache.iceberg.expressions.Binder;
+import org.apache.iceberg.expressions.Expression;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.types.Types;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestDataConversion {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.optional(2, "ts", Types.TimestampType.withoutZone()),
+            Types.NestedField.optional(3, "name", Types.StringType.get()));
+
+    @Test
+    public void testPartitionSpecFromFieldList() throws ServletException {
+        try {
+            PartitionSpec spec = DataConversion.jsonToPartitionSpec(
+                    "[{\"source\":\"ts\",\"transform\":\"hour\"},"
+                    + "{\"source\":\"id\",\"transform\":\"bucket[16]\",\"name\":\"id_bucket\"},"
+                    + "{\"source\":\"name\",\"transform\":\"truncate[2]\"}]", SCHEMA);
+            PartitionSpec expected = PartitionSpec.builderFor(SCHEMA)
+                    .hour("ts").bucket("id", 16, "id_bucket").truncate("name", 2).build();
+            Assertions.assertTrue(expected.compatibleWith(spec));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testPartitionSpecFromIcebergJson() throws ServletException {
+        try {
+            PartitionSpec spec = DataConversion.jsonToPartitionSpec(
+                    "{\"spec-id\":0,\"fields\":[{\"name\":\"name\",\"transform\":\"identity\",\"source-id\":3}]}", SCHEMA);
+            Assertions.assertTrue(PartitionSpec.builderFor(SCHEMA).identity("name").build().compatibleWith(spec));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testInvalidPartitionTransform() throws ServletException {
+        try {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                DataConversion.jsonToPartitionSpec("[{\"source\":\"id\",\"transform\":\"bucket\"}]", SCHEMA);
+            });
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testSortOrderFromFieldList() throws ServletException {
+        try {
+            SortOrder order = DataConversion.jsonToSortOrder(
+                    "[{\"source\":\"ts\",\"transform\":\"day\",\"direction\":\"desc\"},"
+                    + "{\"source\":\"name\",\"null-order\":\"nulls-last\"}]", SCHEMA);
+            SortOrder expected = SortOrder.builderFor(SCHEMA)
+                    .desc(Expressions.day("ts"), NullOrder.NULLS_LAST).asc("name", NullOrder.NULLS_LAST).build();
+            Assertions.assertTrue(expected.sameOrder(order));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                DataConversion.jsonToSortOrder("[{\"source\":\"id\",\"direction\":\"up\"}]", SCHEMA);
+            });
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testFilterFromJson() throws ServletException {
+        try {
+            Expression filter = DataConversion.jsonToFilter("{\"id\":5,\"name\":[\"a\",\"b\"],\"ts\":null}");
+            Expression expected = Expressions.and(Expressions.equal("id", 5),
+                    Expressions.in("name", "a", "b"), Expressions.isNull("ts"));
+            Assertions.assertTrue(Binder.bind(SCHEMA.asStruct(), expected, true).isEquivalentTo(Binder.bind(SCHEMA.asStruct(), filter, true)));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testPartitionJsonRoundTrip() throws ServletException {
+        try {
+            PartitionSpec spec = PartitionSpec.builderFor(SCHEMA).hour("ts").identity("name").build();
+            GenericRecord record = GenericRecord.create(SCHEMA);
+            record.setField("id", 1L);
+            record.setField("ts", LocalDateTime.parse("2023-01-01T10:15:00"));
+            PartitionKey key = new PartitionKey(spec, SCHEMA);
+            key.partition(new InternalRecordWrapper(SCHEMA.asStruct()).wrap(record));
+
+            JSONObject json = DataConversion.partitionToJson(spec, key);
+            Assertions.assertTrue(json.isNull("name"));
+            StructLike partition = DataConversion.jsonToPartition(spec, new JSONObject(json.toString()));
+            Assertions.assertEquals(key.get(0, Integer.class), partition.get(0, Integer.class));
+            Assertions.assertNull(partition.get(1, String.class));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package iceberg_cli.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestFileLister {
+
+    private static Path directory(int numFiles) throws Exception {
+        Path dir = Files.createTempDirectory("lister");
+        for (int i = 0; i < numFiles; i++)
+            Files.write(dir.resolve("part-" + i + ".parquet"), new byte[1]);
+        Files.createDirectories(dir.resolve("sub"));
+        Files.write(dir.resolve("sub/a.parquet"), new byte[1]);
+        Files.createDirectories(dir.resolve("_hidden"));
+        Files.write(dir.resolve("_hidden/b.parquet"), new byte[1]);
+        return dir;
+    }
+
+    /**
+     * Lists the local file system the way object stores are listed
+     */
+    private static FileLister flatLister(int numThreads) {
+        return new FileLister(new Configuration(), numThreads) {
+            @Override
+            boolean flatListing(FileSystem fs) {
+                return true;
+            }
+        };
+    }
+
+    @Test
+    public void testListsVisibleFiles() throws ServletException {
+        try {
+            Path dir = directory(10);
+            for (FileLister lister : new FileLister[] {new FileLister(new Configuration(), 2), flatLister(2)}) {
+                Set<String> names = ConcurrentHashMap.newKeySet();
+                lister.list(dir.toString(), file -> names.add(file.getPath().getName()));
+                Assertions.assertEquals(11, names.size());
+                Assertions.assertTrue(names.contains("a.parquet"));
+                Assertions.assertFalse(names.contains("b.parquet"));
+            }
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testConsumerFailureEndsListing() throws ServletException {
+        try {
+            // Many more files than the 4 per thread that can be queued
+            Path dir = directory(200);
+            // Repeated since the failure races with the listing
+            for (int i = 0; i < 20; i++) {
+                for (FileLister lister : new FileLister[] {new FileLister(new Configuration(), 2), flatLister(2)}) {
+                    IOException e = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(60),
+                            () -> Assertions.assertThrows(IOException.class, () -> lister.list(dir.toString(), file -> {
+                                throw new IOException("Cannot read " + file.getPath());
+                            })));
+                    Assertions.assertTrue(e.getMessage().startsWith("Cannot read"));
+                }
+            }
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testFilesAreConsumedConcurrently() throws ServletException {
+        try {
+            // A single directory of files, as in an unpartitioned table
+            Path dir = Files.createTempDirectory("lister");
+            for (int i = 0; i < 40; i++)
+                Files.write(dir.resolve("part-" + i + ".parquet"), new byte[1]);
+            for (FileLister lister : new FileLister[] {new FileLister(new Configuration(), 4), flatLister(4)}) {
+                Set<String> names = ConcurrentHashMap.newKeySet();
+                AtomicInteger running = new AtomicInteger();
+                AtomicInteger maxRunning = new AtomicInteger();
+                lister.list(dir.toString(), file -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    names.add(file.getPath().getName());
+                });
+                Assertions.assertEquals(40, names.size());
+                Assertions.assertTrue(maxRunning.get() > 2, "Expected files to be consumed concurrently");
+            }
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package iceberg_cli.utils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestGroupCommitter {
+    private static final Schema SCHEMA = new Schema(Types.NestedField.required(1, "id", Types.LongType.get()));
+
+    private static DataFile dataFile(Table table, int index) {
+        return DataFiles.builder(PartitionSpec.unpartitioned())
+                .withPath(table.location() + "/data/file-" + index + ".parquet")
+                .withFormat(FileFormat.PARQUET)
+                .withFileSizeInBytes(100)
+                .withRecordCount(1)
+                .build();
+    }
+
+    @Test
+    public void testConcurrentCommitsShareSnapshots() throws ServletException {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Path location = Files.createTempDirectory("group-commit");
+            Table table = new HadoopTables().create(SCHEMA, location.toString());
+            GroupCommitter committer = new GroupCommitter(200);
+
+            int numCallers = 8;
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> results = new ArrayList<Future<Long>>();
+            for (int i = 0; i < numCallers; i++) {
+                int index = i;
+                results.add(pool.submit(() -> {
+                    // Each caller commits through its own table instance, like server requests
+                    Table callerTable = new HadoopTables().load(location.toString());
+                    start.await();
+                    return committer.commit(callerTable, List.of(dataFile(callerTable, index)), new CommitRetry()).snapshotId();
+                }));
+            }
+            start.countDown();
+
+            Set<Long> snapshotIds = new HashSet<Long>();
+            for (Future<Long> result : results)
+                snapshotIds.add(result.get());
+
+            table.refresh();
+            int numSnapshots = 0;
+            for (Snapshot snapshot : table.snapshots()) {
+                Assertions.assertTrue(snapshotIds.contains(snapshot.snapshotId()));
+                numSnapshots++;
+            }
+            Assertions.assertEquals(snapshotIds.size(), numSnapshots);
+            Assertions.assertTrue(numSnapshots < numCallers, "Expected commits to be grouped");
+            Assertions.assertEquals(String.valueOf(numCallers), table.currentSnapshot().summary().get("total-data-files"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedCommitIsReported() throws ServletException {
+        try {
+            Path location = Files.createTempDirectory("group-commit");
+            Table table = new HadoopTables().create(SCHEMA, location.toString());
+            GroupCommitter committer = new GroupCommitter(0);
+            Assertions.assertThrows(Exception.class, () -> committer.commit(table, Arrays.asList((DataFile) null), new CommitRetry()));
+
+            // The committer is usable after a failure
+            long snapshotId = committer.commit(table, List.of(dataFile(table, 0)), new CommitRetry()).snapshotId();
+            Assertions.assertEquals(snapshotId, table.currentSnapshot().snapshotId());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testBadRequestDoesNotFailGroup() throws ServletException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Path location = Files.createTempDirectory("group-commit");
+            Table table = new HadoopTables().create(SCHEMA, location.toString());
+            GroupCommitter committer = new GroupCommitter(200);
+
+            int numCallers = 4;
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> results = new ArrayList<Future<Long>>();
+            for (int i = 0; i < numCallers; i++) {
+                int index = i;
+                results.add(pool.submit(() -> {
+                    Table callerTable = new HadoopTables().load(location.toString());
+                    List<DataFile> files = (index == 0) ? Arrays.asList((DataFile) null) : List.of(dataFile(callerTable, index));
+                    start.await();
+                    return committer.commit(callerTable, files, new CommitRetry()).snapshotId();
+                }));
+            }
+            start.countDown();
+
+            Assertions.assertThrows(ExecutionException.class, () -> results.get(0).get());
+            for (Future<Long> result : results.subList(1, numCallers))
+                Assertions.assertNotNull(result.get());
+
+            table.refresh();
+            Assertions.assertEquals(String.valueOf(numCallers - 1), table.currentSnapshot().summary().get("total-data-files"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testIdleCommitterIsDropped() throws ServletException {
+        try {
+            Path location = Files.createTempDirectory("group-commit");
+            Table table = new HadoopTables().create(SCHEMA, location.toString());
+            GroupCommitter committer = GroupCommitter.forTable(table);
+            Assertions.assertSame(committer, GroupCommitter.forTable(table));
+
+            committer.commit(table, List.of(dataFile(table, 0)), new CommitRetry());
+            Assertions.assertNotSame(committer, GroupCommitter.forTable(table));
+
+            // Callers still holding the dropped committer are handed to the current one
+            long snapshotId = committer.commit(table, List.of(dataFile(table, 1)), new CommitRetry()).snapshotId();
+            table.refresh();
+            Assertions.assertEquals(snapshotId, table.currentSnapshot().snapshotId());
+            Assertions.assertEquals("2", table.currentSnapshot().summary().get("total-data-files"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
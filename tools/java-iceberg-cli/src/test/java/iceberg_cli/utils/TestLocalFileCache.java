@@ -0,0 +1,76 @@
+package iceberg_cli.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.io.InputFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestLocalFileCache {
+
+    private InputFile createFile(Path dir, String name, int size) throws Exception {
+        Path path = dir.resolve(name);
+        Files.write(path, new byte[size]);
+        return org.apache.iceberg.Files.localInput(path.toFile());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws ServletException {
+        try {
+            Path source = Files.createTempDirectory("source");
+            LocalFileCache cache = new LocalFileCache(Files.createTempDirectory("cache"), 100);
+            InputFile a = createFile(source, "a", 40);
+            InputFile b = createFile(source, "b", 40);
+            InputFile c = createFile(source, "c", 40);
+
+            File cachedA = cache.get(a, 40);
+            File cachedB = cache.get(b, 40);
+            // Touch a so that b is the least recently used file
+            Assertions.assertEquals(cachedA, cache.get(a, 40));
+            cache.get(c, 40);
+
+            Assertions.assertTrue(cachedA.exists());
+            Assertions.assertFalse(cachedB.exists());
+            Assertions.assertEquals(80, cache.size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testLargeFileIsNotCached() throws ServletException {
+        try {
+            Path source = Files.createTempDirectory("source");
+            LocalFileCache cache = new LocalFileCache(Files.createTempDirectory("cache"), 100);
+            Assertions.assertNull(cache.get(createFile(source, "large", 200), 200));
+            Assertions.assertEquals(0, cache.size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testKeepsRecentTempFiles() throws ServletException {
+        try {
+            Path dir = Files.createTempDirectory("cache");
+            // A download of another process still in progress, and one interrupted long ago
+            File inProgress = dir.resolve("a.data123.tmp").toFile();
+            File interrupted = dir.resolve("b.data456.tmp").toFile();
+            Files.write(inProgress.toPath(), new byte[10]);
+            Files.write(interrupted.toPath(), new byte[10]);
+            interrupted.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2));
+
+            LocalFileCache cache = new LocalFileCache(dir, 100);
+            Assertions.assertTrue(inProgress.exists());
+            Assertions.assertFalse(interrupted.exists());
+            Assertions.assertEquals(0, cache.size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
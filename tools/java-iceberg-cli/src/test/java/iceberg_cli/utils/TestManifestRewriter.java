@@ -0,0 +1,118 @@
+package iceberg_cli.utils;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.ManifestFile;
+import org.apache.iceberg.PartitionKey;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.types.Conversions;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import iceberg_cli.utils.writer.ParquetSettings;
+import iceberg_cli.utils.writer.RollingDataWriter;
+
+public class TestManifestRewriter {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.required(2, "region", Types.IntegerType.get()));
+    private static final PartitionSpec SPEC = PartitionSpec.builderFor(SCHEMA).identity("region").build();
+
+    /**
+     * Append one file per commit, cycling through the regions
+     */
+    private static Table table(int numRegions, int numFiles) throws Exception {
+        Table table = new HadoopTables(new Configuration()).create(SCHEMA, SPEC, Map.of(TableProperties.FORMAT_VERSION, "2"),
+                Files.createTempDirectory("manifests").toString());
+        for (int i = 0; i < numFiles; i++) {
+            Record record = GenericRecord.create(SCHEMA);
+            record.setField("id", (long) i);
+            record.setField("region", i % numRegions);
+            PartitionKey partition = new PartitionKey(SPEC, SCHEMA);
+            partition.partition(record);
+            RollingDataWriter writer = new RollingDataWriter(table.io(), SCHEMA, SPEC, partition, Long.MAX_VALUE,
+                    FileFormat.PARQUET, new ParquetSettings(), () -> String.format("%s/data/%s/%s.parquet", table.location(),
+                            SPEC.partitionToPath(partition), UUID.randomUUID()));
+            writer.write(record);
+            writer.close();
+            table.newAppend().appendFile(writer.dataFiles().get(0)).commit();
+        }
+        return table;
+    }
+
+    private static List<String> files(Table table) throws Exception {
+        List<String> files = new ArrayList<String>();
+        try (CloseableIterable<FileScanTask> tasks = table.newScan().planFiles()) {
+            for (FileScanTask task : tasks)
+                files.add(task.file().path().toString());
+        }
+        files.sort(null);
+        return files;
+    }
+
+    @Test
+    public void testRewriteIntoOneManifest() throws ServletException {
+        try {
+            Table table = table(5, 40);
+            List<String> files = files(table);
+            Assertions.assertEquals(40, table.currentSnapshot().allManifests(table.io()).size());
+
+            Assertions.assertNotNull(new ManifestRewriter(table).rewrite(new CommitRetry(), 4));
+            Assertions.assertEquals(1, table.currentSnapshot().allManifests(table.io()).size());
+            Assertions.assertEquals(files, files(table));
+            // Nothing left to rewrite
+            Assertions.assertNull(new ManifestRewriter(table).rewrite(new CommitRetry(), 4));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testClusterByPartitionRanges() throws ServletException {
+        try {
+            Table table = table(5, 40);
+            List<String> files = files(table);
+            List<ManifestFile> manifests = table.currentSnapshot().allManifests(table.io());
+            long manifestSize = manifests.get(0).length();
+            // Room for about 10 entries per manifest, two partitions of 8 entries don't fit
+            table.updateProperties().set(TableProperties.MANIFEST_TARGET_SIZE_BYTES, String.valueOf(10 * manifestSize)).commit();
+
+            ManifestRewriter rewriter = new ManifestRewriter(table);
+            Map<Integer, ManifestRewriter.Clusters> clusters = rewriter.plan(manifests, 4);
+            Assertions.assertEquals(5, clusters.get(SPEC.specId()).size());
+
+            rewriter.rewrite(new CommitRetry(), 4);
+            List<ManifestFile> rewritten = table.currentSnapshot().allManifests(table.io());
+            Assertions.assertEquals(5, rewritten.size());
+            for (ManifestFile manifest : rewritten) {
+                // Each manifest covers a single partition
+                ManifestFile.PartitionFieldSummary summary = manifest.partitions().get(0);
+                Integer lower = Conversions.fromByteBuffer(Types.IntegerType.get(), summary.lowerBound());
+                Integer upper = Conversions.fromByteBuffer(Types.IntegerType.get(), summary.upperBound());
+                Assertions.assertEquals(lower, upper);
+                Assertions.assertEquals(8, manifest.existingFilesCount());
+            }
+            Assertions.assertEquals(files, files(table));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package iceberg_cli.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.IcebergGenerics;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.hadoop.HadoopFileIO;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import iceberg_cli.utils.writer.ParquetSettings;
+import iceberg_cli.utils.writer.RollingDataWriter;
+
+public class TestOrphanFiles {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()));
+
+    /**
+     * Append one file of 10 rows per commit
+     */
+    private static List<DataFile> append(Table table, int numFiles) throws Exception {
+        List<DataFile> dataFiles = new ArrayList<DataFile>();
+        for (int i = 0; i < numFiles; i++) {
+            RollingDataWriter writer = new RollingDataWriter(table.io(), SCHEMA, PartitionSpec.unpartitioned(), null, Long.MAX_VALUE,
+                    FileFormat.PARQUET, new ParquetSettings(), () -> table.location() + "/data/" + UUID.randomUUID() + ".parquet");
+            for (long id = 0; id < 10; id++) {
+                Record record = GenericRecord.create(SCHEMA);
+                record.setField("id", id);
+                writer.write(record);
+            }
+            writer.close();
+            table.newAppend().appendFile(writer.dataFiles().get(0)).commit();
+            dataFiles.add(writer.dataFiles().get(0));
+        }
+        return dataFiles;
+    }
+
+    private static int count(Table table) throws Exception {
+        int numRecords = 0;
+        try (CloseableIterable<Record> records = IcebergGenerics.read(table).build()) {
+            for (Record record : records)
+                numRecords++;
+        }
+        return numRecords;
+    }
+
+    private static File oldFile(String path) throws Exception {
+        File file = new File(path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+        file.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        return file;
+    }
+
+    @Test
+    public void testNormalize() throws ServletException {
+        try {
+            Assertions.assertEquals("bucket/table/a.parquet", OrphanFiles.normalize("s3://bucket/table/a.parquet"));
+            Assertions.assertEquals("bucket/table/a.parquet", OrphanFiles.normalize("s3a://bucket/table/a.parquet"));
+            Assertions.assertEquals("/tmp/table/a.parquet", OrphanFiles.normalize("file:/tmp/table/a.parquet"));
+            Assertions.assertEquals("/tmp/table/a.parquet", OrphanFiles.normalize("file:///tmp/table/a.parquet"));
+            Assertions.assertEquals("/tmp/table/a:b.parquet", OrphanFiles.normalize("/tmp/table/a:b.parquet"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testRemoveOldOrphans() throws ServletException {
+        try {
+            String location = Files.createTempDirectory("orphans").toString();
+            Table table = new HadoopTables(new Configuration()).create(SCHEMA, PartitionSpec.unpartitioned(),
+                    Map.of(TableProperties.FORMAT_VERSION, "2"), location + "/table");
+            append(table, 3);
+            File orphan = oldFile(table.location() + "/data/orphan.parquet");
+            // Files of writes in progress and of other tables are kept
+            File recent = new File(table.location() + "/data/recent.parquet");
+            Files.write(recent.toPath(), new byte[] {1});
+            File otherTable = oldFile(table.location() + "_other/data/a.parquet");
+
+            HadoopFileIO io = new HadoopFileIO(new Configuration());
+            long olderThan = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+            List<String> orphans = new ArrayList<String>();
+            new OrphanFiles(table, io).find(olderThan, 4, orphans::add);
+            Assertions.assertEquals(1, orphans.size());
+            Assertions.assertEquals(OrphanFiles.normalize(orphan.getPath()), OrphanFiles.normalize(orphans.get(0)));
+
+            BulkDeleter deleter = new BulkDeleter(io, 4);
+            new OrphanFiles(table, io).find(olderThan, 4, deleter);
+            deleter.close();
+            Assertions.assertEquals(1, deleter.numDeleted());
+            Assertions.assertFalse(orphan.exists());
+            Assertions.assertTrue(recent.exists());
+            Assertions.assertTrue(otherTable.exists());
+            Assertions.assertEquals(30, count(table));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testExpireDeletesUnreferencedFiles() throws ServletException {
+        try {
+            Table table = new HadoopTables(new Configuration()).create(SCHEMA, PartitionSpec.unpartitioned(),
+                    Map.of(TableProperties.FORMAT_VERSION, "2"), Files.createTempDirectory("expire").toString());
+            List<DataFile> dataFiles = append(table, 3);
+            table.newDelete().deleteFile(dataFiles.get(0)).commit();
+            // Files are deleted once the snapshot that removed them expires
+            append(table, 1);
+
+            HadoopFileIO io = new HadoopFileIO(new Configuration());
+            BulkDeleter deleter = new BulkDeleter(io, 2);
+            table.expireSnapshots().expireOlderThan(System.currentTimeMillis()).retainLast(1).deleteWith(deleter).commit();
+            deleter.close();
+
+            Assertions.assertEquals(1, table.history().size());
+            Assertions.assertFalse(new File(dataFiles.get(0).path().toString()).exists());
+            Assertions.assertTrue(new File(dataFiles.get(1).path().toString()).exists());
+            // The data file, manifests and manifest lists of the expired snapshots
+            Assertions.assertTrue(deleter.numDeleted() > 1);
+            Assertions.assertEquals(0, deleter.numFailed());
+            Assertions.assertEquals(30, count(table));
+
+            // Everything left is referenced
+            List<String> orphans = new ArrayList<String>();
+            new OrphanFiles(table, io).find(Long.MAX_VALUE, 2, orphans::add);
+            Assertions.assertEquals(List.of(), orphans);
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package iceberg_cli.utils;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.AppendFiles;
+import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSampler {
+    private static final Schema SCHEMA = new Schema(Types.NestedField.required(1, "id", Types.LongType.get()));
+
+    private static List<String> sampledSplits(Table table, Sampler sampler) throws Exception {
+        List<String> splits = new ArrayList<String>();
+        try (CloseableIterable<FileScanTask> tasks = table.newScan().planFiles()) {
+            for (FileScanTask task : sampler.sampleTasks(tasks))
+                splits.add(task.file().path() + "@" + task.start());
+        }
+        return splits;
+    }
+
+    @Test
+    public void testSameSeedSelectsSameRowGroups() throws ServletException {
+        try {
+            Table table = new HadoopTables().create(SCHEMA, Files.createTempDirectory("sampler").toString());
+            // Files of 10 row groups each, only the metadata is used
+            AppendFiles append = table.newAppend();
+            for (int i = 0; i < 10; i++) {
+                append.appendFile(DataFiles.builder(PartitionSpec.unpartitioned())
+                        .withPath(table.location() + "/data/file-" + i + ".parquet")
+                        .withFormat(FileFormat.PARQUET)
+                        .withFileSizeInBytes(10000)
+                        .withRecordCount(100)
+                        .withSplitOffsets(List.of(4L, 1000L, 2000L, 3000L, 4000L, 5000L, 6000L, 7000L, 8000L, 9000L))
+                        .build());
+            }
+            append.commit();
+
+            List<String> sample = sampledSplits(table, Sampler.fromOptions("0.3", null, "42"));
+            Assertions.assertEquals(sample, sampledSplits(table, Sampler.fromOptions("0.3", null, "42")));
+            Assertions.assertNotEquals(sample, sampledSplits(table, Sampler.fromOptions("0.3", null, "7")));
+            Assertions.assertTrue(sample.size() > 10 && sample.size() < 50, "Unexpected sample size " + sample.size());
+            // Without a split sample the files are read whole
+            Assertions.assertEquals(10, sampledSplits(table, Sampler.fromOptions(null, "0.5", "42")).size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testRowSampleKeepsFraction() throws ServletException {
+        try {
+            Sampler sampler = Sampler.fromOptions(null, "0.1", "42");
+            BooleanSupplier filter = sampler.rowFilter("file.parquet", 4);
+            BooleanSupplier sameFilter = sampler.rowFilter("file.parquet", 4);
+            int numRows = 100000;
+            int kept = 0;
+            for (int i = 0; i < numRows; i++) {
+                boolean keep = filter.getAsBoolean();
+                Assertions.assertEquals(keep, sameFilter.getAsBoolean());
+                if (keep)
+                    kept++;
+            }
+            Assertions.assertTrue(kept > 0.09 * numRows && kept < 0.11 * numRows, "Unexpected number of rows " + kept);
+            Assertions.assertNull(Sampler.fromOptions("0.5", null, null).rowFilter("file.parquet", 4));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testInvalidOptions() {
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Sampler.fromOptions("abc", null, null));
+        Assertions.assertTrue(e.getMessage().contains("--sample"));
+        e = Assertions.assertThrows(IllegalArgumentException.class, () -> Sampler.fromOptions(null, "1.5", null));
+        Assertions.assertTrue(e.getMessage().contains("--row-sample"));
+        e = Assertions.assertThrows(IllegalArgumentException.class, () -> Sampler.fromOptions("0", null, null));
+        Assertions.assertTrue(e.getMessage().contains("--sample"));
+        e = Assertions.assertThrows(IllegalArgumentException.class, () -> Sampler.fromOptions("0.5", null, "1.5"));
+        Assertions.assertTrue(e.getMessage().contains("--seed"));
+    }
+}
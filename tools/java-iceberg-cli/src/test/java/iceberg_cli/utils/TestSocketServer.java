@@ -0,0 +1,34 @@
+package iceberg_cli.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.servlet.ServletException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSocketServer {
+
+    @Test
+    public void testBodySplitInsideCharacter() throws ServletException {
+        try {
+            String body = "{\"c\":\"a" + "\u00e9".repeat(10000) + "\"}\n";
+            byte[] request = ("write -i - test.t\n" + body).getBytes(StandardCharsets.UTF_8);
+            // The first read ends in the middle of a two-byte character
+            int cut = 16384;
+            byte[] message = Arrays.copyOf(request, cut);
+            Assertions.assertTrue((message[cut - 1] & 0xC0) == 0xC0, "Expected a cut character");
+            InputStream rest = new ByteArrayInputStream(request, cut, request.length - cut);
+
+            int end = StringUtils.commandLineEnd(message);
+            Assertions.assertEquals("write -i - test.t", new String(message, 0, end, StandardCharsets.UTF_8));
+            InputStream stream = SocketServer.requestBody(message, end, rest);
+            Assertions.assertEquals(body, new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package iceberg_cli.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.ServletException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSplitPlanner {
+
+    @Test
+    public void testSmallFileIsNotSplit() throws ServletException {
+        try {
+            SplitPlanner planner = new SplitPlanner(100, 10, 10);
+            List<SplitPlanner.FileSplit> splits = planner.split("a.parquet", "PARQUET", 80, Arrays.asList(4L, 40L));
+            Assertions.assertEquals(1, splits.size());
+            Assertions.assertEquals(0, splits.get(0).start());
+            Assertions.assertEquals(80, splits.get(0).length());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testSplitAtRowGroupBoundaries() throws ServletException {
+        try {
+            SplitPlanner planner = new SplitPlanner(250, 10, 10);
+            List<SplitPlanner.FileSplit> splits = planner.split("a.parquet", "PARQUET", 400, Arrays.asList(4L, 100L, 200L, 300L));
+            Assertions.assertEquals(2, splits.size());
+            Assertions.assertEquals(0, splits.get(0).start());
+            Assertions.assertEquals(200, splits.get(0).length());
+            Assertions.assertEquals(200, splits.get(1).start());
+            Assertions.assertEquals(200, splits.get(1).length());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testLargeRowGroupIsNotSplit() throws ServletException {
+        try {
+            SplitPlanner planner = new SplitPlanner(100, 10, 10);
+            List<SplitPlanner.FileSplit> splits = planner.split("a.parquet", "PARQUET", 1000, Arrays.asList(4L, 900L));
+            Assertions.assertEquals(2, splits.size());
+            Assertions.assertEquals(900, splits.get(0).length());
+            Assertions.assertEquals(100, splits.get(1).length());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testPlanTasksPacksSmallFiles() throws ServletException {
+        try {
+            SplitPlanner planner = new SplitPlanner(100, 10, 10);
+            List<SplitPlanner.FileSplit> splits = new ArrayList<SplitPlanner.FileSplit>();
+            for (int i = 0; i < 10; ++i)
+                splits.add(new SplitPlanner.FileSplit("file" + i, "PARQUET", 0, 20));
+            splits.add(new SplitPlanner.FileSplit("large", "PARQUET", 0, 100));
+            // Tiny files weigh at least the open file cost
+            splits.add(new SplitPlanner.FileSplit("empty", "PARQUET", 0, 0));
+
+            List<List<SplitPlanner.FileSplit>> tasks = planner.planTasks(splits);
+            Assertions.assertEquals(4, tasks.size());
+            int numSplits = 0;
+            for (List<SplitPlanner.FileSplit> task : tasks) {
+                long weight = 0;
+                for (SplitPlanner.FileSplit split : task)
+                    weight += Math.max(split.length(), 10);
+                Assertions.assertTrue(weight <= 100);
+                numSplits += task.size();
+            }
+            Assertions.assertEquals(splits.size(), numSplits);
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package iceberg_cli.utils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import javax.servlet.ServletException;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -38,6 +41,18 @@ public class TestStringUtils {
                 );
     }
     
+    public static Stream<Arguments> commandLines() {
+        return Stream.of(
+                Arguments.of("write test.t", -1),
+                Arguments.of("write -i - test.t\n{\"c1\":1}\n", 17),
+                Arguments.of("write test.t '{\"records\":\n[]}'", -1),
+                Arguments.of("write test.t \"a\\\"\nb\"\nc", 20),
+                Arguments.of("write doesn't\n{}", 13),
+                // Offsets count bytes, the two-byte character moves the newline
+                Arguments.of("write '\u00e9'\n{\"c\":\"\u00e9\"}", 10)
+                );
+    }
+    
     @ParameterizedTest
     @MethodSource("parameters")
     public void testTokenizeQuotedString(String input, String[] expected) throws ServletException {
@@ -77,4 +92,27 @@ public class TestStringUtils {
             throw new ServletException("Error: " + t.getMessage(), t);
         }
     }
+    
+    @ParameterizedTest
+    @MethodSource("commandLines")
+    public void testCommandLineEnd(String input, int expected) throws ServletException {
+        try {
+            Assertions.assertEquals(expected, StringUtils.commandLineEnd(input.getBytes(StandardCharsets.UTF_8)));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+    
+    @Test
+    public void testSplitPaths() throws ServletException {
+        try {
+            Set<String> existing = Set.of("b,c", "d,e,f", "d,e");
+            Assertions.assertEquals(List.of("a", "b,c"), StringUtils.splitPaths("a,b,c", existing::contains));
+            Assertions.assertEquals(List.of("a", "b", "d"), StringUtils.splitPaths("a,b,d", existing::contains));
+            Assertions.assertEquals(List.of("d,e,f", "g"), StringUtils.splitPaths("d,e,f,g", existing::contains));
+            Assertions.assertEquals(List.of("a"), StringUtils.splitPaths("a", existing::contains));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package iceberg_cli.utils.reader;
+
+import javax.servlet.ServletException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestLongHashSet {
+
+    @Test
+    public void testAddAndContains() throws ServletException {
+        try {
+            LongHashSet set = new LongHashSet();
+            for (long key = -1000; key < 100000; key += 3)
+                Assertions.assertTrue(set.add(key));
+            Assertions.assertFalse(set.add(-1000));
+
+            for (long key = -1000; key < 100000; ++key)
+                Assertions.assertEquals((key + 1000) % 3 == 0, set.contains(key));
+            Assertions.assertEquals(33667, set.size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testZeroKey() throws ServletException {
+        try {
+            LongHashSet set = new LongHashSet();
+            Assertions.assertFalse(set.contains(0));
+            Assertions.assertTrue(set.add(0));
+            Assertions.assertFalse(set.add(0));
+            Assertions.assertTrue(set.contains(0));
+            Assertions.assertEquals(1, set.size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
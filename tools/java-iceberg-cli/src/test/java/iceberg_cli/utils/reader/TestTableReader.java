@@ -0,0 +1,116 @@
+package iceberg_cli.utils.reader;
+
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DataFiles;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.FileScanTask;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.data.GenericAppenderFactory;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.expressions.Expression;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.FileAppender;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestTableReader {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.required(2, "day", Types.DateType.get()),
+            Types.NestedField.required(3, "ts", Types.TimestampType.withoutZone()));
+
+    /**
+     * One file per day of 10 rows, an hour apart
+     */
+    private static Table table(FileFormat format, int numDays) throws Exception {
+        Table table = new HadoopTables(new Configuration()).create(SCHEMA, PartitionSpec.unpartitioned(),
+                Map.of(TableProperties.FORMAT_VERSION, "2"), Files.createTempDirectory("reader").toString());
+        GenericAppenderFactory factory = new GenericAppenderFactory(SCHEMA);
+        long id = 0;
+        for (int i = 0; i < numDays; i++) {
+            LocalDate day = LocalDate.of(2022, 11, 9 + i);
+            String location = table.location() + "/data/" + format.addExtension(UUID.randomUUID().toString());
+            FileAppender<Record> appender = factory.newAppender(table.io().newOutputFile(location), format);
+            try {
+                for (int hour = 0; hour < 10; hour++) {
+                    Record record = GenericRecord.create(SCHEMA);
+                    record.setField("id", id++);
+                    record.setField("day", day);
+                    record.setField("ts", day.atTime(hour, 0));
+                    appender.add(record);
+                }
+            } finally {
+                appender.close();
+            }
+            // The metrics are only available once the appender is closed
+            DataFile dataFile = DataFiles.builder(PartitionSpec.unpartitioned())
+                    .withPath(location)
+                    .withFormat(format)
+                    .withFileSizeInBytes(appender.length())
+                    .withMetrics(appender.metrics())
+                    .build();
+            table.newAppend().appendFile(dataFile).commit();
+        }
+        return table;
+    }
+
+    private static List<List<String>> read(Table table, Expression filter) throws Exception {
+        List<FileScanTask> tasks = new ArrayList<FileScanTask>();
+        try (CloseableIterable<FileScanTask> files = table.newScan().filter(filter).planFiles()) {
+            files.forEach(tasks::add);
+        }
+        return new TableReader(table, table.schema()).read(tasks, 2);
+    }
+
+    @Test
+    public void testFilterOnDateAndTimestamp() throws ServletException {
+        try {
+            Table table = table(FileFormat.PARQUET, 3);
+            List<List<String>> rows = read(table, Expressions.equal("day", "2022-11-10"));
+            Assertions.assertEquals(10, rows.size());
+            for (List<String> row : rows)
+                Assertions.assertEquals("2022-11-10", row.get(1));
+
+            rows = read(table, Expressions.and(Expressions.greaterThanOrEqual("ts", "2022-11-10T05:00:00"),
+                    Expressions.lessThan("ts", "2022-11-11T02:00:00")));
+            Set<String> ids = new HashSet<String>();
+            for (List<String> row : rows)
+                ids.add(row.get(0));
+            Assertions.assertEquals(Set.of("15", "16", "17", "18", "19", "20", "21"), ids);
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testReadFileFormats() throws ServletException {
+        try {
+            for (FileFormat format : new FileFormat[] {FileFormat.PARQUET, FileFormat.ORC, FileFormat.AVRO}) {
+                Table table = table(format, 2);
+                Assertions.assertEquals(20, read(table, Expressions.alwaysTrue()).size());
+                Assertions.assertEquals(10, read(table, Expressions.equal("day", "2022-11-09")).size());
+            }
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package iceberg_cli.utils.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestParallelDataWriter {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.required(2, "category", Types.IntegerType.get()));
+
+    /**
+     * Keeps the records it is given instead of writing files
+     */
+    private static class MemoryWriter implements DataWriter {
+        private final List<Record> records = new ArrayList<Record>();
+        private final long failAfter;
+        private boolean closed = false;
+
+        MemoryWriter(long failAfter) {
+            this.failAfter = failAfter;
+        }
+
+        public void write(Record record) throws IOException {
+            if (records.size() >= failAfter)
+                throw new IOException("Disk full");
+            records.add(record);
+        }
+
+        public void close() { closed = true; }
+
+        public void abort() { records.clear(); }
+
+        public List<DataFile> dataFiles() { return Collections.emptyList(); }
+    }
+
+    private static Record record(long id, int category) {
+        Record record = GenericRecord.create(SCHEMA);
+        record.setField("id", id);
+        record.setField("category", category);
+        return record;
+    }
+
+    @Test
+    public void testAllRecordsAreWritten() throws ServletException {
+        try {
+            List<MemoryWriter> writers = Collections.synchronizedList(new ArrayList<MemoryWriter>());
+            ParallelDataWriter writer = new ParallelDataWriter(3, SCHEMA, PartitionSpec.unpartitioned(), () -> {
+                MemoryWriter memoryWriter = new MemoryWriter(Long.MAX_VALUE);
+                writers.add(memoryWriter);
+                return memoryWriter;
+            });
+            for (long id = 0; id < 10500; id++)
+                writer.write(record(id, 0));
+            writer.close();
+
+            Set<Long> ids = new HashSet<Long>();
+            for (MemoryWriter memoryWriter : writers) {
+                Assertions.assertTrue(memoryWriter.closed);
+                Assertions.assertFalse(memoryWriter.records.isEmpty());
+                for (Record record : memoryWriter.records)
+                    ids.add((Long) record.getField("id"));
+            }
+            Assertions.assertEquals(10500, ids.size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testPartitionGoesToOneWorker() throws ServletException {
+        try {
+            PartitionSpec spec = PartitionSpec.builderFor(SCHEMA).identity("category").build();
+            List<MemoryWriter> writers = Collections.synchronizedList(new ArrayList<MemoryWriter>());
+            ParallelDataWriter writer = new ParallelDataWriter(4, SCHEMA, spec, () -> {
+                MemoryWriter memoryWriter = new MemoryWriter(Long.MAX_VALUE);
+                writers.add(memoryWriter);
+                return memoryWriter;
+            });
+            for (long id = 0; id < 5000; id++)
+                writer.write(record(id, (int) (id % 10)));
+            writer.close();
+
+            Set<Integer> seen = new HashSet<Integer>();
+            for (MemoryWriter memoryWriter : writers) {
+                Set<Integer> categories = new HashSet<Integer>();
+                for (Record record : memoryWriter.records)
+                    categories.add((Integer) record.getField("category"));
+                for (Integer category : categories)
+                    Assertions.assertTrue(seen.add(category), "Category written by two workers: " + category);
+            }
+            Assertions.assertEquals(10, seen.size());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testWorkerFailureIsReported() throws ServletException {
+        try {
+            ParallelDataWriter writer = new ParallelDataWriter(2, SCHEMA, PartitionSpec.unpartitioned(),
+                    () -> new MemoryWriter(100));
+            Exception exception = Assertions.assertThrows(IOException.class, () -> {
+                for (long id = 0; id < 100000; id++)
+                    writer.write(record(id, 0));
+                writer.close();
+            });
+            Assertions.assertEquals("Disk full", exception.getMessage());
+            writer.abort();
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package iceberg_cli.utils.writer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.data.parquet.GenericParquetReaders;
+import org.apache.iceberg.expressions.Expressions;
+import org.apache.iceberg.hadoop.HadoopFileIO;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.parquet.Parquet;
+import org.apache.iceberg.types.Types;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import iceberg_cli.utils.ParquetFooters;
+
+public class TestParquetSettings {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.required(2, "name", Types.StringType.get()));
+
+    @Test
+    public void testOverridesTableProperties() throws ServletException {
+        try {
+            ParquetSettings settings = new ParquetSettings(
+                    Map.of(TableProperties.PARQUET_COMPRESSION, "gzip", TableProperties.PARQUET_PAGE_SIZE_BYTES, "8192"),
+                    Map.of(TableProperties.PARQUET_COMPRESSION, "ZSTD", TableProperties.PARQUET_COMPRESSION_LEVEL, "9"));
+            Assertions.assertEquals("zstd", settings.codec());
+            Assertions.assertEquals(Map.of(TableProperties.PARQUET_COMPRESSION, "zstd",
+                    TableProperties.PARQUET_COMPRESSION_LEVEL, "9",
+                    TableProperties.PARQUET_PAGE_SIZE_BYTES, "8192"), settings.properties());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParquetSettings(Map.of(), Map.of(TableProperties.PARQUET_COMPRESSION, "rar")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParquetSettings(Map.of(), Map.of(TableProperties.PARQUET_ROW_GROUP_SIZE_BYTES, "0")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParquetSettings(Map.of(TableProperties.PARQUET_DICT_SIZE_BYTES, "1 MB"), Map.of()));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParquetSettings(Map.of(), Map.of("write.parquet.unknown", "1")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParquetSettings(Map.of(), Map.of(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX + "id", "yes")));
+    }
+
+    @Test
+    public void testBloomFilterColumns() throws ServletException {
+        try {
+            ParquetSettings settings = new ParquetSettings(
+                    Map.of(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX + "id", "true",
+                            TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX + "name", "true"),
+                    Map.of(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX + "name", "FALSE"));
+            Assertions.assertEquals(List.of("id"), settings.bloomFilterColumns());
+            Assertions.assertEquals("false", settings.properties().get(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX + "name"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    private static long countMatching(HadoopFileIO io, DataFile dataFile, long id) throws Exception {
+        long count = 0;
+        try (CloseableIterable<Record> records = Parquet.read(io.newInputFile(dataFile.path().toString())).project(SCHEMA)
+                .createReaderFunc(fileSchema -> GenericParquetReaders.buildReader(SCHEMA, fileSchema))
+                .filter(Expressions.equal("id", id)).build()) {
+            for (Record record : records)
+                count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testBloomFiltersSkipRowGroups() throws ServletException {
+        try {
+            File dir = Files.createTempDirectory("parquet-bloom").toFile();
+            HadoopFileIO io = new HadoopFileIO(new Configuration());
+            List<DataFile> dataFiles = new ArrayList<DataFile>();
+            for (boolean bloom : new boolean[] { false, true }) {
+                Map<String, String> overrides = new HashMap<String, String>();
+                overrides.put(TableProperties.PARQUET_ROW_GROUP_SIZE_BYTES, "65536");
+                if (bloom)
+                    overrides.put(TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX + "id", "true");
+                RollingDataWriter writer = new RollingDataWriter(io, SCHEMA, PartitionSpec.unpartitioned(), null,
+                        Long.MAX_VALUE, FileFormat.PARQUET, new ParquetSettings(Map.of(), overrides),
+                        () -> new File(dir, "data-" + bloom + ".parquet").getPath());
+                // Scattered IDs, so that the min/max stats of every row group cover the whole range
+                for (long i = 0; i < 100000; i++) {
+                    Record record = GenericRecord.create(SCHEMA);
+                    record.setField("id", (i * 7919) % 100000);
+                    record.setField("name", "name-" + i);
+                    writer.write(record);
+                }
+                writer.close();
+                dataFiles.addAll(writer.dataFiles());
+            }
+
+            Assertions.assertEquals(100000, countMatching(io, dataFiles.get(0), 4242));
+            // The row groups without the ID are skipped
+            long read = countMatching(io, dataFiles.get(1), 4242);
+            Assertions.assertTrue(read > 0 && read < 20000, "Expected to read few row groups, read " + read + " rows");
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testFilesAreWrittenWithSettings() throws ServletException {
+        try {
+            File dir = Files.createTempDirectory("parquet-settings").toFile();
+            HadoopFileIO io = new HadoopFileIO(new Configuration());
+            ParquetSettings settings = new ParquetSettings(Map.of(), Map.of(
+                    TableProperties.PARQUET_COMPRESSION, "snappy",
+                    TableProperties.PARQUET_ROW_GROUP_SIZE_BYTES, "65536"));
+            RollingDataWriter writer = new RollingDataWriter(io, SCHEMA, PartitionSpec.unpartitioned(), null,
+                    Long.MAX_VALUE, FileFormat.PARQUET, settings, () -> new File(dir, "data.parquet").getPath());
+            for (long i = 0; i < 100000; i++) {
+                Record record = GenericRecord.create(SCHEMA);
+                record.setField("id", i);
+                record.setField("name", "name-" + i);
+                writer.write(record);
+            }
+            writer.close();
+
+            List<DataFile> dataFiles = writer.dataFiles();
+            Assertions.assertEquals(1, dataFiles.size());
+            ParquetMetadata footer = ParquetFooters.read(io.newInputFile(dataFiles.get(0).path().toString()));
+            Assertions.assertTrue(footer.getBlocks().size() > 1, "Expected several row groups of 64 KB");
+            for (BlockMetaData rowGroup : footer.getBlocks())
+                Assertions.assertEquals(CompressionCodecName.SNAPPY, rowGroup.getColumns().get(0).getCodec());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package iceberg_cli.utils.writer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.avro.Avro;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.data.avro.DataReader;
+import org.apache.iceberg.data.orc.GenericOrcReader;
+import org.apache.iceberg.hadoop.HadoopFileIO;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.io.InputFile;
+import org.apache.iceberg.orc.ORC;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestRollingDataWriter {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.optional(2, "name", Types.StringType.get()));
+
+    private static CloseableIterable<Record> read(InputFile file, FileFormat format) {
+        if (format == FileFormat.ORC)
+            return ORC.read(file).project(SCHEMA)
+                    .createReaderFunc(fileSchema -> GenericOrcReader.buildReader(SCHEMA, fileSchema)).build();
+        return Avro.read(file).project(SCHEMA).createReaderFunc(DataReader::create).build();
+    }
+
+    private static void testFormat(FileFormat format) throws Exception {
+        File dir = Files.createTempDirectory("rolling-writer").toFile();
+        HadoopFileIO io = new HadoopFileIO(new Configuration());
+        AtomicInteger count = new AtomicInteger();
+        // Small target size to roll over to new files
+        RollingDataWriter writer = new RollingDataWriter(io, SCHEMA, PartitionSpec.unpartitioned(), null, 64 * 1024,
+                format, new ParquetSettings(), () -> new File(dir, format.addExtension("data-" + count.getAndIncrement())).getPath());
+        int numRecords = 100000;
+        for (long i = 0; i < numRecords; i++) {
+            Record record = GenericRecord.create(SCHEMA);
+            record.setField("id", i);
+            record.setField("name", (i % 10 == 0) ? null : "name-" + i);
+            writer.write(record);
+        }
+        writer.close();
+
+        Assertions.assertTrue(writer.dataFiles().size() > 1, "Expected the writer to roll over to new files");
+        long id = 0;
+        for (DataFile dataFile : writer.dataFiles()) {
+            Assertions.assertEquals(format, dataFile.format());
+            InputFile input = io.newInputFile(dataFile.path().toString());
+            Assertions.assertEquals(input.getLength(), dataFile.fileSizeInBytes());
+            long fileRecords = 0;
+            try (CloseableIterable<Record> records = read(input, format)) {
+                for (Record record : records) {
+                    Assertions.assertEquals(id, record.getField("id"));
+                    Assertions.assertEquals((id % 10 == 0) ? null : "name-" + id, record.getField("name"));
+                    id++;
+                    fileRecords++;
+                }
+            }
+            Assertions.assertEquals(fileRecords, dataFile.recordCount());
+        }
+        Assertions.assertEquals(numRecords, id);
+    }
+
+    @Test
+    public void testOrcFiles() throws ServletException {
+        try {
+            testFormat(FileFormat.ORC);
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testAvroFiles() throws ServletException {
+        try {
+            testFormat(FileFormat.AVRO);
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package iceberg_cli.utils.writer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.NullOrder;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.SortOrder;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.data.parquet.GenericParquetReaders;
+import org.apache.iceberg.hadoop.HadoopFileIO;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.parquet.Parquet;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSortingDataWriter {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.required(2, "region", Types.StringType.get()),
+            Types.NestedField.optional(3, "ts", Types.TimestampType.withoutZone()));
+
+    private static List<Record> write(PartitionSpec spec, SortOrder order, int bufferRows, List<Record> records, List<DataFile> dataFiles) throws Exception {
+        File dir = Files.createTempDirectory("sorting-writer").toFile();
+        HadoopFileIO io = new HadoopFileIO(new Configuration());
+        // Small target size to roll over to new files
+        SortingDataWriter writer = new SortingDataWriter(SCHEMA, spec, order, bufferRows,
+                new FanoutDataWriter(io, SCHEMA, spec, 32 * 1024, FileFormat.PARQUET, new ParquetSettings(), 1,
+                        partitionPath -> new File(dir, partitionPath + "/" + UUID.randomUUID() + ".parquet").getPath()));
+        for (Record record : records)
+            writer.write(record);
+        writer.close();
+        dataFiles.addAll(writer.dataFiles());
+
+        List<Record> written = new ArrayList<Record>();
+        for (DataFile dataFile : dataFiles) {
+            try (CloseableIterable<Record> fileRecords = Parquet.read(io.newInputFile(dataFile.path().toString())).project(SCHEMA)
+                    .createReaderFunc(fileSchema -> GenericParquetReaders.buildReader(SCHEMA, fileSchema)).build()) {
+                for (Record record : fileRecords)
+                    written.add(record);
+            }
+        }
+        return written;
+    }
+
+    private static List<Record> randomRecords(int numRecords) {
+        Random random = new Random(42);
+        List<Record> records = new ArrayList<Record>();
+        for (long i = 0; i < numRecords; i++) {
+            Record record = GenericRecord.create(SCHEMA);
+            record.setField("id", i);
+            record.setField("region", "region-" + random.nextInt(3));
+            record.setField("ts", (random.nextInt(10) == 0) ? null : LocalDateTime.of(2023, 1, 1, 0, 0).plusSeconds(random.nextInt(1000000)));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static void assertSorted(SortOrder order, List<Record> records) {
+        SortOrderComparator comparator = new SortOrderComparator(SCHEMA, order);
+        for (int i = 1; i < records.size(); i++)
+            Assertions.assertTrue(comparator.compare(records.get(i - 1), records.get(i)) <= 0, "Records out of order at " + i);
+    }
+
+    @Test
+    public void testSpilledRunsAreMerged() throws ServletException {
+        try {
+            PartitionSpec spec = PartitionSpec.builderFor(SCHEMA).identity("region").build();
+            SortOrder order = SortOrder.builderFor(SCHEMA).desc("ts", NullOrder.NULLS_LAST).asc("id").build();
+            List<Record> records = randomRecords(20000);
+            List<DataFile> dataFiles = new ArrayList<DataFile>();
+            // Buffer of 1000 rows spills 20 runs
+            List<Record> written = write(spec, order, 1000, records, dataFiles);
+
+            Assertions.assertEquals(records.size(), written.size());
+            Set<Object> ids = new HashSet<Object>();
+            for (Record record : written)
+                ids.add(record.getField("id"));
+            Assertions.assertEquals(records.size(), ids.size());
+            // Files are written partition by partition, each file holding the next range of rows
+            Assertions.assertTrue(dataFiles.size() > 3, "Expected the writer to roll over to new files");
+            assertSorted(SortOrder.builderFor(SCHEMA).asc("region").desc("ts", NullOrder.NULLS_LAST).asc("id").build(), written);
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testSortInMemory() throws ServletException {
+        try {
+            SortOrder order = SortOrder.builderFor(SCHEMA).asc("ts", NullOrder.NULLS_FIRST).build();
+            List<Record> records = randomRecords(5000);
+            List<Record> written = write(PartitionSpec.unpartitioned(), order, 10000, records, new ArrayList<DataFile>());
+
+            Assertions.assertEquals(records.size(), written.size());
+            assertSorted(order, written);
+            Assertions.assertNull(written.get(0).getField("ts"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
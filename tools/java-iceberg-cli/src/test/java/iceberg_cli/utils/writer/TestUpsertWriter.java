@@ -0,0 +1,120 @@
+package iceberg_cli.utils.writer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.iceberg.DataFile;
+import org.apache.iceberg.DeleteFile;
+import org.apache.iceberg.FileFormat;
+import org.apache.iceberg.PartitionSpec;
+import org.apache.iceberg.RowDelta;
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.TableProperties;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.IcebergGenerics;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.hadoop.HadoopTables;
+import org.apache.iceberg.io.CloseableIterable;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestUpsertWriter {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.required(1, "id", Types.LongType.get()),
+            Types.NestedField.required(2, "region", Types.StringType.get()),
+            Types.NestedField.optional(3, "value", Types.StringType.get()));
+
+    private static Record record(long id, String region, String value) {
+        Record record = GenericRecord.create(SCHEMA);
+        record.setField("id", id);
+        record.setField("region", region);
+        record.setField("value", value);
+        return record;
+    }
+
+    private static void upsert(Table table, List<String> keyColumns, List<Record> records) throws Exception {
+        UpsertWriter writer = new UpsertWriter(table.io(), table.schema(), table.spec(), keyColumns, Long.MAX_VALUE,
+                FileFormat.PARQUET, new ParquetSettings(), 4,
+                partitionPath -> String.format("%s/data/%s/%s", table.location(), partitionPath, FileFormat.PARQUET.addExtension(UUID.randomUUID().toString())));
+        for (Record record : records)
+            writer.write(record);
+        writer.close();
+        RowDelta rowDelta = table.newRowDelta();
+        for (DataFile dataFile : writer.dataFiles())
+            rowDelta.addRows(dataFile);
+        for (DeleteFile deleteFile : writer.deleteFiles())
+            rowDelta.addDeletes(deleteFile);
+        rowDelta.commit();
+    }
+
+    private static Map<String, String> read(Table table) throws Exception {
+        Map<String, String> rows = new HashMap<String, String>();
+        try (CloseableIterable<Record> records = IcebergGenerics.read(table).build()) {
+            for (Record record : records) {
+                String key = record.getField("id") + "/" + record.getField("region");
+                Assertions.assertNull(rows.put(key, (String) record.getField("value")), "Duplicate row " + key);
+            }
+        }
+        return rows;
+    }
+
+    private static Table table(PartitionSpec spec) throws Exception {
+        return new HadoopTables(new Configuration()).create(SCHEMA, spec, Map.of(TableProperties.FORMAT_VERSION, "2"),
+                Files.createTempDirectory("upsert").toString());
+    }
+
+    @Test
+    public void testUpsertByLongKey() throws ServletException {
+        try {
+            Table table = table(PartitionSpec.unpartitioned());
+            upsert(table, Arrays.asList("id"), Arrays.asList(record(1, "eu", "a"), record(2, "eu", "b")));
+            // The last record of a key in the batch wins
+            upsert(table, Arrays.asList("id"), Arrays.asList(record(2, "eu", "c"), record(3, "us", "d"), record(2, "eu", "e")));
+
+            Assertions.assertEquals(Map.of("1/eu", "a", "2/eu", "e", "3/us", "d"), read(table));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testUpsertByCompositeKeyInPartitions() throws ServletException {
+        try {
+            Table table = table(PartitionSpec.builderFor(SCHEMA).identity("region").build());
+            List<String> keyColumns = Arrays.asList("region", "id");
+            upsert(table, keyColumns, Arrays.asList(record(1, "eu", "a"), record(1, "us", "b"), record(2, "us", "c")));
+            upsert(table, keyColumns, Arrays.asList(record(1, "us", "d"), record(1, "us", "e"), record(3, "eu", "f")));
+
+            Assertions.assertEquals(Map.of("1/eu", "a", "1/us", "e", "2/us", "c", "3/eu", "f"), read(table));
+            // One delete file per partition of the batch
+            Assertions.assertEquals("2", table.currentSnapshot().summary().get("added-delete-files"));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testInvalidKeys() throws ServletException {
+        try {
+            Table table = table(PartitionSpec.builderFor(SCHEMA).identity("region").build());
+            // Rows could move to another partition, out of reach of the deletes
+            Assertions.assertThrows(IllegalArgumentException.class, () -> upsert(table, Arrays.asList("id"), Arrays.asList()));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> upsert(table, Arrays.asList("region", "missing"), Arrays.asList()));
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> upsert(table, Arrays.asList("region", "value"), Arrays.asList(record(1, "eu", null))));
+            Assertions.assertFalse(new File(table.location(), "data").exists());
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package iceberg_cli.utils.writer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import javax.servlet.ServletException;
+
+import org.apache.iceberg.Schema;
+import org.apache.iceberg.data.GenericRecord;
+import org.apache.iceberg.data.Record;
+import org.apache.iceberg.types.Types;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestZOrderComparator {
+    private static final Schema SCHEMA = new Schema(
+            Types.NestedField.optional(1, "x", Types.IntegerType.get()),
+            Types.NestedField.optional(2, "y", Types.IntegerType.get()),
+            Types.NestedField.optional(3, "tags", Types.ListType.ofOptional(4, Types.StringType.get())));
+
+    private static Record point(Integer x, Integer y) {
+        Record record = GenericRecord.create(SCHEMA);
+        record.setField("x", x);
+        record.setField("y", y);
+        return record;
+    }
+
+    private static List<Record> grid(int size) {
+        List<Record> points = new ArrayList<Record>();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++)
+                points.add(point(x, y));
+        }
+        Collections.shuffle(points, new Random(7));
+        return points;
+    }
+
+    @Test
+    public void testCurveOrder() throws ServletException {
+        try {
+            List<Record> points = grid(4);
+            points.sort(new ZOrderComparator(SCHEMA, List.of("x", "y")));
+            // Bits interleaved as x1 y1 x0 y0
+            int[][] expected = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {0, 2}, {0, 3}, {1, 2}, {1, 3}};
+            for (int i = 0; i < expected.length; i++) {
+                Assertions.assertEquals(expected[i][0], points.get(i).getField("x"));
+                Assertions.assertEquals(expected[i][1], points.get(i).getField("y"));
+            }
+
+            ZOrderComparator comparator = new ZOrderComparator(SCHEMA, List.of("x", "y"));
+            Assertions.assertTrue(comparator.compare(point(-1, 0), point(0, 0)) < 0);
+            Assertions.assertTrue(comparator.compare(point(null, null), point(Integer.MIN_VALUE, Integer.MIN_VALUE)) < 0);
+            Assertions.assertEquals(0, comparator.compare(point(3, 5), point(3, 5)));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testClustersPoints() throws ServletException {
+        try {
+            List<Record> points = grid(16);
+            points.sort(new ZOrderComparator(SCHEMA, List.of("x", "y")));
+            // Each quarter of the curve is a square of 8 by 8 points
+            for (int i = 0; i < points.size(); i += 64) {
+                int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+                for (Record point : points.subList(i, i + 64)) {
+                    minX = Math.min(minX, (Integer) point.getField("x"));
+                    maxX = Math.max(maxX, (Integer) point.getField("x"));
+                    minY = Math.min(minY, (Integer) point.getField("y"));
+                    maxY = Math.max(maxY, (Integer) point.getField("y"));
+                }
+                Assertions.assertEquals(7, maxX - minX);
+                Assertions.assertEquals(7, maxY - minY);
+            }
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+
+    @Test
+    public void testInvalidColumns() throws ServletException {
+        try {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new ZOrderComparator(SCHEMA, List.of()));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new ZOrderComparator(SCHEMA, List.of("x", "z")));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new ZOrderComparator(SCHEMA, List.of("tags")));
+        } catch (Throwable t) {
+            throw new ServletException("Error: " + t.getMessage(), t);
+        }
+    }
+}